@@ -0,0 +1,102 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.BeanPropertyComponentAdapter;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.testmodel.CoupleBean;
+
+/**
+ * Measures the instantiation of a prototype configured by a {@link BeanPropertyComponentAdapter} with
+ * properties of built-in types or converted by a property editor.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanPropertyBenchmark {
+
+    public static class Configured {
+        private String name;
+        private int count;
+        private boolean enabled;
+        private URL url;
+        private CoupleBean couple;
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setUrl(URL url) {
+            this.url = url;
+        }
+
+        public void setCouple(CoupleBean couple) {
+            this.couple = couple;
+        }
+    }
+
+    @Param({"builtIn", "propertyEditor"})
+    public String properties;
+
+    private MutablePicoContainer container;
+    private BeanPropertyComponentAdapter adapter;
+
+    @Setup
+    public void setUp() {
+        container = new DefaultPicoContainer();
+        adapter = new BeanPropertyComponentAdapter(new ConstructorInjectionComponentAdapter(Configured.class, Configured.class));
+        final Map values = new HashMap();
+        values.put("name", "pico");
+        values.put("count", "42");
+        values.put("enabled", "true");
+        values.put("url", "http://www.picocontainer.org/");
+        if ("propertyEditor".equals(properties)) {
+            values.put("couple", "a's name:Camilla;b's name:Charles;");
+        }
+        adapter.setProperties(values);
+        container.registerComponent(adapter);
+    }
+
+    @Benchmark
+    public Object instantiate() {
+        return adapter.getComponentInstance(container);
+    }
+}
@@ -0,0 +1,100 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.CachingComponentAdapterFactory;
+import org.picocontainer.defaults.ComponentHandle;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapterFactory;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.defaults.SynchronizedComponentAdapterFactory;
+
+/**
+ * Measures the lookup of an already cached component by key, by type and with a {@link ComponentHandle}.
+ * The component is registered locally, in the parent, with a synchronizing decorator or with a cache
+ * that instantiates once. Run it with the gc profiler ("-prof gc") to see the allocation per lookup,
+ * that should be 0 B/op.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachedLookupBenchmark {
+
+    public static class Dependency {
+    }
+
+    public static class Component {
+        public Component(Dependency dependency) {
+        }
+    }
+
+    @Param({"local", "parent", "synchronized", "instantiateOnce"})
+    public String registration;
+
+    private MutablePicoContainer container;
+    private ComponentHandle handle;
+
+    @Setup
+    public void setUp() {
+        if ("parent".equals(registration)) {
+            final MutablePicoContainer parent = new DefaultPicoContainer();
+            parent.registerComponentImplementation(Dependency.class);
+            parent.registerComponentImplementation("component", Component.class);
+            container = new DefaultPicoContainer(parent);
+        } else {
+            if ("synchronized".equals(registration)) {
+                container = new DefaultPicoContainer(new SynchronizedComponentAdapterFactory(
+                        new CachingComponentAdapterFactory(new ConstructorInjectionComponentAdapterFactory())));
+            } else if ("instantiateOnce".equals(registration)) {
+                container = new DefaultPicoContainer(new CachingComponentAdapterFactory(
+                        new ConstructorInjectionComponentAdapterFactory(), true));
+            } else {
+                container = new DefaultPicoContainer();
+            }
+            container.registerComponentImplementation(Dependency.class);
+            container.registerComponentImplementation("component", Component.class);
+        }
+        container.getComponentInstance("component");
+        handle = ((DefaultPicoContainer) container).getComponentHandle("component");
+    }
+
+    @Benchmark
+    public Object lookupByKey() {
+        return container.getComponentInstance("component");
+    }
+
+    @Benchmark
+    public Object lookupByType() {
+        return container.getComponentInstanceOfType(Component.class);
+    }
+
+    @Benchmark
+    public Object lookupByHandle() {
+        return handle.get();
+    }
+}
@@ -0,0 +1,78 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.Parameter;
+import org.picocontainer.defaults.CollectionComponentParameter;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.DefaultPicoContainer;
+
+/**
+ * Measures the resolution of a {@link CollectionComponentParameter} collecting 10 up to 1000 cached
+ * services into an array for a component that is instantiated for every call.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionParameterBenchmark {
+
+    public interface Service {
+    }
+
+    public static class ServiceImpl implements Service {
+    }
+
+    public static class Consumer {
+        public Consumer(Service[] services) {
+        }
+    }
+
+    @Param({"10", "100", "1000"})
+    public int services;
+
+    private MutablePicoContainer container;
+    private ComponentAdapter adapter;
+
+    @Setup
+    public void setUp() {
+        container = new DefaultPicoContainer();
+        for (int i = 0; i < services; i++) {
+            container.registerComponentImplementation("service" + i, ServiceImpl.class);
+        }
+        adapter = new ConstructorInjectionComponentAdapter(Consumer.class, Consumer.class,
+                new Parameter[]{CollectionComponentParameter.ARRAY});
+        container.registerComponent(adapter);
+    }
+
+    @Benchmark
+    public Object resolveArray() {
+        return adapter.getComponentInstance(container);
+    }
+}
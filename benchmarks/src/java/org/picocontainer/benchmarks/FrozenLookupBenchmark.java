@@ -0,0 +1,89 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.defaults.DefaultPicoContainer;
+
+/**
+ * Compares lookups in a mutable {@link DefaultPicoContainer} with lookups in a frozen one. The leaf
+ * of a chain of three containers looks up a component registered in the root by key and a local
+ * component by type, and lists its adapters.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrozenLookupBenchmark {
+
+    public static class RootService {
+    }
+
+    public static class LeafService {
+    }
+
+    @Param({"10", "1000"})
+    public int components;
+
+    @Param({"false", "true"})
+    public boolean frozen;
+
+    private DefaultPicoContainer leaf;
+
+    @Setup
+    public void setUp() {
+        DefaultPicoContainer root = new DefaultPicoContainer();
+        DefaultPicoContainer middle = new DefaultPicoContainer(root);
+        leaf = new DefaultPicoContainer(middle);
+        root.registerComponentImplementation(RootService.class);
+        leaf.registerComponentImplementation(LeafService.class);
+        for (int i = 0; i < components; i++) {
+            root.registerComponentInstance("root" + i, new Object());
+            middle.registerComponentInstance("middle" + i, new Object());
+            leaf.registerComponentInstance("leaf" + i, new Object());
+        }
+        if (frozen) {
+            root.freeze();
+            middle.freeze();
+            leaf.freeze();
+        }
+    }
+
+    @Benchmark
+    public Object lookupParentComponentByKey() {
+        return leaf.getComponentInstance(RootService.class);
+    }
+
+    @Benchmark
+    public Object lookupLocalComponentByType() {
+        return leaf.getComponentInstanceOfType(LeafService.class);
+    }
+
+    @Benchmark
+    public Object listComponentAdapters() {
+        return leaf.getComponentAdapters();
+    }
+}
@@ -0,0 +1,99 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.gems.adapters.FastConstructorInjectionComponentAdapter;
+
+/**
+ * Compares the instantiation of components by reflection with the instantiation by a class generated
+ * with cglib for constructors with 0, 3 and 10 arguments. The component itself is not cached, all
+ * arguments refer to the same cached dependency.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstantiationBenchmark {
+
+    public static class Dependency {
+    }
+
+    public static class NoArguments {
+        public NoArguments() {
+        }
+    }
+
+    public static class ThreeArguments {
+        public ThreeArguments(Dependency d1, Dependency d2, Dependency d3) {
+        }
+    }
+
+    public static class TenArguments {
+        public TenArguments(Dependency d1, Dependency d2, Dependency d3, Dependency d4, Dependency d5,
+                            Dependency d6, Dependency d7, Dependency d8, Dependency d9, Dependency d10) {
+        }
+    }
+
+    @Param({"0", "3", "10"})
+    public int arguments;
+
+    @Param({"reflection", "cglib"})
+    public String instantiator;
+
+    private MutablePicoContainer container;
+    private ComponentAdapter adapter;
+
+    @Setup
+    public void setUp() {
+        final Class implementation;
+        switch (arguments) {
+            case 0:
+                implementation = NoArguments.class;
+                break;
+            case 3:
+                implementation = ThreeArguments.class;
+                break;
+            default:
+                implementation = TenArguments.class;
+        }
+        container = new DefaultPicoContainer();
+        container.registerComponentImplementation(Dependency.class);
+        adapter = "cglib".equals(instantiator)
+                ? new FastConstructorInjectionComponentAdapter(implementation, implementation)
+                : new ConstructorInjectionComponentAdapter(implementation, implementation);
+        container.registerComponent(adapter);
+    }
+
+    @Benchmark
+    public Object instantiate() {
+        return adapter.getComponentInstance(container);
+    }
+}
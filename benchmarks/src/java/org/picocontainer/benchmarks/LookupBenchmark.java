@@ -0,0 +1,77 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.DefaultPicoContainer;
+
+/**
+ * Measures the lookup of a cached component by key and by type in containers of 10 up to 10k
+ * components. The component looked up by type is registered with a String key, so the lookup has
+ * to search the registered types.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    public static class Component {
+    }
+
+    public static class Target {
+    }
+
+    @Param({"10", "100", "1000", "10000"})
+    public int components;
+
+    private MutablePicoContainer container;
+    private String key;
+
+    @Setup
+    public void setUp() {
+        container = new DefaultPicoContainer();
+        for (int i = 0; i < components; i++) {
+            container.registerComponentImplementation("component" + i, Component.class);
+        }
+        container.registerComponentImplementation("target", Target.class);
+        key = "component" + (components / 2);
+        // instantiate the cached components
+        container.getComponentInstance(key);
+        container.getComponentInstance("target");
+    }
+
+    @Benchmark
+    public Object lookupByKey() {
+        return container.getComponentInstance(key);
+    }
+
+    @Benchmark
+    public Object lookupByType() {
+        return container.getComponentInstanceOfType(Target.class);
+    }
+}
@@ -0,0 +1,86 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.PicoContainer;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.defaults.ImmutablePicoContainerProxyFactory;
+
+/**
+ * Measures lookups from the leaf of a parent chain for a component registered in the root
+ * container. With <code>parentView=proxy</code> every parent is additionally hidden behind the
+ * reflective proxy of {@link ImmutablePicoContainerProxyFactory}, which is what
+ * {@link DefaultPicoContainer} used to do, to compare against the plain immutable view.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParentChainLookupBenchmark {
+
+    @Param({"1", "4", "16", "64"})
+    public int depth;
+
+    @Param({"view", "proxy"})
+    public String parentView;
+
+    private PicoContainer leaf;
+
+    @Setup
+    public void setUp() {
+        MutablePicoContainer container = new DefaultPicoContainer();
+        container.registerComponentImplementation(List.class, ArrayList.class);
+        for (int i = 0; i < depth; i++) {
+            PicoContainer parent = "proxy".equals(parentView)
+                    ? ImmutablePicoContainerProxyFactory.newProxyInstance(container)
+                    : container;
+            container = new DefaultPicoContainer(parent);
+        }
+        leaf = container;
+        // instantiate the cached component
+        leaf.getComponentInstance(List.class);
+    }
+
+    @Benchmark
+    public ComponentAdapter getComponentAdapter() {
+        return leaf.getComponentAdapter(List.class);
+    }
+
+    @Benchmark
+    public ComponentAdapter getComponentAdapterOfType() {
+        return leaf.getComponentAdapterOfType(ArrayList.class);
+    }
+
+    @Benchmark
+    public Object getComponentInstance() {
+        return leaf.getComponentInstance(List.class);
+    }
+}
@@ -0,0 +1,103 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.gems.adapters.PoolingComponentAdapter;
+
+import com.thoughtworks.proxy.toys.pool.Poolable;
+
+/**
+ * Measures a borrow and return cycle of a {@link PoolingComponentAdapter} with four threads and
+ * with 128 threads. With a pool of two instances the threads contend for the instances and wait until
+ * one is returned. With 128 threads most borrows have to take an instance of another thread.
+ * The <code>pool</code> engine is the proxytoys Pool, the <code>threadAffine</code> engine keeps
+ * returned instances with the returning thread.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PoolingBenchmark {
+
+    public interface Resource {
+        void use();
+    }
+
+    public static class ResourceImpl implements Resource {
+        public void use() {
+        }
+    }
+
+    @Param({"2", "8"})
+    public int poolSize;
+
+    @Param({"pool", "threadAffine"})
+    public String engine;
+
+    private MutablePicoContainer container;
+    private PoolingComponentAdapter adapter;
+
+    @Setup
+    public void setUp() {
+        container = new DefaultPicoContainer();
+        final int maxSize = poolSize;
+        final boolean threadAffine = "threadAffine".equals(engine);
+        adapter = new PoolingComponentAdapter(new ConstructorInjectionComponentAdapter(Resource.class, ResourceImpl.class),
+                new PoolingComponentAdapter.DefaultContext() {
+                    public int getMaxSize() {
+                        return maxSize;
+                    }
+
+                    public int getMaxWaitInMilliseconds() {
+                        return PoolingComponentAdapter.BLOCK_ON_WAIT;
+                    }
+
+                    public boolean isThreadAffine() {
+                        return threadAffine;
+                    }
+                });
+        container.registerComponent(adapter);
+    }
+
+    @Benchmark
+    public void borrowAndReturn() {
+        final Resource resource = (Resource) adapter.getComponentInstance(container);
+        resource.use();
+        ((Poolable) resource).returnInstanceToPool();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public void borrowAndReturnWithManyThreads() {
+        borrowAndReturn();
+    }
+}
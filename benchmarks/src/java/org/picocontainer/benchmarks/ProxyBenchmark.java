@@ -0,0 +1,83 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.defaults.ImplementationHidingComponentAdapter;
+import org.picocontainer.gems.adapters.ThreadLocalComponentAdapter;
+
+/**
+ * Measures the overhead of a method call through the proxies of {@link ImplementationHidingComponentAdapter}
+ * and {@link ThreadLocalComponentAdapter} compared to a direct call of the component.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyBenchmark {
+
+    public interface Counter {
+        int next();
+    }
+
+    public static class CounterImpl implements Counter {
+        private int count;
+
+        public int next() {
+            return ++count;
+        }
+    }
+
+    @Param({"direct", "implementationHiding", "threadLocal"})
+    public String adapterType;
+
+    private Counter counter;
+
+    @Setup
+    public void setUp() {
+        final MutablePicoContainer container = new DefaultPicoContainer();
+        final ComponentAdapter delegate = new ConstructorInjectionComponentAdapter(Counter.class, CounterImpl.class);
+        final ComponentAdapter adapter;
+        if ("implementationHiding".equals(adapterType)) {
+            adapter = new ImplementationHidingComponentAdapter(delegate, true);
+        } else if ("threadLocal".equals(adapterType)) {
+            adapter = new ThreadLocalComponentAdapter(delegate);
+        } else {
+            adapter = delegate;
+        }
+        container.registerComponent(adapter);
+        counter = (Counter) container.getComponentInstance(Counter.class);
+    }
+
+    @Benchmark
+    public int call() {
+        return counter.next();
+    }
+}
@@ -0,0 +1,63 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.DefaultPicoContainer;
+
+/**
+ * Measures the throughput of {@link MutablePicoContainer#registerComponentImplementation(Object, Class)}
+ * while filling a fresh container with {@value #COMPONENTS} components.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrationBenchmark {
+    private static final int COMPONENTS = 1000;
+    private static final String[] KEYS = new String[COMPONENTS];
+
+    static {
+        for (int i = 0; i < COMPONENTS; i++) {
+            KEYS[i] = "component" + i;
+        }
+    }
+
+    public static class Component {
+        public Component() {
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMPONENTS)
+    public MutablePicoContainer registerComponentImplementation() {
+        MutablePicoContainer container = new DefaultPicoContainer();
+        for (int i = 0; i < COMPONENTS; i++) {
+            container.registerComponentImplementation(KEYS[i], Component.class);
+        }
+        return container;
+    }
+}
@@ -0,0 +1,266 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.defaults.SetterInjectionComponentAdapter;
+
+/**
+ * Measures the instantiation of a prototype bean with 20 setters by a {@link SetterInjectionComponentAdapter}
+ * compared to the same injection written by hand.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetterInjectionBenchmark {
+
+    public static class Dependency0 {
+    }
+
+    public static class Dependency1 {
+    }
+
+    public static class Dependency2 {
+    }
+
+    public static class Dependency3 {
+    }
+
+    public static class Dependency4 {
+    }
+
+    public static class Dependency5 {
+    }
+
+    public static class Dependency6 {
+    }
+
+    public static class Dependency7 {
+    }
+
+    public static class Dependency8 {
+    }
+
+    public static class Dependency9 {
+    }
+
+    public static class Dependency10 {
+    }
+
+    public static class Dependency11 {
+    }
+
+    public static class Dependency12 {
+    }
+
+    public static class Dependency13 {
+    }
+
+    public static class Dependency14 {
+    }
+
+    public static class Dependency15 {
+    }
+
+    public static class Dependency16 {
+    }
+
+    public static class Dependency17 {
+    }
+
+    public static class Dependency18 {
+    }
+
+    public static class Dependency19 {
+    }
+
+    public static class Bean {
+        private Dependency0 dependency0;
+        private Dependency1 dependency1;
+        private Dependency2 dependency2;
+        private Dependency3 dependency3;
+        private Dependency4 dependency4;
+        private Dependency5 dependency5;
+        private Dependency6 dependency6;
+        private Dependency7 dependency7;
+        private Dependency8 dependency8;
+        private Dependency9 dependency9;
+        private Dependency10 dependency10;
+        private Dependency11 dependency11;
+        private Dependency12 dependency12;
+        private Dependency13 dependency13;
+        private Dependency14 dependency14;
+        private Dependency15 dependency15;
+        private Dependency16 dependency16;
+        private Dependency17 dependency17;
+        private Dependency18 dependency18;
+        private Dependency19 dependency19;
+
+        public void setDependency0(Dependency0 dependency0) {
+            this.dependency0 = dependency0;
+        }
+
+        public void setDependency1(Dependency1 dependency1) {
+            this.dependency1 = dependency1;
+        }
+
+        public void setDependency2(Dependency2 dependency2) {
+            this.dependency2 = dependency2;
+        }
+
+        public void setDependency3(Dependency3 dependency3) {
+            this.dependency3 = dependency3;
+        }
+
+        public void setDependency4(Dependency4 dependency4) {
+            this.dependency4 = dependency4;
+        }
+
+        public void setDependency5(Dependency5 dependency5) {
+            this.dependency5 = dependency5;
+        }
+
+        public void setDependency6(Dependency6 dependency6) {
+            this.dependency6 = dependency6;
+        }
+
+        public void setDependency7(Dependency7 dependency7) {
+            this.dependency7 = dependency7;
+        }
+
+        public void setDependency8(Dependency8 dependency8) {
+            this.dependency8 = dependency8;
+        }
+
+        public void setDependency9(Dependency9 dependency9) {
+            this.dependency9 = dependency9;
+        }
+
+        public void setDependency10(Dependency10 dependency10) {
+            this.dependency10 = dependency10;
+        }
+
+        public void setDependency11(Dependency11 dependency11) {
+            this.dependency11 = dependency11;
+        }
+
+        public void setDependency12(Dependency12 dependency12) {
+            this.dependency12 = dependency12;
+        }
+
+        public void setDependency13(Dependency13 dependency13) {
+            this.dependency13 = dependency13;
+        }
+
+        public void setDependency14(Dependency14 dependency14) {
+            this.dependency14 = dependency14;
+        }
+
+        public void setDependency15(Dependency15 dependency15) {
+            this.dependency15 = dependency15;
+        }
+
+        public void setDependency16(Dependency16 dependency16) {
+            this.dependency16 = dependency16;
+        }
+
+        public void setDependency17(Dependency17 dependency17) {
+            this.dependency17 = dependency17;
+        }
+
+        public void setDependency18(Dependency18 dependency18) {
+            this.dependency18 = dependency18;
+        }
+
+        public void setDependency19(Dependency19 dependency19) {
+            this.dependency19 = dependency19;
+        }
+    }
+
+    private MutablePicoContainer container;
+    private ComponentAdapter adapter;
+
+    @Setup
+    public void setUp() {
+        container = new DefaultPicoContainer();
+        container.registerComponentImplementation(Dependency0.class);
+        container.registerComponentImplementation(Dependency1.class);
+        container.registerComponentImplementation(Dependency2.class);
+        container.registerComponentImplementation(Dependency3.class);
+        container.registerComponentImplementation(Dependency4.class);
+        container.registerComponentImplementation(Dependency5.class);
+        container.registerComponentImplementation(Dependency6.class);
+        container.registerComponentImplementation(Dependency7.class);
+        container.registerComponentImplementation(Dependency8.class);
+        container.registerComponentImplementation(Dependency9.class);
+        container.registerComponentImplementation(Dependency10.class);
+        container.registerComponentImplementation(Dependency11.class);
+        container.registerComponentImplementation(Dependency12.class);
+        container.registerComponentImplementation(Dependency13.class);
+        container.registerComponentImplementation(Dependency14.class);
+        container.registerComponentImplementation(Dependency15.class);
+        container.registerComponentImplementation(Dependency16.class);
+        container.registerComponentImplementation(Dependency17.class);
+        container.registerComponentImplementation(Dependency18.class);
+        container.registerComponentImplementation(Dependency19.class);
+        adapter = new SetterInjectionComponentAdapter(Bean.class, Bean.class, null);
+        container.registerComponent(adapter);
+    }
+
+    @Benchmark
+    public Object setterInjection() {
+        return adapter.getComponentInstance(container);
+    }
+
+    @Benchmark
+    public Object handWritten() {
+        final Bean bean = new Bean();
+        bean.setDependency0((Dependency0) container.getComponentInstance(Dependency0.class));
+        bean.setDependency1((Dependency1) container.getComponentInstance(Dependency1.class));
+        bean.setDependency2((Dependency2) container.getComponentInstance(Dependency2.class));
+        bean.setDependency3((Dependency3) container.getComponentInstance(Dependency3.class));
+        bean.setDependency4((Dependency4) container.getComponentInstance(Dependency4.class));
+        bean.setDependency5((Dependency5) container.getComponentInstance(Dependency5.class));
+        bean.setDependency6((Dependency6) container.getComponentInstance(Dependency6.class));
+        bean.setDependency7((Dependency7) container.getComponentInstance(Dependency7.class));
+        bean.setDependency8((Dependency8) container.getComponentInstance(Dependency8.class));
+        bean.setDependency9((Dependency9) container.getComponentInstance(Dependency9.class));
+        bean.setDependency10((Dependency10) container.getComponentInstance(Dependency10.class));
+        bean.setDependency11((Dependency11) container.getComponentInstance(Dependency11.class));
+        bean.setDependency12((Dependency12) container.getComponentInstance(Dependency12.class));
+        bean.setDependency13((Dependency13) container.getComponentInstance(Dependency13.class));
+        bean.setDependency14((Dependency14) container.getComponentInstance(Dependency14.class));
+        bean.setDependency15((Dependency15) container.getComponentInstance(Dependency15.class));
+        bean.setDependency16((Dependency16) container.getComponentInstance(Dependency16.class));
+        bean.setDependency17((Dependency17) container.getComponentInstance(Dependency17.class));
+        bean.setDependency18((Dependency18) container.getComponentInstance(Dependency18.class));
+        bean.setDependency19((Dependency19) container.getComponentInstance(Dependency19.class));
+        return bean;
+    }
+}
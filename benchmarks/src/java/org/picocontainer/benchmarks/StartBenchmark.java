@@ -0,0 +1,85 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.Startable;
+import org.picocontainer.defaults.DefaultPicoContainer;
+
+/**
+ * Measures the start, and the start followed by the stop, of a fresh container with a growing number
+ * of startable components, that all depend on one shared component. The start instantiates every
+ * component and records its instantiation order, so the time should grow linearly with the number of
+ * components.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StartBenchmark {
+
+    public static class Shared {
+    }
+
+    public static class Service implements Startable {
+        public Service(Shared shared) {
+        }
+
+        public void start() {
+        }
+
+        public void stop() {
+        }
+    }
+
+    @Param({"1000", "2000", "5000", "10000"})
+    public int components;
+
+    private DefaultPicoContainer container;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        container = new DefaultPicoContainer();
+        container.registerComponentImplementation(Shared.class);
+        for (int i = 0; i < components; i++) {
+            container.registerComponentImplementation("service" + i, Service.class);
+        }
+    }
+
+    @Benchmark
+    public DefaultPicoContainer start() {
+        container.start();
+        return container;
+    }
+
+    @Benchmark
+    public DefaultPicoContainer startAndStop() {
+        container.start();
+        container.stop();
+        return container;
+    }
+}
@@ -0,0 +1,76 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.tck.SyntheticContainerGenerator;
+
+/**
+ * Measures the resolution of the whole graph and the start followed by the stop of a fresh container
+ * with synthetic components of a {@link SyntheticContainerGenerator}. The components are spread over
+ * ten layers, each depends on four components of lower layers, a third of them is startable and one
+ * percent depends on an array of the layer below.
+ *
+ * @version $Revision$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyntheticContainerBenchmark {
+
+    @Param({"1000", "5000"})
+    public int components;
+
+    private SyntheticContainerGenerator generator;
+    private DefaultPicoContainer container;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        generator = new SyntheticContainerGenerator(components, 10);
+        generator.setFanOut(4);
+        generator.setStartableRatio(0.3);
+        generator.setCollectionRatio(0.01);
+        generator.getComponentClasses();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        container = generator.createContainer(null);
+    }
+
+    @Benchmark
+    public Object instantiateAll() {
+        return container.getComponentInstances();
+    }
+
+    @Benchmark
+    public DefaultPicoContainer startAndStop() {
+        container.start();
+        container.stop();
+        return container;
+    }
+}
@@ -0,0 +1,56 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.benchmarks;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the {@link CachedLookupBenchmark} with the gc profiler and asserts, that the lookup of a
+ * cached component does not allocate.
+ *
+ * @version $Revision$
+ */
+public class CachedLookupAllocationTestCase extends TestCase {
+
+    public void testLookupOfCachedComponentDoesNotAllocate() throws RunnerException {
+        Collection results = new Runner(new OptionsBuilder()
+                .include(CachedLookupBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(500))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.milliseconds(500))
+                .timeUnit(TimeUnit.NANOSECONDS)
+                // surefire does not provide a class path for a forked benchmark VM
+                .forks(0)
+                .build()).run();
+        assertEquals(12, results.size());
+        for (Iterator iter = results.iterator(); iter.hasNext();) {
+            RunResult result = (RunResult) iter.next();
+            Result allocation = (Result) result.getSecondaryResults().get("gc.alloc.rate.norm");
+            String benchmark = result.getParams().getBenchmark() + " " + result.getParams().getParam("registration");
+            assertNotNull("No allocation profiled for " + benchmark, allocation);
+            // the profiler reports a small fraction of a byte for the measurement itself
+            assertTrue(benchmark + " allocates " + allocation.getScore() + " B/op", allocation.getScore() < 1);
+        }
+    }
+}
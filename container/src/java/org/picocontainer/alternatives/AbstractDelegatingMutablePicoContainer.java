@@ -21,12 +21,13 @@ import org.picocontainer.PicoException;
 import org.picocontainer.PicoRegistrationException;
 import org.picocontainer.PicoVerificationException;
 import org.picocontainer.PicoVisitor;
+import org.picocontainer.defaults.ComponentRegistryGeneration;
 
 /**
  * @author Paul Hammant
  * @version $Revision$
  */
-public abstract class AbstractDelegatingMutablePicoContainer implements MutablePicoContainer, Serializable {
+public abstract class AbstractDelegatingMutablePicoContainer implements MutablePicoContainer, ComponentRegistryGeneration, Serializable {
 
     private MutablePicoContainer delegate;
 
@@ -138,6 +139,13 @@ public abstract class AbstractDelegatingMutablePicoContainer implements MutableP
         return delegate.getComponentInstancesOfType(type);
     }
 
+    public long getComponentRegistryGeneration() {
+        if (delegate instanceof ComponentRegistryGeneration) {
+            return ((ComponentRegistryGeneration) delegate).getComponentRegistryGeneration();
+        }
+        return UNTRACKED;
+    }
+
     public boolean equals(Object obj) {
         // required to make it pass on both jdk 1.3 and jdk 1.4. Btw, what about overriding hashCode()? (AH)
         final boolean result = delegate.equals(obj) || this == obj;
@@ -98,7 +98,12 @@ public class BasicComponentParameter
         visitor.visitParameter(this);
     }
 
-    private ComponentAdapter resolveAdapter(PicoContainer container, ComponentAdapter adapter, Class expectedType) {
+    /**
+     * Resolve the adapter of the component that satisfies the expected type.
+     *
+     * @return the adapter or <code>null</code> if the parameter cannot be resolved.
+     */
+    ComponentAdapter resolveAdapter(PicoContainer container, ComponentAdapter adapter, Class expectedType) {
 
         final ComponentAdapter result = getTargetAdapter(container, expectedType,adapter);
         if (result == null) {
@@ -8,7 +8,6 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 import java.util.HashMap;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -30,6 +29,12 @@ import org.picocontainer.PicoIntrospectionException;
  * it is also able to set javabean properties by discovering an appropriate
  * {@link PropertyEditor} and using its <code>setAsText</code> method.
  * <p/>
+ * The properties are bound to the setters of the component once. Values of primitive types, their
+ * wrappers, String, File, URL and Class are converted only once and passed to every instance. Values
+ * converted by a {@link PropertyEditor} and components referenced by their key are retrieved for every
+ * instance, but the editor is looked up only once. The editors found for a type are shared by all
+ * adapters.
+ * <p/>
  * <em>
  * Note that this class doesn't cache instances. If you want caching,
  * use a {@link CachingComponentAdapter} around this one.
@@ -41,7 +46,7 @@ import org.picocontainer.PicoIntrospectionException;
  */
 public class BeanPropertyComponentAdapter extends DecoratingComponentAdapter {
     private Map properties;
-    private transient Map setters = null;
+    private transient volatile PropertyBinding[] propertyBindings;
 
     /**
      * Construct a BeanPropertyComponentAdapter.
@@ -67,19 +72,19 @@ public class BeanPropertyComponentAdapter extends DecoratingComponentAdapter {
      */
     public Object getComponentInstance(PicoContainer container) throws PicoInitializationException, PicoIntrospectionException, AssignabilityRegistrationException, NotConcreteRegistrationException {
         final Object componentInstance = super.getComponentInstance(container);
-        if (setters == null) {
-            setters = getSetters(getComponentImplementation());
-        }
 
         if (properties != null) {
+            PropertyBinding[] bindings = propertyBindings;
+            if (bindings == null) {
+                bindings = bindProperties(properties);
+                propertyBindings = bindings;
+            }
             ComponentMonitor componentMonitor = currentMonitor();
-            Set propertyNames = properties.keySet();
-            for (Iterator iterator = propertyNames.iterator(); iterator.hasNext();) {
-                final String propertyName = (String) iterator.next();
-                final Object propertyValue = properties.get(propertyName);
-                Method setter = (Method) setters.get(propertyName);
+            for (int i = 0; i < bindings.length; i++) {
+                final PropertyBinding binding = bindings[i];
+                final Method setter = binding.setter;
 
-                Object valueToInvoke = this.getSetterParameter(propertyName,propertyValue,componentInstance,container);
+                Object valueToInvoke = binding.getValue(container, componentInstance);
 
                 try {
                     componentMonitor.invoking(setter, componentInstance);
@@ -88,13 +93,30 @@ public class BeanPropertyComponentAdapter extends DecoratingComponentAdapter {
                     componentMonitor.invoked(setter, componentInstance, System.currentTimeMillis() - startTime);
                 } catch (final Exception e) {
                     componentMonitor.invocationFailed(setter, componentInstance, e);
-                    throw new PicoInitializationException("Failed to set property " + propertyName + " to " + propertyValue + ": " + e.getMessage(), e);
+                    throw new PicoInitializationException("Failed to set property " + binding.propertyName + " to " + binding.propertyValue + ": " + e.getMessage(), e);
                 }
             }
         }
         return componentInstance;
     }
 
+    private PropertyBinding[] bindProperties(Map properties) {
+        final Map setters = getSetters(getComponentImplementation());
+        final PropertyBinding[] bindings = new PropertyBinding[properties.size()];
+        int i = 0;
+        for (Iterator iterator = properties.entrySet().iterator(); iterator.hasNext();) {
+            final Map.Entry entry = (Map.Entry) iterator.next();
+            final String propertyName = (String) entry.getKey();
+            final Method setter = (Method) setters.get(propertyName);
+            if (setter == null) {
+                throw new PicoInitializationException("Failed to set property " + propertyName + " to " + entry.getValue()
+                        + ": no setter in " + getComponentImplementation().getName());
+            }
+            bindings[i++] = new PropertyBinding(propertyName, entry.getValue(), setter);
+        }
+        return bindings;
+    }
+
     private Map getSetters(Class clazz) {
         Map result = new HashMap();
         Method[] methods = getMethods(clazz);
@@ -134,34 +156,6 @@ public class BeanPropertyComponentAdapter extends DecoratingComponentAdapter {
                 method.getParameterTypes().length == 1;
     }
 
-
-
-    private Object convertType(PicoContainer container, Method setter, String propertyValue) throws ClassNotFoundException {
-        if (propertyValue == null) {
-            return null;
-        }
-        Class type = setter.getParameterTypes()[0];
-        String typeName = type.getName();
-
-        Object result = convert(typeName, propertyValue, Thread.currentThread().getContextClassLoader());
-
-        if (result == null) {
-
-            // check if the propertyValue is a key of a component in the container
-            // if so, the typeName of the component and the setters parameter typeName
-            // have to be compatible
-
-            // TODO: null check only because of test-case, otherwise null is impossible
-            if (container != null) {
-                Object component = container.getComponentInstance(propertyValue);
-                if (component != null && type.isAssignableFrom(component.getClass())) {
-                    return component;
-                }
-            }
-        }
-        return result;
-    }
-
     /**
      * Converts a String value of a named type to an object.
      * Works with primitive wrappers, String, File, URL types, or any type that has
@@ -174,6 +168,25 @@ public class BeanPropertyComponentAdapter extends DecoratingComponentAdapter {
      * @throws ClassNotFoundException if typeName is "class" or "java.lang.Class" and class couldn't be loaded.
      */
     public static Object convert(String typeName, String value, ClassLoader classLoader) throws ClassNotFoundException {
+        final Object result = convertBuiltInType(typeName, value, classLoader);
+        if (result == null) {
+            final Class clazz = classLoader.loadClass(typeName);
+            final PropertyEditor editor = PropertyEditorManager.findEditor(clazz);
+            if (editor != null) {
+                editor.setAsText(value);
+                return editor.getValue();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts a String value of a named type to an object, if the type is a primitive wrapper,
+     * String, File, URL or Class.
+     *
+     * @return the object or <code>null</code> if the type is no built-in type
+     */
+    private static Object convertBuiltInType(String typeName, String value, ClassLoader classLoader) throws ClassNotFoundException {
         if (typeName.equals(Boolean.class.getName()) || typeName.equals(boolean.class.getName())) {
             return Boolean.valueOf(value);
         } else if (typeName.equals(Byte.class.getName()) || typeName.equals(byte.class.getName())) {
@@ -202,78 +215,106 @@ public class BeanPropertyComponentAdapter extends DecoratingComponentAdapter {
             }
         } else if (typeName.equals(Class.class.getName()) || typeName.equals("class")) {
             return classLoader.loadClass(value);
-        } else {
-            final Class clazz = classLoader.loadClass(typeName);
-            final PropertyEditor editor = PropertyEditorManager.findEditor(clazz);
-            if (editor != null) {
-                editor.setAsText(value);
-                return editor.getValue();
-            }
         }
         return null;
     }
 
     /**
-     * Sets the bean property values that should be set upon creation.
+     * Sets the bean property values that should be set upon creation. The properties are bound to
+     * the setters on the next creation of a component, later modifications of the map are not
+     * recognized.
      *
      * @param properties bean properties
      */
     public void setProperties(Map properties) {
         this.properties = properties;
+        this.propertyBindings = null;
     }
 
     /**
-     * Converts and validates the given property value to an appropriate object
-     * for calling the bean's setter.
-     * @param propertyName String the property name on the component that
-     * we will be setting the value to.
-     * @param propertyValue Object the property value that we've been given. It
-     * may need conversion to be formed into the value we need for the
-     * component instance setter.
-     * @param componentInstance the component that we're looking to provide
-     * the setter to.
-     * @return Object: the final converted object that can
-     * be used in the setter.
+     * The setter of a property and the value to pass. A value is converted once, unless it has to be
+     * converted by a {@link PropertyEditor} or it can only be resolved as key of a component. Such a
+     * value is converted or resolved again for every instance.
      */
-    private Object getSetterParameter(final String propertyName, final Object propertyValue,
-        final Object componentInstance, PicoContainer container) throws PicoInitializationException, ClassCastException {
+    private static final class PropertyBinding {
+        private final String propertyName;
+        private final Object propertyValue;
+        private final Method setter;
+        private final Class setterParameter;
+        private final Object convertedValue;
+        private final PropertyEditor editor;
+        private final boolean componentKey;
 
-        if (propertyValue == null) {
-            return null;
-        }
-
-        Method setter = (Method) setters.get(propertyName);
+        private PropertyBinding(String propertyName, Object propertyValue, Method setter) {
+            this.propertyName = propertyName;
+            this.propertyValue = propertyValue;
+            this.setter = setter;
+            //We can assume that there is only one object (as per typical setters)
+            //because the Setter introspector does that job for us earlier.
+            this.setterParameter = setter.getParameterTypes()[0];
 
-        //We can assume that there is only one object (as per typical setters)
-        //because the Setter introspector does that job for us earlier.
-        Class setterParameter = setter.getParameterTypes()[0];
+            Object value = null;
+            PropertyEditor propertyEditor = null;
+            if (propertyValue != null) {
+                //
+                //If property value is a string or a true primative then convert it to whatever
+                //we need.  (String will convert to string).
+                //
+                try {
+                    value = convertBuiltInType(setterParameter.getName(), propertyValue.toString(), Thread.currentThread().getContextClassLoader());
+                } catch (ClassNotFoundException e) {
+                    throw new PicoInvocationTargetInitializationException(e);
+                }
+                if (value == null) {
+                    propertyEditor = PropertyEditorManager.findEditor(setterParameter);
+                }
+            }
+            this.convertedValue = value;
+            this.editor = propertyEditor;
+            this.componentKey = propertyValue != null && value == null && propertyEditor == null;
+        }
 
-        Object convertedValue = null;
+        /**
+         * Converts and validates the property value to an appropriate object
+         * for calling the bean's setter.
+         *
+         * @param container the container to resolve a component key
+         * @param componentInstance the component that we're looking to provide
+         * the setter to.
+         * @return Object: the final converted object that can
+         * be used in the setter.
+         */
+        private Object getValue(PicoContainer container, Object componentInstance) throws ClassCastException {
+            if (editor != null) {
+                synchronized (editor) {
+                    editor.setAsText(propertyValue.toString());
+                    return editor.getValue();
+                }
+            }
+            if (!componentKey) {
+                return convertedValue;
+            }
 
-        Class givenParameterClass = propertyValue.getClass();
+            // check if the propertyValue is a key of a component in the container
+            // if so, the typeName of the component and the setters parameter typeName
+            // have to be compatible
 
-        //
-        //If property value is a string or a true primative then convert it to whatever
-        //we need.  (String will convert to string).
-        //
-        try {
-            convertedValue = convertType(container, setter, propertyValue.toString());
-        }
-        catch (ClassNotFoundException e) {
-            throw new PicoInvocationTargetInitializationException(e);
-        }
+            // TODO: null check only because of test-case, otherwise null is impossible
+            if (container != null) {
+                Object component = container.getComponentInstance(propertyValue.toString());
+                if (component != null && setterParameter.isAssignableFrom(component.getClass())) {
+                    return component;
+                }
+            }
 
-        //Otherwise, check the parameter type to make sure we can
-        //assign it properly.
-        if (convertedValue == null) {
-            if (setterParameter.isAssignableFrom(givenParameterClass)) {
-                convertedValue = propertyValue;
-            } else {
-                throw new ClassCastException("Setter: " + setter.getName() + " for component: "
-                    + componentInstance.toString() + " can only take objects of: " + setterParameter.getName()
-                    + " instead got: " + givenParameterClass.getName());
+            //Otherwise, check the parameter type to make sure we can
+            //assign it properly.
+            if (setterParameter.isAssignableFrom(propertyValue.getClass())) {
+                return propertyValue;
             }
+            throw new ClassCastException("Setter: " + setter.getName() + " for component: "
+                + componentInstance.toString() + " can only take objects of: " + setterParameter.getName()
+                + " instead got: " + propertyValue.getClass().getName());
         }
-        return convertedValue;
     }
 }
@@ -16,6 +16,9 @@ import org.picocontainer.PicoContainer;
 import org.picocontainer.PicoInitializationException;
 import org.picocontainer.PicoIntrospectionException;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * <p>
  * {@link ComponentAdapter} implementation that caches the component instance.
@@ -27,6 +30,17 @@ import org.picocontainer.PicoIntrospectionException;
  * it can't be started if already started, it can't be started or stopped if disposed, it can't
  * be stopped if not started, it can't be disposed if already disposed.
  * </p>
+ * <p>
+ * By default the adapter does not synchronize the instantiation, concurrent threads may therefore create
+ * multiple instances of the component on first access. If the adapter is constructed to instantiate once,
+ * only one thread at a time instantiates the component and a single instance is created and cached
+ * in the {@link ObjectReference}. Every thread that finds a cached instance returns it without locking,
+ * provided the reference publishes its value safely, like the {@link SimpleReference} does. A reference
+ * that holds a separate value per thread results in a single instance per thread. A thread that would
+ * wait for a component instantiated by a thread, which waits itself for a component of the first thread,
+ * fails with a {@link CyclicDependencyException} instead, like a single thread resolving the same
+ * components.
+ * </p>
  *   
  * @author Mauro Talevi
  * @version $Revision$
@@ -37,14 +51,36 @@ public class CachingComponentAdapter extends DecoratingComponentAdapter implemen
     private boolean disposed;
     private boolean started;
     private boolean delegateHasLifecylce;
+    private final boolean instantiateOnce;
+    // The thread instantiating the component, guarded by the instantiationLock.
+    private transient Thread instantiatingThread;
+
+    // Guards the instantiations of all adapters and the waitingThreads.
+    private static final Object instantiationLock = new Object();
+    // The adapters the threads wait for, used to detect a deadlock.
+    private static final Map waitingThreads = new HashMap();
 
     public CachingComponentAdapter(ComponentAdapter delegate) {
         this(delegate, new SimpleReference());
     }
 
     public CachingComponentAdapter(ComponentAdapter delegate, ObjectReference instanceReference) {
+        this(delegate, instanceReference, false);
+    }
+
+    /**
+     * Construct a CachingComponentAdapter.
+     *
+     * @param delegate the adapter creating the instance to cache
+     * @param instanceReference the reference caching the instance
+     * @param instantiateOnce <code>true</code> if concurrent threads must not create more than one instance
+     *            for the reference
+     * @since 1.4
+     */
+    public CachingComponentAdapter(ComponentAdapter delegate, ObjectReference instanceReference, boolean instantiateOnce) {
         super(delegate);
         this.instanceReference = instanceReference;
+        this.instantiateOnce = instantiateOnce;
         this.disposed = false;
         this.started = false;
         this.delegateHasLifecylce = delegate instanceof LifecycleStrategy
@@ -55,12 +91,90 @@ public class CachingComponentAdapter extends DecoratingComponentAdapter implemen
             throws PicoInitializationException, PicoIntrospectionException, AssignabilityRegistrationException, NotConcreteRegistrationException {
         Object instance = instanceReference.get();
         if (instance == null) {
-            instance = super.getComponentInstance(container);
-            instanceReference.set(instance);
+            if (instantiateOnce) {
+                instance = instantiateOnce(container);
+            } else {
+                instance = super.getComponentInstance(container);
+                instanceReference.set(instance);
+            }
         }
         return instance;
     }
 
+    private Object instantiateOnce(PicoContainer container) {
+        final Thread currentThread = Thread.currentThread();
+        boolean owner = false;
+        synchronized (instantiationLock) {
+            while (true) {
+                final Object instance = instanceReference.get();
+                if (instance != null) {
+                    return instance;
+                }
+                if (instantiatingThread == null) {
+                    instantiatingThread = currentThread;
+                    owner = true;
+                    break;
+                }
+                if (instantiatingThread == currentThread) {
+                    // the delegate detects the cyclic dependency
+                    break;
+                }
+                if (waitsFor(instantiatingThread, currentThread)) {
+                    throw new CyclicDependencyException(getComponentImplementation());
+                }
+                waitingThreads.put(currentThread, this);
+                try {
+                    instantiationLock.wait();
+                } catch (InterruptedException e) {
+                    currentThread.interrupt();
+                    throw new PicoInitializationException("Interrupted waiting for the instantiation of " + getComponentKey(), e);
+                } finally {
+                    waitingThreads.remove(currentThread);
+                }
+            }
+        }
+        try {
+            final Object instance = super.getComponentInstance(container);
+            instanceReference.set(instance);
+            return instance;
+        } finally {
+            if (owner) {
+                synchronized (instantiationLock) {
+                    instantiatingThread = null;
+                    instantiationLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a thread waits directly or indirectly for a component instantiated by another thread.
+     * Must be called with the instantiationLock.
+     */
+    private static boolean waitsFor(Thread thread, Thread otherThread) {
+        // a chain of waiting threads is not longer than the number of waiting threads
+        for (int i = waitingThreads.size(); thread != null && i >= 0; i--) {
+            final CachingComponentAdapter awaited = (CachingComponentAdapter) waitingThreads.get(thread);
+            if (awaited == null) {
+                return false;
+            }
+            thread = awaited.instantiatingThread;
+            if (thread == otherThread) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieve the cached instance without instantiating the component.
+     *
+     * @return the cached instance or <code>null</code>
+     */
+    Object getCachedComponentInstance() {
+        return instanceReference.get();
+    }
+
     /**
      * Flushes the cache.
      * If the component instance is started is will stop and dispose it before
@@ -20,17 +20,33 @@ import org.picocontainer.PicoIntrospectionException;
  * @version $Revision$
  */
 public class CachingComponentAdapterFactory extends DecoratingComponentAdapterFactory {
+    private final boolean instantiateOnce;
+
     public CachingComponentAdapterFactory() {
         this(null);
     }
 
     public CachingComponentAdapterFactory(ComponentAdapterFactory delegate) {
+        this(delegate, false);
+    }
+
+    /**
+     * Construct a CachingComponentAdapterFactory.
+     *
+     * @param delegate the factory creating the adapters to decorate
+     * @param instantiateOnce <code>true</code> if the created {@link CachingComponentAdapter} instances must
+     *            create only a single component, even if accessed concurrently for the first time
+     * @since 1.4
+     */
+    public CachingComponentAdapterFactory(ComponentAdapterFactory delegate, boolean instantiateOnce) {
         super(delegate);
+        this.instantiateOnce = instantiateOnce;
     }
 
     public ComponentAdapter createComponentAdapter(Object componentKey, Class componentImplementation, Parameter[] parameters)
             throws PicoIntrospectionException, AssignabilityRegistrationException, NotConcreteRegistrationException {
-        return new CachingComponentAdapter(super.createComponentAdapter(componentKey, componentImplementation, parameters));
+        return new CachingComponentAdapter(super.createComponentAdapter(componentKey, componentImplementation, parameters),
+                new SimpleReference(), instantiateOnce);
 
     }
 }
@@ -18,6 +18,9 @@ import org.picocontainer.PicoVisitor;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -37,6 +40,19 @@ import java.util.TreeSet;
  * {@link Collection}or {@link Map}of components automatically. The collection will contain
  * all components of a special type and additionally the type of the key may be specified. In
  * case of a map, the map's keys are the one of the component adapter.
+ * <p>
+ * A {@link ConstructorInjectionComponentAdapter} keeps the matching component adapters with the
+ * resolved constructor of its component as long as the {@link ComponentRegistryGeneration
+ * generation} of the container's registry does not change. A subclass that overrides
+ * {@link #evaluate(ComponentAdapter)} or
+ * {@link #getMatchingComponentAdapters(PicoContainer, ComponentAdapter, Class, Class)} must
+ * therefore select the same adapters for an unmodified registry.
+ * </p>
+ * <p>
+ * In the lazy mode a parameter expecting a {@link List}, a {@link Collection} or a {@link Map}
+ * resolves to a read-only view of the matching components, that instantiates a component on the
+ * first access to it and keeps it for further access. All other types are resolved as usual.
+ * </p>
  * 
  * @author Aslak Helles&oslash;y
  * @author J&ouml;rg Schaible
@@ -59,6 +75,7 @@ public class CollectionComponentParameter
     private final boolean emptyCollection;
     private final Class componentKeyType;
     private final Class componentValueType;
+    private final boolean lazy;
 
     /**
      * Expect an {@link Array}of an appropriate type as parameter. At least one component of
@@ -100,9 +117,26 @@ public class CollectionComponentParameter
      *                   dependency.
      */
     public CollectionComponentParameter(Class componentKeyType, Class componentValueType, boolean emptyCollection) {
+        this(componentKeyType, componentValueType, emptyCollection, false);
+    }
+
+    /**
+     * Expect any of the collection types {@link Array},{@link Collection}or {@link Map}as
+     * parameter. In the lazy mode a {@link List}, {@link Collection} or {@link Map} is injected as
+     * read-only view instantiating the components on first access.
+     * 
+     * @param componentKeyType the type of the component's key
+     * @param componentValueType the type of the components (ignored in case of an Array)
+     * @param emptyCollection <code>true</code> if an empty collection resolves the
+     *                   dependency.
+     * @param lazy <code>true</code> to inject a lazy view if possible
+     * @since 1.4
+     */
+    public CollectionComponentParameter(Class componentKeyType, Class componentValueType, boolean emptyCollection, boolean lazy) {
         this.emptyCollection = emptyCollection;
         this.componentKeyType = componentKeyType;
         this.componentValueType = componentValueType;
+        this.lazy = lazy;
     }
 
     /**
@@ -119,11 +153,41 @@ public class CollectionComponentParameter
      */
     public Object resolveInstance(PicoContainer container, ComponentAdapter adapter, Class expectedType) {
         // type check is done in isResolvable
+        final Map adapterMap = resolveAdapters(container, adapter, expectedType);
+        return adapterMap != null ? resolveInstance(container, adapter, expectedType, adapterMap) : null;
+    }
+
+    /**
+     * Collect the matching adapters of a collective type.
+     *
+     * @param container container to use for dependency resolution
+     * @param adapter {@link ComponentAdapter} to exclude
+     * @param expectedType the collective type
+     * @return the adapters by their component keys or <code>null</code> if the expected type is no
+     *         collective type
+     */
+    Map resolveAdapters(PicoContainer container, ComponentAdapter adapter, Class expectedType) {
+        if (getCollectionType(expectedType) == null) {
+            return null;
+        }
+        return getMatchingComponentAdapters(container, adapter, componentKeyType, getValueType(expectedType));
+    }
+
+    /**
+     * Resolve the parameter with the adapters collected for the expected type by
+     * {@link #resolveAdapters(PicoContainer, ComponentAdapter, Class)}.
+     *
+     * @return the instance of the collective type
+     */
+    Object resolveInstance(PicoContainer container, ComponentAdapter adapter, Class expectedType, Map adapterMap) {
         Object result = null;
         final Class collectionType = getCollectionType(expectedType);
         if (collectionType != null) {
-            final Map adapterMap = getMatchingComponentAdapters(container, adapter, componentKeyType, getValueType(expectedType));
-            if (Array.class.isAssignableFrom(collectionType)) {
+            if (lazy && expectedType.isAssignableFrom(LazyComponentList.class)) {
+                result = new LazyComponentList(container, adapterMap);
+            } else if (lazy && expectedType.isAssignableFrom(LazyComponentMap.class)) {
+                result = new LazyComponentMap(container, adapterMap);
+            } else if (Array.class.isAssignableFrom(collectionType)) {
                 result = getArrayInstance(container, expectedType, adapterMap);
             } else if (Map.class.isAssignableFrom(collectionType)) {
                 result = getMapInstance(container, expectedType, adapterMap);
@@ -338,4 +402,125 @@ public class CollectionComponentParameter
         }
     }
 
+    /**
+     * A read-only list of the components of the matching adapters, that instantiates a component on
+     * first access.
+     */
+    private static final class LazyComponentList extends AbstractList {
+        private final PicoContainer container;
+        private final ComponentAdapter[] adapters;
+        private final Object[] instances;
+
+        private LazyComponentList(PicoContainer container, Map adapterMap) {
+            this.container = container;
+            this.adapters = (ComponentAdapter[]) adapterMap.values().toArray(new ComponentAdapter[adapterMap.size()]);
+            this.instances = new Object[adapters.length];
+        }
+
+        public synchronized Object get(int index) {
+            Object instance = instances[index];
+            if (instance == null) {
+                instance = container.getComponentInstance(adapters[index].getComponentKey());
+                instances[index] = instance;
+            }
+            return instance;
+        }
+
+        public int size() {
+            return adapters.length;
+        }
+    }
+
+    /**
+     * A read-only map of the components of the matching adapters by their keys, that instantiates a
+     * component on first access to its value. The keys can be accessed without instantiation.
+     */
+    private static final class LazyComponentMap extends AbstractMap {
+        private final PicoContainer container;
+        private final Map adapterMap;
+        private final Map instances = new HashMap();
+        private Set entrySet;
+
+        private LazyComponentMap(PicoContainer container, Map adapterMap) {
+            this.container = container;
+            this.adapterMap = adapterMap;
+        }
+
+        public synchronized Object get(Object key) {
+            Object instance = instances.get(key);
+            if (instance == null && adapterMap.containsKey(key)) {
+                instance = container.getComponentInstance(key);
+                instances.put(key, instance);
+            }
+            return instance;
+        }
+
+        public boolean containsKey(Object key) {
+            return adapterMap.containsKey(key);
+        }
+
+        public int size() {
+            return adapterMap.size();
+        }
+
+        public Set entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet() {
+                    public Iterator iterator() {
+                        final Iterator keys = adapterMap.keySet().iterator();
+                        return new Iterator() {
+                            public boolean hasNext() {
+                                return keys.hasNext();
+                            }
+
+                            public Object next() {
+                                return new LazyEntry(keys.next());
+                            }
+
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                    }
+
+                    public int size() {
+                        return adapterMap.size();
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        private final class LazyEntry implements Map.Entry {
+            private final Object key;
+
+            private LazyEntry(Object key) {
+                this.key = key;
+            }
+
+            public Object getKey() {
+                return key;
+            }
+
+            public Object getValue() {
+                return get(key);
+            }
+
+            public Object setValue(Object value) {
+                throw new UnsupportedOperationException();
+            }
+
+            public boolean equals(Object object) {
+                if (!(object instanceof Map.Entry)) {
+                    return false;
+                }
+                final Map.Entry entry = (Map.Entry) object;
+                return key.equals(entry.getKey()) && getValue().equals(entry.getValue());
+            }
+
+            public int hashCode() {
+                return key.hashCode() ^ getValue().hashCode();
+            }
+        }
+    }
 }
@@ -0,0 +1,143 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.picocontainer.ComponentAdapter;
+
+/**
+ * Index from every type a component implementation is assignable to, to the
+ * {@link ComponentAdapter ComponentAdapters} registered for it. The index is maintained
+ * incrementally on registration and unregistration, so a lookup by type does not need to scan
+ * all adapters of a container. For each type the adapters are kept in registration order in an
+ * {@link IdentityList}, so even the adapters of a type as common as <code>Object</code> are removed
+ * in constant time.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+class ComponentAdapterTypeIndex implements Serializable {
+
+    private final Map typeToAdapters;
+
+    ComponentAdapterTypeIndex() {
+        typeToAdapters = new HashMap();
+    }
+
+    /**
+     * Construct an independent copy of another index.
+     *
+     * @param index the index to copy
+     */
+    ComponentAdapterTypeIndex(ComponentAdapterTypeIndex index) {
+        typeToAdapters = new HashMap();
+        for (final Iterator iter = index.typeToAdapters.entrySet().iterator(); iter.hasNext();) {
+            final Map.Entry entry = (Map.Entry) iter.next();
+            final List adapters = new IdentityList();
+            adapters.addAll((List) entry.getValue());
+            typeToAdapters.put(entry.getKey(), adapters);
+        }
+    }
+
+    void add(ComponentAdapter componentAdapter) {
+        final Set types = getAssignableTypes(componentAdapter.getComponentImplementation());
+        for (final Iterator iter = types.iterator(); iter.hasNext();) {
+            final Object type = iter.next();
+            List adapters = (List) typeToAdapters.get(type);
+            if (adapters == null) {
+                adapters = new IdentityList();
+                typeToAdapters.put(type, adapters);
+            }
+            adapters.add(componentAdapter);
+        }
+    }
+
+    void remove(ComponentAdapter componentAdapter) {
+        final Set types = getAssignableTypes(componentAdapter.getComponentImplementation());
+        for (final Iterator iter = types.iterator(); iter.hasNext();) {
+            final Object type = iter.next();
+            final List adapters = (List) typeToAdapters.get(type);
+            if (adapters != null) {
+                adapters.remove(componentAdapter);
+                if (adapters.isEmpty()) {
+                    typeToAdapters.remove(type);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieve the adapters with an implementation assignable to the given type.
+     *
+     * @param componentType the type
+     * @return a new modifiable {@link List} of the adapters in registration order
+     */
+    List getComponentAdaptersOfType(Class componentType) {
+        final List adapters = (List) typeToAdapters.get(componentType);
+        return adapters == null ? new ArrayList() : new ArrayList(adapters);
+    }
+
+    /**
+     * Retrieve the adapters with an implementation assignable to the given type without copying them.
+     *
+     * @param componentType the type
+     * @return the indexed {@link List} of the adapters in registration order, that must not be modified
+     */
+    List getIndexedComponentAdaptersOfType(Class componentType) {
+        final List adapters = (List) typeToAdapters.get(componentType);
+        return adapters == null ? Collections.EMPTY_LIST : adapters;
+    }
+
+    /**
+     * Collect all types a value of the given type can be assigned to, i.e. all types <code>t</code> for
+     * which <code>t.isAssignableFrom(type)</code> is <code>true</code>.
+     *
+     * @param type the type
+     * @return a {@link Set} with the assignable types
+     */
+    static Set getAssignableTypes(Class type) {
+        final Set types = new HashSet();
+        collectAssignableTypes(type, types);
+        return types;
+    }
+
+    private static void collectAssignableTypes(Class type, Set types) {
+        if (type == null || !types.add(type)) {
+            return;
+        }
+        if (!type.isPrimitive()) {
+            // interfaces do not report Object as their superclass
+            types.add(Object.class);
+        }
+        collectAssignableTypes(type.getSuperclass(), types);
+        final Class[] interfaces = type.getInterfaces();
+        for (int i = 0; i < interfaces.length; i++) {
+            collectAssignableTypes(interfaces[i], types);
+        }
+        if (type.isArray() && !type.getComponentType().isPrimitive()) {
+            // arrays are covariant
+            final Set componentTypes = getAssignableTypes(type.getComponentType());
+            for (final Iterator iter = componentTypes.iterator(); iter.hasNext();) {
+                final Class componentType = (Class) iter.next();
+                collectAssignableTypes(Array.newInstance(componentType, 0).getClass(), types);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.PicoContainer;
+
+/**
+ * A handle to a component of a container, that can be kept to retrieve the component repeatedly.
+ * The handle resolves the {@link ComponentAdapter} of the key once and remembers the instance, if the
+ * adapter caches it with a {@link CachingComponentAdapter} or an {@link InstanceComponentAdapter}.
+ * Further calls of {@link #get()} return the remembered instance without a lookup in the container.
+ * The handle resolves the key again, as soon as the {@link ComponentRegistryGeneration generation} of
+ * the container's registry changes, and retrieves the instance again, if the cache of the adapter was
+ * flushed. Instances that are not cached are always retrieved from the container.
+ * <p>
+ * If the container does not track the generation of its registry, every call of {@link #get()} is
+ * delegated to {@link PicoContainer#getComponentInstance(Object)}.
+ * </p>
+ * <p>
+ * A handle can be shared between threads.
+ * </p>
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public class ComponentHandle {
+    private final PicoContainer container;
+    private final Object componentKey;
+    private volatile Binding binding;
+
+    /**
+     * Construct a ComponentHandle.
+     *
+     * @param container the container to retrieve the component from
+     * @param componentKey the key of the component
+     */
+    public ComponentHandle(PicoContainer container, Object componentKey) {
+        if (container == null) {
+            throw new NullPointerException("container");
+        }
+        this.container = container;
+        this.componentKey = componentKey;
+    }
+
+    /**
+     * @return the key of the component
+     */
+    public Object getComponentKey() {
+        return componentKey;
+    }
+
+    /**
+     * Retrieve the component instance.
+     *
+     * @return the instance or <code>null</code> if no component is registered with the key
+     * @see PicoContainer#getComponentInstance(Object)
+     */
+    public Object get() {
+        final long generation = container instanceof ComponentRegistryGeneration
+                ? ((ComponentRegistryGeneration) container).getComponentRegistryGeneration()
+                : ComponentRegistryGeneration.UNTRACKED;
+        if (generation == ComponentRegistryGeneration.UNTRACKED) {
+            return container.getComponentInstance(componentKey);
+        }
+        Binding current = binding;
+        if (current == null || current.generation != generation) {
+            final ComponentAdapter componentAdapter = container.getComponentAdapter(componentKey);
+            if (componentAdapter == null) {
+                binding = new Binding(generation, null, null);
+                return null;
+            }
+            current = new Binding(generation, componentAdapter, null);
+        } else if (current.componentAdapter == null) {
+            return null;
+        } else if (current.componentInstance != null
+                && DefaultPicoContainer.getCachedComponentInstance(current.componentAdapter) == current.componentInstance) {
+            return current.componentInstance;
+        }
+        // the container records the instantiation and applies the lifecycle
+        final Object componentInstance = container.getComponentInstance(componentKey);
+        if (componentInstance != null && DefaultPicoContainer.getCachedComponentInstance(current.componentAdapter) == componentInstance) {
+            current = new Binding(generation, current.componentAdapter, componentInstance);
+        }
+        binding = current;
+        return componentInstance;
+    }
+
+    /**
+     * The adapter resolved in a generation of the registry and the instance it caches.
+     */
+    private static final class Binding {
+        private final long generation;
+        private final ComponentAdapter componentAdapter;
+        private final Object componentInstance;
+
+        private Binding(long generation, ComponentAdapter componentAdapter, Object componentInstance) {
+            this.generation = generation;
+            this.componentAdapter = componentAdapter;
+            this.componentInstance = componentInstance;
+        }
+    }
+}
@@ -140,6 +140,15 @@ public class ComponentParameter
         }
     }
 
+    /**
+     * Retrieve the parameter resolving a collective type, if no single component matches.
+     *
+     * @return the parameter or <code>null</code> if only a single component is resolved
+     */
+    CollectionComponentParameter getCollectionParameter() {
+        return collectionParameter instanceof CollectionComponentParameter ? (CollectionComponentParameter) collectionParameter : null;
+    }
+
     /**
      * Accept the visitor for the current {@link Parameter}. If internally a
      * {@link CollectionComponentParameter}is used, it is visited also.
@@ -0,0 +1,36 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+/**
+ * Interface implemented by containers that track the modifications of their component registry.
+ * The generation allows component adapters and parameters to cache the result of a dependency
+ * resolution as long as the set of {@link org.picocontainer.ComponentAdapter ComponentAdapters}
+ * visible through a container does not change.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public interface ComponentRegistryGeneration {
+
+    /**
+     * The generation of a container that cannot track the modifications of its registry.
+     */
+    long UNTRACKED = -1;
+
+    /**
+     * Retrieve the current generation of the component registry. The value changes with every
+     * registration or unregistration of a component in the container itself or in any of its parents.
+     *
+     * @return the generation or {@link #UNTRACKED}, if the container or one of its parents cannot
+     *         track its modifications.
+     */
+    long getComponentRegistryGeneration();
+}
@@ -0,0 +1,56 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.picocontainer.PicoException;
+
+/**
+ * Subclass of {@link PicoException} that is thrown when several lifecycle methods running
+ * concurrently on a {@link LifecycleExecutor} failed. A single failure is rethrown as it is.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public class ConcurrentLifecycleException extends PicoException {
+    private final List failures = new ArrayList();
+
+    /**
+     * Construct a new exception with the failures that caused it.
+     *
+     * @param failures the {@link RuntimeException RuntimeExceptions} and {@link Error Errors}
+     *           thrown by the lifecycle methods
+     */
+    public ConcurrentLifecycleException(List failures) {
+        super((Throwable) failures.get(0));
+        this.failures.addAll(failures);
+    }
+
+    /**
+     * Retrieve the failures that caused this exception.
+     *
+     * @return the list of failures in the order of their occurrence
+     */
+    public List getFailures() {
+        return failures;
+    }
+
+    public String getMessage() {
+        StringBuffer message = new StringBuffer();
+        for (Iterator i = failures.iterator(); i.hasNext();) {
+            Throwable failure = (Throwable) i.next();
+            message.append(failure.getMessage()).append(";  ");
+        }
+        return message.toString();
+    }
+}
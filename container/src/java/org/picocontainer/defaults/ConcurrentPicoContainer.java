@@ -0,0 +1,721 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.ComponentMonitor;
+import org.picocontainer.LifecycleManager;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.Parameter;
+import org.picocontainer.PicoContainer;
+import org.picocontainer.PicoException;
+import org.picocontainer.PicoIntrospectionException;
+import org.picocontainer.PicoVerificationException;
+import org.picocontainer.PicoVisitor;
+import org.picocontainer.monitors.DefaultComponentMonitor;
+
+/**
+ * <p/>
+ * A {@link MutablePicoContainer} that can be used concurrently by multiple threads without external
+ * synchronization. It behaves like the {@link DefaultPicoContainer}, but the component registry is
+ * copied on every registration and unregistration and published as a whole. Lookups never lock and
+ * always see a consistent registry, either the one before or the one after a concurrent
+ * registration. Registrations, the lifecycle methods and the management of the child containers
+ * are serialized by the container's monitor, while the list of instantiated components maintains
+ * its own lock.
+ * </p>
+ * <p/>
+ * The container is optimized for many lookups and few registrations, since every registration costs
+ * a copy of the registry. The container itself does not synchronize the instantiation of a
+ * component. By default it uses a {@link CachingComponentAdapterFactory} that ensures that a cached
+ * component is instantiated only once, when it is accessed concurrently for the first time.
+ * </p>
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public class ConcurrentPicoContainer implements MutablePicoContainer, ComponentMonitorStrategy, ComponentRegistryGeneration, Serializable {
+    private final ComponentAdapterFactory componentAdapterFactory;
+    private final LifecycleStrategy lifecycleStrategyForInstanceRegistrations;
+    private final PicoContainer parent;
+
+    // The registry is never modified after its publication.
+    private volatile Registry registry = new Registry();
+    // Keeps track of instantiation order, guarded by orderedComponentAdaptersLock.
+    private final List orderedComponentAdapters = new ArrayList();
+    // Guards the instantiation order, an array is used since it is serializable.
+    private final Object orderedComponentAdaptersLock = new Object[0];
+    // Guards the instance index of the current registry and its publication.
+    private final Object componentInstanceIndexLock = new Object[0];
+    // The set of child containers is never modified after its publication.
+    private volatile Set children = Collections.EMPTY_SET;
+
+    // Keeps track of the container started status
+    private boolean started = false;
+    // Keeps track of the container disposed status
+    private boolean disposed = false;
+    // Keeps track of child containers started status
+    private Set childrenStarted = new HashSet();
+
+    private final LifecycleManager lifecycleManager = new OrderedComponentAdapterLifecycleManager();
+
+    /**
+     * Creates a new container with a custom ComponentAdapterFactory, LifecycleStrategy for instance registration,
+     * and a parent container.
+     *
+     * @param componentAdapterFactory the factory to use for creation of ComponentAdapters.
+     * @param lifecycleStrategyForInstanceRegistrations the lifecylce strategy chosen for registered
+     *          instance (not implementations!)
+     * @param parent                  the parent container (used for component dependency lookups).
+     */
+    public ConcurrentPicoContainer(ComponentAdapterFactory componentAdapterFactory,
+                                   LifecycleStrategy lifecycleStrategyForInstanceRegistrations,
+                                   PicoContainer parent) {
+        if (componentAdapterFactory == null) throw new NullPointerException("componentAdapterFactory");
+        if (lifecycleStrategyForInstanceRegistrations == null) throw new NullPointerException("lifecycleStrategyForInstanceRegistrations");
+        this.componentAdapterFactory = componentAdapterFactory;
+        this.lifecycleStrategyForInstanceRegistrations = lifecycleStrategyForInstanceRegistrations;
+        this.parent = parent == null ? null : ImmutableDelegatingPicoContainer.newInstance(parent);
+    }
+
+    /**
+     * Creates a new container with a custom ComponentAdapterFactory and a parent container.
+     *
+     * @param componentAdapterFactory the factory to use for creation of ComponentAdapters.
+     * @param parent                  the parent container (used for component dependency lookups).
+     */
+    public ConcurrentPicoContainer(ComponentAdapterFactory componentAdapterFactory, PicoContainer parent) {
+        this(componentAdapterFactory, new DefaultLifecycleStrategy(new DefaultComponentMonitor()), parent);
+    }
+
+    /**
+     * Creates a new container with a custom ComponentAdapterFactory and no parent container.
+     *
+     * @param componentAdapterFactory the ComponentAdapterFactory to use.
+     */
+    public ConcurrentPicoContainer(ComponentAdapterFactory componentAdapterFactory) {
+        this(componentAdapterFactory, null);
+    }
+
+    /**
+     * Creates a new container with a {@link CachingComponentAdapterFactory} instantiating the components once
+     * and a parent container.
+     *
+     * @param parent the parent container (used for component dependency lookups).
+     */
+    public ConcurrentPicoContainer(PicoContainer parent) {
+        this(new CachingComponentAdapterFactory(new ConstructorInjectionComponentAdapterFactory(), true), parent);
+    }
+
+    /**
+     * Creates a new container with a {@link CachingComponentAdapterFactory} instantiating the components once
+     * and no parent container.
+     */
+    public ConcurrentPicoContainer() {
+        this((PicoContainer) null);
+    }
+
+    public Collection getComponentAdapters() {
+        return Collections.unmodifiableList(registry.componentAdapters);
+    }
+
+    public final ComponentAdapter getComponentAdapter(Object componentKey) {
+        ComponentAdapter adapter = (ComponentAdapter) registry.componentKeyToAdapter.get(componentKey);
+        if (adapter == null && parent != null) {
+            adapter = parent.getComponentAdapter(componentKey);
+        }
+        return adapter;
+    }
+
+    public ComponentAdapter getComponentAdapterOfType(Class componentType) {
+        ComponentAdapter adapterByKey = getComponentAdapter(componentType);
+        if (adapterByKey != null) {
+            return adapterByKey;
+        }
+
+        List found = getComponentAdaptersOfType(componentType);
+
+        if (found.size() == 1) {
+            return ((ComponentAdapter) found.get(0));
+        } else if (found.size() == 0) {
+            if (parent != null) {
+                return parent.getComponentAdapterOfType(componentType);
+            } else {
+                return null;
+            }
+        } else {
+            Class[] foundClasses = new Class[found.size()];
+            for (int i = 0; i < foundClasses.length; i++) {
+                foundClasses[i] = ((ComponentAdapter) found.get(i)).getComponentImplementation();
+            }
+
+            throw new AmbiguousComponentResolutionException(componentType, foundClasses);
+        }
+    }
+
+    public List getComponentAdaptersOfType(Class componentType) {
+        if (componentType == null) {
+            return Collections.EMPTY_LIST;
+        }
+        return registry.componentAdapterTypeIndex.getComponentAdaptersOfType(componentType);
+    }
+
+    /**
+     * {@inheritDoc}
+     * This method can be used to override the ComponentAdapter created by the {@link ComponentAdapterFactory}
+     * passed to the constructor of this container.
+     */
+    public synchronized ComponentAdapter registerComponent(ComponentAdapter componentAdapter) {
+        Object componentKey = componentAdapter.getComponentKey();
+        if (registry.componentKeyToAdapter.containsKey(componentKey)) {
+            throw new DuplicateComponentKeyRegistrationException(componentKey);
+        }
+        synchronized (componentInstanceIndexLock) {
+            registry = registry.add(componentAdapter);
+        }
+        if (DefaultPicoContainer.getCachingComponentAdapter(componentAdapter) instanceof InstanceComponentAdapter) {
+            indexComponentInstance(componentAdapter, registry.getRecord(componentAdapter), componentAdapter.getComponentInstance(this));
+        }
+        return componentAdapter;
+    }
+
+    public synchronized ComponentAdapter unregisterComponent(Object componentKey) {
+        ComponentAdapter adapter = (ComponentAdapter) registry.componentKeyToAdapter.get(componentKey);
+        if (adapter == null) {
+            return null;
+        }
+        final Record record = registry.getRecord(adapter);
+        synchronized (componentInstanceIndexLock) {
+            registry = registry.remove(adapter);
+        }
+        synchronized (orderedComponentAdaptersLock) {
+            if (record.ordered) {
+                orderedComponentAdapters.remove(adapter);
+                record.ordered = false;
+            }
+        }
+        return adapter;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The returned ComponentAdapter will be an {@link InstanceComponentAdapter}.
+     */
+    public ComponentAdapter registerComponentInstance(Object component) {
+        return registerComponentInstance(component.getClass(), component);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The returned ComponentAdapter will be an {@link InstanceComponentAdapter}.
+     */
+    public ComponentAdapter registerComponentInstance(Object componentKey, Object componentInstance) {
+        ComponentAdapter componentAdapter = new InstanceComponentAdapter(componentKey, componentInstance, lifecycleStrategyForInstanceRegistrations);
+        return registerComponent(componentAdapter);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The returned ComponentAdapter will be instantiated by the {@link ComponentAdapterFactory}
+     * passed to the container's constructor.
+     */
+    public ComponentAdapter registerComponentImplementation(Class componentImplementation) {
+        return registerComponentImplementation(componentImplementation, componentImplementation);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The returned ComponentAdapter will be instantiated by the {@link ComponentAdapterFactory}
+     * passed to the container's constructor.
+     */
+    public ComponentAdapter registerComponentImplementation(Object componentKey, Class componentImplementation) {
+        return registerComponentImplementation(componentKey, componentImplementation, (Parameter[]) null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The returned ComponentAdapter will be instantiated by the {@link ComponentAdapterFactory}
+     * passed to the container's constructor.
+     */
+    public ComponentAdapter registerComponentImplementation(Object componentKey, Class componentImplementation, Parameter[] parameters) {
+        ComponentAdapter componentAdapter = componentAdapterFactory.createComponentAdapter(componentKey, componentImplementation, parameters);
+        return registerComponent(componentAdapter);
+    }
+
+    private void addOrderedComponentAdapter(ComponentAdapter componentAdapter) {
+        final Record record = registry.getRecord(componentAdapter);
+        if (record != null && !record.ordered) {
+            addOrderedComponentAdapter(componentAdapter, record);
+        }
+    }
+
+    private void addOrderedComponentAdapter(ComponentAdapter componentAdapter, Record record) {
+        synchronized (orderedComponentAdaptersLock) {
+            // the adapter may have been unregistered or added concurrently
+            if (!record.ordered && registry.getRecord(componentAdapter) == record) {
+                orderedComponentAdapters.add(componentAdapter);
+                record.ordered = true;
+            }
+        }
+    }
+
+    private List getOrderedComponentAdapters() {
+        synchronized (orderedComponentAdaptersLock) {
+            return new ArrayList(orderedComponentAdapters);
+        }
+    }
+
+    public List getComponentInstances() throws PicoException {
+        return getComponentInstancesOfType(Object.class);
+    }
+
+    public List getComponentInstancesOfType(Class componentType) {
+        if (componentType == null) {
+            return Collections.EMPTY_LIST;
+        }
+
+        Map adapterToInstanceMap = new HashMap();
+        for (Iterator iterator = getComponentAdaptersOfType(componentType).iterator(); iterator.hasNext();) {
+            ComponentAdapter componentAdapter = (ComponentAdapter) iterator.next();
+            Object componentInstance = getInstance(componentAdapter);
+            adapterToInstanceMap.put(componentAdapter, componentInstance);
+
+            // This is to ensure all are added. (Indirect dependencies will be added
+            // from InstantiatingComponentAdapter).
+            addOrderedComponentAdapter(componentAdapter);
+        }
+        List result = new ArrayList();
+        for (Iterator iterator = getOrderedComponentAdapters().iterator(); iterator.hasNext();) {
+            Object componentAdapter = iterator.next();
+            final Object componentInstance = adapterToInstanceMap.get(componentAdapter);
+            if (componentInstance != null) {
+                // may be null in the case of the "implicit" adapter
+                // representing "this".
+                result.add(componentInstance);
+            }
+        }
+        return result;
+    }
+
+    public Object getComponentInstance(Object componentKey) {
+        ComponentAdapter componentAdapter = getComponentAdapter(componentKey);
+        if (componentAdapter != null) {
+            return getInstance(componentAdapter);
+        } else {
+            return null;
+        }
+    }
+
+    public Object getComponentInstanceOfType(Class componentType) {
+        final ComponentAdapter componentAdapter = getComponentAdapterOfType(componentType);
+        return componentAdapter == null ? null : getInstance(componentAdapter);
+    }
+
+    /**
+     * Create a handle to retrieve a component of this container repeatedly. The handle skips the lookup
+     * of a cached component as long as the registry of this container and its parents is not modified.
+     *
+     * @param componentKey the key of the component
+     * @return the handle
+     * @since 1.4
+     */
+    public ComponentHandle getComponentHandle(Object componentKey) {
+        return new ComponentHandle(this, componentKey);
+    }
+
+    private Object getInstance(ComponentAdapter componentAdapter) {
+        // check wether this is our adapter
+        // we need to check this to ensure up-down dependencies cannot be followed
+        final Record record = registry.getRecord(componentAdapter);
+        if (record != null) {
+            Object instance = null;
+            try {
+                instance = componentAdapter.getComponentInstance(this);
+            } catch (CyclicDependencyException e) {
+                if (parent != null) {
+                    instance = parent.getComponentInstance(componentAdapter.getComponentKey());
+                    if( instance != null ) {
+                        return instance;
+                    }
+                }
+                throw e;
+            }
+            if (!record.ordered) {
+                addOrderedComponentAdapter(componentAdapter, record);
+            }
+            if (record.instance != instance) {
+                indexComponentInstance(componentAdapter, record, instance);
+            }
+
+            return instance;
+        } else if (parent != null) {
+            return parent.getComponentInstance(componentAdapter.getComponentKey());
+        }
+
+        return null;
+    }
+
+    public PicoContainer getParent() {
+        return parent;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The generation is the sum of the modifications of this container and all its parents.
+     */
+    public long getComponentRegistryGeneration() {
+        long generation = registry.modificationCount;
+        if (parent != null) {
+            if (!(parent instanceof ComponentRegistryGeneration)) {
+                return UNTRACKED;
+            }
+            final long parentGeneration = ((ComponentRegistryGeneration) parent).getComponentRegistryGeneration();
+            if (parentGeneration == UNTRACKED) {
+                return UNTRACKED;
+            }
+            generation += parentGeneration;
+        }
+        return generation;
+    }
+
+    public ComponentAdapter unregisterComponentByInstance(Object componentInstance) {
+        final ComponentAdapter componentAdapter;
+        synchronized (componentInstanceIndexLock) {
+            componentAdapter = (ComponentAdapter) registry.componentInstances.get(componentInstance);
+        }
+        if (componentAdapter == null) {
+            return null;
+        }
+        return unregisterComponent(componentAdapter.getComponentKey());
+    }
+
+    /**
+     * Index the instance of an adapter that caches it, so the component can be unregistered by its
+     * instance. A new instance replaces the one indexed before, e.g. after the cache is flushed.
+     */
+    private void indexComponentInstance(ComponentAdapter componentAdapter, Record record, Object componentInstance) {
+        if (componentInstance == null || DefaultPicoContainer.getCachingComponentAdapter(componentAdapter) == null) {
+            return;
+        }
+        synchronized (componentInstanceIndexLock) {
+            final Registry current = registry;
+            // the adapter may have been unregistered meanwhile
+            if (current.getRecord(componentAdapter) == record) {
+                final Object previous = record.instance;
+                if (previous != null && current.componentInstances.get(previous) == componentAdapter) {
+                    current.componentInstances.remove(previous);
+                }
+                current.componentInstances.put(componentInstance, componentAdapter);
+                record.instance = componentInstance;
+            }
+        }
+    }
+
+    /**
+     * @deprecated since 1.1 - Use "new VerifyingVisitor().traverse(this)"
+     */
+    public void verify() throws PicoVerificationException {
+        new VerifyingVisitor().traverse(this);
+    }
+
+    /**
+     * Start the components of this PicoContainer and all its logical child containers.
+     * The starting of the child container is only attempted if the parent
+     * container start successfully.
+     *
+     * @see DefaultPicoContainer#start()
+     */
+    public synchronized void start() {
+        if (disposed) throw new IllegalStateException("Already disposed");
+        if (started) throw new IllegalStateException("Already started");
+        started = true;
+        this.lifecycleManager.start(this);
+        childrenStarted.clear();
+        for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+            PicoContainer child = (PicoContainer) iterator.next();
+            childrenStarted.add(new Integer(child.hashCode()));
+            child.start();
+        }
+    }
+
+    /**
+     * Stop the components of this PicoContainer and all its logical child containers.
+     * The stopping of the child containers is only attempted for those that have been
+     * started, possibly not successfully.
+     *
+     * @see DefaultPicoContainer#stop()
+     */
+    public synchronized void stop() {
+        if (disposed) throw new IllegalStateException("Already disposed");
+        if (!started) throw new IllegalStateException("Not started");
+        for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+            PicoContainer child = (PicoContainer) iterator.next();
+            if (childrenStarted.contains(new Integer(child.hashCode()))) {
+                child.stop();
+            }
+        }
+        this.lifecycleManager.stop(this);
+        started = false;
+    }
+
+    /**
+     * Dispose the components of this PicoContainer and all its logical child containers.
+     *
+     * @see DefaultPicoContainer#dispose()
+     */
+    public synchronized void dispose() {
+        if (disposed) throw new IllegalStateException("Already disposed");
+        for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+            PicoContainer child = (PicoContainer) iterator.next();
+            child.dispose();
+        }
+        this.lifecycleManager.dispose(this);
+        disposed = true;
+    }
+
+    public MutablePicoContainer makeChildContainer() {
+        ConcurrentPicoContainer pc = new ConcurrentPicoContainer(componentAdapterFactory,
+                                                                 lifecycleStrategyForInstanceRegistrations,
+                                                                 this);
+        addChildContainer(pc);
+        return pc;
+    }
+
+    public synchronized boolean addChildContainer(PicoContainer child) {
+        if (children.contains(child)) {
+            return false;
+        }
+        final Set newChildren = new HashSet(children);
+        newChildren.add(child);
+        children = newChildren;
+        // @todo Should only be added if child container has also be started
+        if (started) {
+            childrenStarted.add(new Integer(child.hashCode()));
+        }
+        return true;
+    }
+
+    public synchronized boolean removeChildContainer(PicoContainer child) {
+        boolean result = false;
+        if (children.contains(child)) {
+            final Set newChildren = new HashSet(children);
+            result = newChildren.remove(child);
+            children = newChildren;
+        }
+        childrenStarted.remove(new Integer(child.hashCode()));
+        return result;
+    }
+
+    public void accept(PicoVisitor visitor) {
+        visitor.visitContainer(this);
+        for (Iterator iterator = registry.componentAdapters.iterator(); iterator.hasNext();) {
+            ComponentAdapter componentAdapter = (ComponentAdapter) iterator.next();
+            componentAdapter.accept(visitor);
+        }
+        for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+            PicoContainer child = (PicoContainer) iterator.next();
+            child.accept(visitor);
+        }
+    }
+
+    /**
+     * Changes monitor in the ComponentAdapterFactory, the component adapters
+     * and the child containers, if these support a ComponentMonitorStrategy.
+     * {@inheritDoc}
+     */
+    public void changeMonitor(ComponentMonitor monitor) {
+        if (componentAdapterFactory instanceof ComponentMonitorStrategy) {
+            ((ComponentMonitorStrategy) componentAdapterFactory).changeMonitor(monitor);
+        }
+        for (Iterator i = registry.componentAdapters.iterator(); i.hasNext();) {
+            Object adapter = i.next();
+            if (adapter instanceof ComponentMonitorStrategy) {
+                ((ComponentMonitorStrategy) adapter).changeMonitor(monitor);
+            }
+        }
+        for (Iterator i = children.iterator(); i.hasNext();) {
+            Object child = i.next();
+            if (child instanceof ComponentMonitorStrategy) {
+                ((ComponentMonitorStrategy) child).changeMonitor(monitor);
+            }
+        }
+    }
+
+    /**
+     * Returns the first current monitor found in the ComponentAdapterFactory, the component adapters
+     * and the child containers, if these support a ComponentMonitorStrategy.
+     * {@inheritDoc}
+     * @throws PicoIntrospectionException if no component monitor is found in container or its children
+     */
+    public ComponentMonitor currentMonitor() {
+        if (componentAdapterFactory instanceof ComponentMonitorStrategy) {
+            return ((ComponentMonitorStrategy) componentAdapterFactory).currentMonitor();
+        }
+        for (Iterator i = registry.componentAdapters.iterator(); i.hasNext();) {
+            Object adapter = i.next();
+            if (adapter instanceof ComponentMonitorStrategy) {
+                return ((ComponentMonitorStrategy) adapter).currentMonitor();
+            }
+        }
+        for (Iterator i = children.iterator(); i.hasNext();) {
+            Object child = i.next();
+            if (child instanceof ComponentMonitorStrategy) {
+                return ((ComponentMonitorStrategy) child).currentMonitor();
+            }
+        }
+        throw new PicoIntrospectionException("No component monitor found in container or its children");
+    }
+
+    /**
+     * An immutable snapshot of the registered component adapters. Every modification creates a new copy.
+     * The records of the adapters are shared by the copies.
+     */
+    private static final class Registry implements Serializable {
+        private final Map componentKeyToAdapter;
+        private final List componentAdapters;
+        private final ComponentAdapterTypeIndex componentAdapterTypeIndex;
+        private final IdentityMap records;
+        // the adapters by their indexed instances, modified with the lock of the instance index
+        private final IdentityMap componentInstances;
+        private final long modificationCount;
+
+        private Registry() {
+            this(new HashMap(), new ArrayList(), new ComponentAdapterTypeIndex(), new IdentityMap(), new IdentityMap(), 0);
+        }
+
+        private Registry(Map componentKeyToAdapter, List componentAdapters, ComponentAdapterTypeIndex componentAdapterTypeIndex,
+                IdentityMap records, IdentityMap componentInstances, long modificationCount) {
+            this.componentKeyToAdapter = componentKeyToAdapter;
+            this.componentAdapters = componentAdapters;
+            this.componentAdapterTypeIndex = componentAdapterTypeIndex;
+            this.records = records;
+            this.componentInstances = componentInstances;
+            this.modificationCount = modificationCount;
+        }
+
+        /**
+         * Retrieve the record of a registered adapter.
+         *
+         * @return the record or <code>null</code> if the adapter is not registered in this container
+         */
+        private Record getRecord(ComponentAdapter componentAdapter) {
+            return (Record) records.get(componentAdapter);
+        }
+
+        private Registry add(ComponentAdapter componentAdapter) {
+            final Registry registry = new Registry(new HashMap(componentKeyToAdapter), new ArrayList(componentAdapters),
+                    new ComponentAdapterTypeIndex(componentAdapterTypeIndex), new IdentityMap(records),
+                    new IdentityMap(componentInstances), modificationCount + 1);
+            registry.componentKeyToAdapter.put(componentAdapter.getComponentKey(), componentAdapter);
+            registry.componentAdapters.add(componentAdapter);
+            registry.componentAdapterTypeIndex.add(componentAdapter);
+            registry.records.put(componentAdapter, new Record());
+            return registry;
+        }
+
+        private Registry remove(ComponentAdapter componentAdapter) {
+            final Registry registry = new Registry(new HashMap(componentKeyToAdapter), new ArrayList(componentAdapters),
+                    new ComponentAdapterTypeIndex(componentAdapterTypeIndex), new IdentityMap(records),
+                    new IdentityMap(componentInstances), modificationCount + 1);
+            registry.componentKeyToAdapter.remove(componentAdapter.getComponentKey());
+            registry.componentAdapters.remove(componentAdapter);
+            registry.componentAdapterTypeIndex.remove(componentAdapter);
+            final Record record = (Record) registry.records.remove(componentAdapter);
+            if (record.instance != null && registry.componentInstances.get(record.instance) == componentAdapter) {
+                registry.componentInstances.remove(record.instance);
+            }
+            return registry;
+        }
+    }
+
+    /**
+     * The state of a registered adapter. Once the adapter is part of the instantiation order, a lookup
+     * does not have to take the lock of the order anymore. Once its current instance is indexed, a lookup
+     * does not have to take the lock of the instance index anymore.
+     */
+    private static final class Record implements Serializable {
+        // written with the lock of the instantiation order
+        private volatile boolean ordered;
+        // written with the lock of the instance index
+        private volatile Object instance;
+    }
+
+    /**
+     * Lifecycle manager delegating to the component adapters in the order of their instantiation.
+     *
+     * @see DefaultPicoContainer
+     */
+    private class OrderedComponentAdapterLifecycleManager implements LifecycleManager, Serializable {
+
+        /** List collecting the CAs which have been successfully started */
+        private List startedComponentAdapters = new ArrayList();
+
+        public void start(PicoContainer node) {
+            for (final Iterator iter = registry.componentAdapters.iterator(); iter.hasNext();) {
+                final ComponentAdapter adapter = (ComponentAdapter)iter.next();
+                if ( adapter instanceof LifecycleManager ){
+                    LifecycleManager manager = (LifecycleManager)adapter;
+                    if (manager.hasLifecycle()) {
+                        // create an instance, it will be added to the ordered CA list
+                        adapter.getComponentInstance(node);
+                        addOrderedComponentAdapter(adapter);
+                    }
+                }
+            }
+            // clear list of started CAs
+            startedComponentAdapters.clear();
+            for (final Iterator iter = getOrderedComponentAdapters().iterator(); iter.hasNext();) {
+                final Object adapter = iter.next();
+                if ( adapter instanceof LifecycleManager ){
+                    LifecycleManager manager = (LifecycleManager)adapter;
+                    manager.start(node);
+                    startedComponentAdapters.add(adapter);
+                }
+            }
+        }
+
+        public void stop(PicoContainer node) {
+            List adapters = startedComponentAdapters;
+            for (int i = adapters.size() - 1; 0 <= i; i--) {
+                Object adapter = adapters.get(i);
+                if ( adapter instanceof LifecycleManager ){
+                    LifecycleManager manager = (LifecycleManager)adapter;
+                    manager.stop(node);
+                }
+            }
+        }
+
+        public void dispose(PicoContainer node) {
+            List adapters = getOrderedComponentAdapters();
+            for (int i = adapters.size() - 1; 0 <= i; i--) {
+                Object adapter = adapters.get(i);
+                if ( adapter instanceof LifecycleManager ){
+                    LifecycleManager manager = (LifecycleManager)adapter;
+                    manager.dispose(node);
+                }
+            }
+        }
+
+        public boolean hasLifecycle() {
+            throw new UnsupportedOperationException("Should not have been called");
+        }
+    }
+}
@@ -10,6 +10,7 @@
 
 package org.picocontainer.defaults;
 
+import org.picocontainer.ComponentAdapter;
 import org.picocontainer.ComponentMonitor;
 import org.picocontainer.Parameter;
 import org.picocontainer.PicoContainer;
@@ -27,6 +28,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -46,15 +48,10 @@ import java.util.Set;
  */
 public class ConstructorInjectionComponentAdapter extends InstantiatingComponentAdapter {
     private transient List sortedMatchingConstructors;
-    private transient Guard instantiationGuard;
-
-    private static abstract class Guard extends ThreadLocalCyclicDependencyGuard {
-        protected PicoContainer guardedContainer;
-
-        private void setArguments(PicoContainer container) {
-            this.guardedContainer = container;
-        }
-    }
+    private transient ResolutionGuard instantiationGuard;
+    private transient volatile ResolutionPlan resolutionPlan;
+    // the arguments are resolved by getConstructorArguments, if a subclass overrides it
+    private final boolean customConstructorArguments = overridesConstructorArguments(getClass());
 
     /**
      * Creates a ConstructorInjectionComponentAdapter
@@ -203,18 +200,22 @@ public class ConstructorInjectionComponentAdapter extends InstantiatingComponent
 
     public Object getComponentInstance(PicoContainer container) throws PicoInitializationException, PicoIntrospectionException, AssignabilityRegistrationException, NotConcreteRegistrationException {
         if (instantiationGuard == null) {
-            instantiationGuard = new Guard() {
-                public Object run() {
-                    final Constructor constructor;
+            instantiationGuard = new ResolutionGuard() {
+                public Object run(PicoContainer guardedContainer) {
+                    final ResolutionPlan plan;
                     try {
-                        constructor = getGreediestSatisfiableConstructor(guardedContainer);
+                        plan = getResolutionPlan(guardedContainer);
                     } catch (AmbiguousComponentResolutionException e) {
                         e.setComponent(getComponentImplementation());
                         throw e;
                     }
+                    final Constructor constructor = plan.constructor;
                     ComponentMonitor componentMonitor = currentMonitor();
                     try {
-                        Object[] parameters = getConstructorArguments(guardedContainer, constructor);
+                        // only a cached plan knows the target adapters of the current registry
+                        Object[] parameters = plan == resolutionPlan && !customConstructorArguments
+                                ? plan.getArguments(guardedContainer, ConstructorInjectionComponentAdapter.this)
+                                : getConstructorArguments(guardedContainer, constructor);
                         componentMonitor.instantiating(constructor);
                         long startTime = System.currentTimeMillis();
                         Object inst = newInstance(constructor, parameters);
@@ -244,10 +245,93 @@ public class ConstructorInjectionComponentAdapter extends InstantiatingComponent
                 }
             };
         }
-        instantiationGuard.setArguments(container);
-        return instantiationGuard.observe(getComponentImplementation());
+        return instantiationGuard.observe(getComponentImplementation(), container);
+    }
+
+    /**
+     * Retrieve the plan to instantiate the component. A plan is reused as long as the generation of
+     * the container's component registry does not change and all parameters are resolved by the
+     * standard {@link Parameter} implementations. Otherwise the constructor is selected again.
+     *
+     * @param container the container to resolve the dependencies
+     * @return the plan
+     */
+    private ResolutionPlan getResolutionPlan(PicoContainer container) {
+        final long generation = container instanceof ComponentRegistryGeneration
+                ? ((ComponentRegistryGeneration) container).getComponentRegistryGeneration()
+                : ComponentRegistryGeneration.UNTRACKED;
+        ResolutionPlan plan = resolutionPlan;
+        if (plan != null && plan.container == container && plan.generation == generation) {
+            return plan;
+        }
+        final boolean cached = generation != ComponentRegistryGeneration.UNTRACKED && hasStableParameters();
+        plan = compileResolutionPlan(container, generation, cached && !customConstructorArguments);
+        if (cached) {
+            resolutionPlan = plan;
+        }
+        return plan;
+    }
+
+    private ResolutionPlan compileResolutionPlan(PicoContainer container, long generation, boolean collectAdapters) {
+        final Constructor constructor = getGreediestSatisfiableConstructor(container);
+        final Class[] parameterTypes = constructor.getParameterTypes();
+        final Parameter[] currentParameters = parameters != null ? parameters : createDefaultParameters(parameterTypes);
+        final ComponentAdapter[] targetAdapters = new ComponentAdapter[currentParameters.length];
+        final CollectionComponentParameter[] collectionParameters = new CollectionComponentParameter[currentParameters.length];
+        final Map[] collectedAdapters = new Map[currentParameters.length];
+        for (int i = 0; i < currentParameters.length; i++) {
+            final Class parameterClass = currentParameters[i].getClass();
+            if (parameterClass == ComponentParameter.class || parameterClass == BasicComponentParameter.class) {
+                // a null adapter means the ComponentParameter resolves a collection
+                targetAdapters[i] = ((BasicComponentParameter) currentParameters[i]).resolveAdapter(container, this, parameterTypes[i]);
+                if (targetAdapters[i] == null && parameterClass == ComponentParameter.class) {
+                    collectionParameters[i] = ((ComponentParameter) currentParameters[i]).getCollectionParameter();
+                }
+            } else if (currentParameters[i] instanceof CollectionComponentParameter) {
+                collectionParameters[i] = (CollectionComponentParameter) currentParameters[i];
+            }
+            if (collectAdapters && collectionParameters[i] != null) {
+                // the matching adapters are kept with the plan and not with the shared parameter
+                collectedAdapters[i] = collectionParameters[i].resolveAdapters(container, this, parameterTypes[i]);
+            }
+        }
+        return new ResolutionPlan(container, generation, constructor, currentParameters, targetAdapters, collectionParameters, collectedAdapters);
+    }
+
+    /**
+     * Retrieve the adapters of the components passed to the constructor, as resolved by the
+     * resolution plan for the container.
+     *
+     * @param container the container to resolve the dependencies
+     * @return the adapters or <code>null</code> if the dependencies are not known, because a
+     *         parameter is not resolved by a single adapter or cannot be resolved at all
+     */
+    ComponentAdapter[] getConstructorDependencies(PicoContainer container) {
+        final ResolutionPlan plan;
+        try {
+            plan = getResolutionPlan(container);
+        } catch (PicoIntrospectionException e) {
+            return null;
+        }
+        final List dependencies = new ArrayList();
+        for (int i = 0; i < plan.parameters.length; i++) {
+            if (plan.targetAdapters[i] != null) {
+                dependencies.add(plan.targetAdapters[i]);
+            } else if (!(plan.parameters[i] instanceof ConstantParameter)) {
+                return null;
+            }
+        }
+        return (ComponentAdapter[]) dependencies.toArray(new ComponentAdapter[dependencies.size()]);
     }
 
+    /**
+     * Resolve the arguments for the constructor. Note that a component instantiated with a cached resolution plan
+     * does not call this method, unless a subclass overrides it.
+     *
+     * @param container the container to resolve the dependencies
+     * @param ctor the constructor
+     * @return the arguments
+     */
     protected Object[] getConstructorArguments(PicoContainer container, Constructor ctor) {
         Class[] parameterTypes = ctor.getParameterTypes();
         Object[] result = new Object[parameterTypes.length];
@@ -259,6 +343,21 @@ public class ConstructorInjectionComponentAdapter extends InstantiatingComponent
         return result;
     }
 
+    private static boolean overridesConstructorArguments(Class type) {
+        for (; type != ConstructorInjectionComponentAdapter.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("getConstructorArguments", new Class[]{PicoContainer.class, Constructor.class});
+                return true;
+            } catch (NoSuchMethodException e) {
+                // continue with the superclass
+            } catch (SecurityException e) {
+                // assume the worst
+                return true;
+            }
+        }
+        return false;
+    }
+
     private List getSortedMatchingConstructors() {
         List matchingConstructors = new ArrayList();
         Constructor[] allConstructors = getConstructors();
@@ -280,6 +379,48 @@ public class ConstructorInjectionComponentAdapter extends InstantiatingComponent
         return matchingConstructors;
     }
 
+    /**
+     * The constructor selected for a container in a specific generation of its registry
+     * together with the adapters of the components to pass as arguments and the adapters
+     * collected for a collective type.
+     */
+    private static final class ResolutionPlan {
+        private final PicoContainer container;
+        private final long generation;
+        private final Constructor constructor;
+        private final Class[] parameterTypes;
+        private final Parameter[] parameters;
+        private final ComponentAdapter[] targetAdapters;
+        private final CollectionComponentParameter[] collectionParameters;
+        private final Map[] collectedAdapters;
+
+        private ResolutionPlan(PicoContainer container, long generation, Constructor constructor, Parameter[] parameters,
+                ComponentAdapter[] targetAdapters, CollectionComponentParameter[] collectionParameters, Map[] collectedAdapters) {
+            this.container = container;
+            this.generation = generation;
+            this.constructor = constructor;
+            this.parameterTypes = constructor.getParameterTypes();
+            this.parameters = parameters;
+            this.targetAdapters = targetAdapters;
+            this.collectionParameters = collectionParameters;
+            this.collectedAdapters = collectedAdapters;
+        }
+
+        private Object[] getArguments(PicoContainer container, ComponentAdapter adapter) {
+            final Object[] result = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                if (targetAdapters[i] != null) {
+                    result[i] = container.getComponentInstance(targetAdapters[i].getComponentKey());
+                } else if (collectedAdapters[i] != null) {
+                    result[i] = collectionParameters[i].resolveInstance(container, adapter, parameterTypes[i], collectedAdapters[i]);
+                } else {
+                    result[i] = parameters[i].resolveInstance(container, adapter, parameterTypes[i]);
+                }
+            }
+            return result;
+        }
+    }
+
     private Constructor[] getConstructors() {
         return (Constructor[]) AccessController.doPrivileged(new PrivilegedAction() {
             public Object run() {
@@ -11,12 +11,14 @@ package org.picocontainer.defaults;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -63,25 +65,47 @@ import org.picocontainer.monitors.DefaultComponentMonitor;
  * @author Mauro Talevi
  * @version $Revision: 1.8 $
  */
-public class DefaultPicoContainer implements MutablePicoContainer, ComponentMonitorStrategy, Serializable {
+public class DefaultPicoContainer implements MutablePicoContainer, ComponentMonitorStrategy, ComponentRegistryGeneration, Serializable {
     private Map componentKeyToAdapterCache = new HashMap();
     private ComponentAdapterFactory componentAdapterFactory;
     private PicoContainer parent;
     private Set children = new HashSet();
 
-    private List componentAdapters = new ArrayList();
-    // Keeps track of instantiation order.
-    private List orderedComponentAdapters = new ArrayList();
+    // The registered adapters, indexed by identity for constant time locality checks and removal.
+    private List componentAdapters = new IdentityList();
+    // Keeps track of the adapters of every type the components can be assigned to.
+    private ComponentAdapterTypeIndex componentAdapterTypeIndex = new ComponentAdapterTypeIndex();
+    // Counts the registrations and unregistrations of components.
+    private long modificationCount = 0;
+    // Keeps track of instantiation order, indexed by identity for constant time tracking and removal.
+    private List orderedComponentAdapters = new IdentityList();
+    // Identity index from the instances cached by local adapters to their adapter, for removal by instance.
+    private IdentityMap componentInstanceIndex = new IdentityMap();
+    // Keeps track of the instance indexed for each adapter.
+    private IdentityMap indexedComponentInstances = new IdentityMap();
 
     // Keeps track of the container started status
     private boolean started = false;
     // Keeps track of the container disposed status
     private boolean disposed = false;
+    // Keeps track of the container frozen status
+    private boolean frozen = false;
+    // The read-optimized registry of the frozen container, created again after deserialization
+    private transient FrozenComponentRegistry frozenRegistry;
     // Keeps track of child containers started status
     private Set childrenStarted = new HashSet();
 
     private LifecycleManager lifecycleManager = new OrderedComponentAdapterLifecycleManager();
+    // The settings the lifecycle manager is built from
+    private LifecycleExecutor lifecycleExecutor;
+    private boolean lazyStart;
     private LifecycleStrategy lifecycleStrategyForInstanceRegistrations;
+    // Runs the lifecycle methods of the child containers concurrently, if set
+    private LifecycleExecutor childLifecycleExecutor;
+    // Counts the lifecycle phases running the children concurrently
+    private transient volatile int concurrentChildren;
+    // Serializes the resolution of the components while the children run concurrently
+    private final Object resolutionLock = new Object[0];
 
     /**
      * Creates a new container with a custom ComponentAdapterFactory and a parent container.
@@ -123,7 +147,7 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
         if (lifecycleStrategyForInstanceRegistrations == null) throw new NullPointerException("lifecycleStrategyForInstanceRegistrations");
         this.componentAdapterFactory = componentAdapterFactory;
         this.lifecycleStrategyForInstanceRegistrations = lifecycleStrategyForInstanceRegistrations;
-        this.parent = parent == null ? null : ImmutablePicoContainerProxyFactory.newProxyInstance(parent);
+        this.parent = parent == null ? null : ImmutableDelegatingPicoContainer.newInstance(parent);
     }
 
     /**
@@ -199,10 +223,21 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
     }
 
     public Collection getComponentAdapters() {
+        if (frozen) {
+            return getFrozenRegistry().getComponentAdapters();
+        }
         return Collections.unmodifiableList(componentAdapters);
     }
 
     public final ComponentAdapter getComponentAdapter(Object componentKey) {
+        if (frozen) {
+            final FrozenComponentRegistry registry = getFrozenRegistry();
+            final int slot = registry.indexOf(componentKey);
+            if (slot >= 0) {
+                return registry.getAdapter(slot);
+            }
+            return registry.isComplete() ? null : parent.getComponentAdapter(componentKey);
+        }
         ComponentAdapter adapter = (ComponentAdapter) componentKeyToAdapterCache.get(componentKey);
         if (adapter == null && parent != null) {
             adapter = parent.getComponentAdapter(componentKey);
@@ -217,20 +252,25 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
             return adapterByKey;
         }
 
-        List found = getComponentAdaptersOfType(componentType);
+        // the indexed adapters are not copied, a lookup of a single adapter does not allocate
+        final ComponentAdapter[] frozenFound = frozen ? getFrozenRegistry().getComponentAdaptersOfType(componentType) : null;
+        final List found = frozen ? null : componentAdapterTypeIndex.getIndexedComponentAdaptersOfType(componentType);
+        final int size = frozen ? frozenFound.length : found.size();
 
-        if (found.size() == 1) {
-            return ((ComponentAdapter) found.get(0));
-        } else if (found.size() == 0) {
+        if (size == 1) {
+            return frozen ? frozenFound[0] : (ComponentAdapter) found.get(0);
+        } else if (size == 0) {
             if (parent != null) {
                 return parent.getComponentAdapterOfType(componentType);
             } else {
                 return null;
             }
         } else {
-            Class[] foundClasses = new Class[found.size()];
+            Class[] foundClasses = new Class[size];
+            final Iterator iter = frozen ? null : found.iterator();
             for (int i = 0; i < foundClasses.length; i++) {
-                foundClasses[i] = ((ComponentAdapter) found.get(i)).getComponentImplementation();
+                final ComponentAdapter adapter = frozen ? frozenFound[i] : (ComponentAdapter) iter.next();
+                foundClasses[i] = adapter.getComponentImplementation();
             }
 
             throw new AmbiguousComponentResolutionException(componentType, foundClasses);
@@ -241,15 +281,10 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
         if (componentType == null) {
             return Collections.EMPTY_LIST;
         }
-        List found = new ArrayList();
-        for (Iterator iterator = getComponentAdapters().iterator(); iterator.hasNext();) {
-            ComponentAdapter componentAdapter = (ComponentAdapter) iterator.next();
-
-            if (componentType.isAssignableFrom(componentAdapter.getComponentImplementation())) {
-                found.add(componentAdapter);
-            }
+        if (frozen) {
+            return new ArrayList(Arrays.asList(getFrozenRegistry().getComponentAdaptersOfType(componentType)));
         }
-        return found;
+        return componentAdapterTypeIndex.getComponentAdaptersOfType(componentType);
     }
 
     /**
@@ -258,18 +293,34 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
      * passed to the constructor of this container.
      */
     public ComponentAdapter registerComponent(ComponentAdapter componentAdapter) {
+        if (frozen) throw new IllegalStateException("Frozen");
         Object componentKey = componentAdapter.getComponentKey();
         if (componentKeyToAdapterCache.containsKey(componentKey)) {
             throw new DuplicateComponentKeyRegistrationException(componentKey);
         }
         componentAdapters.add(componentAdapter);
         componentKeyToAdapterCache.put(componentKey, componentAdapter);
+        componentAdapterTypeIndex.add(componentAdapter);
+        modificationCount++;
+        if (getCachingComponentAdapter(componentAdapter) instanceof InstanceComponentAdapter) {
+            indexComponentInstance(componentAdapter, componentAdapter.getComponentInstance(this));
+        }
         return componentAdapter;
     }
 
     public ComponentAdapter unregisterComponent(Object componentKey) {
+        if (frozen) throw new IllegalStateException("Frozen");
         ComponentAdapter adapter = (ComponentAdapter) componentKeyToAdapterCache.remove(componentKey);
+        if (adapter == null) {
+            return null;
+        }
         componentAdapters.remove(adapter);
+        final Object componentInstance = indexedComponentInstances.remove(adapter);
+        if (componentInstance != null && componentInstanceIndex.get(componentInstance) == adapter) {
+            componentInstanceIndex.remove(componentInstance);
+        }
+        componentAdapterTypeIndex.remove(adapter);
+        modificationCount++;
         orderedComponentAdapters.remove(adapter);
         return adapter;
     }
@@ -329,9 +380,54 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
     }
 
     private void addOrderedComponentAdapter(ComponentAdapter componentAdapter) {
-        if (!orderedComponentAdapters.contains(componentAdapter)) {
-            orderedComponentAdapters.add(componentAdapter);
+        orderedComponentAdapters.add(componentAdapter);
+    }
+
+    /**
+     * Index the instance of an adapter that caches it, so the component can be unregistered by its
+     * instance. A new instance replaces the one indexed before, e.g. after the cache is flushed.
+     */
+    private void indexComponentInstance(ComponentAdapter componentAdapter, Object componentInstance) {
+        if (componentInstance != null && getCachingComponentAdapter(componentAdapter) != null) {
+            final Object previous = indexedComponentInstances.put(componentAdapter, componentInstance);
+            if (previous != componentInstance) {
+                if (previous != null && componentInstanceIndex.get(previous) == componentAdapter) {
+                    componentInstanceIndex.remove(previous);
+                }
+                componentInstanceIndex.put(componentInstance, componentAdapter);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the adapter caching the instance returned by an adapter, looking through synchronizing decorators.
+     *
+     * @return the {@link CachingComponentAdapter} or {@link InstanceComponentAdapter}, or <code>null</code> if
+     *         the instance is not cached
+     */
+    static ComponentAdapter getCachingComponentAdapter(ComponentAdapter componentAdapter) {
+        while (componentAdapter instanceof SynchronizedComponentAdapter) {
+            componentAdapter = ((SynchronizedComponentAdapter) componentAdapter).getDelegate();
         }
+        if (componentAdapter instanceof CachingComponentAdapter || componentAdapter instanceof InstanceComponentAdapter) {
+            return componentAdapter;
+        }
+        return null;
+    }
+
+    /**
+     * Retrieve the instance cached by an adapter without instantiating the component.
+     *
+     * @return the cached instance or <code>null</code> if it is not yet instantiated or not cached at all
+     */
+    static Object getCachedComponentInstance(ComponentAdapter componentAdapter) {
+        final ComponentAdapter cachingComponentAdapter = getCachingComponentAdapter(componentAdapter);
+        if (cachingComponentAdapter instanceof CachingComponentAdapter) {
+            return ((CachingComponentAdapter) cachingComponentAdapter).getCachedComponentInstance();
+        } else if (cachingComponentAdapter instanceof InstanceComponentAdapter) {
+            return ((InstanceComponentAdapter) cachingComponentAdapter).getComponentInstance(null);
+        }
+        return null;
     }
 
     public List getComponentInstances() throws PicoException {
@@ -344,16 +440,17 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
         }
 
         Map adapterToInstanceMap = new HashMap();
-        for (Iterator iterator = componentAdapters.iterator(); iterator.hasNext();) {
+        final List adaptersOfType = frozen
+                ? Arrays.asList(getFrozenRegistry().getComponentAdaptersOfType(componentType))
+                : componentAdapterTypeIndex.getComponentAdaptersOfType(componentType);
+        for (Iterator iterator = adaptersOfType.iterator(); iterator.hasNext();) {
             ComponentAdapter componentAdapter = (ComponentAdapter) iterator.next();
-            if (componentType.isAssignableFrom(componentAdapter.getComponentImplementation())) {
-                Object componentInstance = getInstance(componentAdapter);
-                adapterToInstanceMap.put(componentAdapter, componentInstance);
+            Object componentInstance = getInstance(componentAdapter);
+            adapterToInstanceMap.put(componentAdapter, componentInstance);
 
-                // This is to ensure all are added. (Indirect dependencies will be added
-                // from InstantiatingComponentAdapter).
-                addOrderedComponentAdapter(componentAdapter);
-            }
+            // This is to ensure all are added. (Indirect dependencies will be added
+            // from InstantiatingComponentAdapter).
+            addOrderedComponentAdapter(componentAdapter);
         }
         List result = new ArrayList();
         for (Iterator iterator = orderedComponentAdapters.iterator(); iterator.hasNext();) {
@@ -369,6 +466,14 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
     }
 
     public Object getComponentInstance(Object componentKey) {
+        if (frozen) {
+            final FrozenComponentRegistry registry = getFrozenRegistry();
+            final int slot = registry.indexOf(componentKey);
+            if (slot >= 0) {
+                return registry.getOwner(slot).getInstance(registry.getAdapter(slot));
+            }
+            return registry.isComplete() ? null : parent.getComponentInstance(componentKey);
+        }
         ComponentAdapter componentAdapter = getComponentAdapter(componentKey);
         if (componentAdapter != null) {
             return getInstance(componentAdapter);
@@ -382,27 +487,37 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
         return componentAdapter == null ? null : getInstance(componentAdapter);
     }
 
+    /**
+     * Create a handle to retrieve a component of this container repeatedly. The handle skips the lookup
+     * of a cached component as long as the registry of this container and its parents is not modified.
+     *
+     * @param componentKey the key of the component
+     * @return the handle
+     * @since 1.4
+     */
+    public ComponentHandle getComponentHandle(Object componentKey) {
+        return new ComponentHandle(this, componentKey);
+    }
+
     private Object getInstance(ComponentAdapter componentAdapter) {
         // check wether this is our adapter
         // we need to check this to ensure up-down dependencies cannot be followed
         final boolean isLocal = componentAdapters.contains(componentAdapter);
 
         if (isLocal) {
-            Object instance = null;
-            try {
-                instance = componentAdapter.getComponentInstance(this);
-            } catch (CyclicDependencyException e) {
-                if (parent != null) {
-                    instance = parent.getComponentInstance(componentAdapter.getComponentKey());
-                    if( instance != null ) {
-                        return instance;
-                    }
+            Object cachedInstance = getRecordedInstance(componentAdapter);
+            if (cachedInstance != null) {
+                // fast path: the cached instance is already recorded, the adapters need not be called
+                return cachedInstance;
+            }
+            if (isResolvedConcurrently()) {
+                // children running concurrently share the components and the bookkeeping of this container
+                synchronized (resolutionLock) {
+                    cachedInstance = getRecordedInstance(componentAdapter);
+                    return cachedInstance != null ? cachedInstance : instantiate(componentAdapter);
                 }
-                throw e;
             }
-            addOrderedComponentAdapter(componentAdapter);
-
-            return instance;
+            return instantiate(componentAdapter);
         } else if (parent != null) {
             return parent.getComponentInstance(componentAdapter.getComponentKey());
         }
@@ -410,20 +525,132 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
         return null;
     }
 
+    private Object getRecordedInstance(ComponentAdapter componentAdapter) {
+        final Object cachedInstance = getCachedComponentInstance(componentAdapter);
+        if (cachedInstance != null && indexedComponentInstances.get(componentAdapter) == cachedInstance
+                && orderedComponentAdapters.contains(componentAdapter)
+                && !(started && lifecycleManager instanceof LazyStartLifecycleManager)) {
+            return cachedInstance;
+        }
+        return null;
+    }
+
+    private boolean isResolvedConcurrently() {
+        for (PicoContainer container = this; container instanceof DefaultPicoContainer; container = container.getParent()) {
+            if (((DefaultPicoContainer) container).concurrentChildren > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object instantiate(ComponentAdapter componentAdapter) {
+        Object instance = null;
+        try {
+            instance = componentAdapter.getComponentInstance(this);
+        } catch (CyclicDependencyException e) {
+            if (parent != null) {
+                instance = parent.getComponentInstance(componentAdapter.getComponentKey());
+                if( instance != null ) {
+                    return instance;
+                }
+            }
+            throw e;
+        }
+        addOrderedComponentAdapter(componentAdapter);
+        indexComponentInstance(componentAdapter, instance);
+        if (started && lifecycleManager instanceof LazyStartLifecycleManager) {
+            ((LazyStartLifecycleManager) lifecycleManager).startComponent(componentAdapter, this);
+        }
+
+        return instance;
+    }
+
 
     public PicoContainer getParent() {
         return parent;
     }
 
-    public ComponentAdapter unregisterComponentByInstance(Object componentInstance) {
-        Collection componentAdapters = getComponentAdapters();
-        for (Iterator iterator = componentAdapters.iterator(); iterator.hasNext();) {
-            ComponentAdapter componentAdapter = (ComponentAdapter) iterator.next();
-            if (getInstance(componentAdapter).equals(componentInstance)) {
-                return unregisterComponent(componentAdapter.getComponentKey());
+    /**
+     * Freeze the component registry of this container. Any registration or unregistration fails afterwards
+     * with an {@link IllegalStateException}, while the lookups use a compact, read-optimized copy of the registry.
+     * The keys of a frozen parent are merged into the copy, so a lookup by key does not walk the parent chain.
+     * Freeze a parent before its children to benefit from this. Instantiation, lifecycle and child containers
+     * are not affected.
+     *
+     * @since 1.4
+     */
+    public void freeze() {
+        if (!frozen) {
+            frozenRegistry = createFrozenRegistry();
+            frozen = true;
+            // the mutable structures are no longer used
+            componentKeyToAdapterCache = null;
+            componentAdapterTypeIndex = null;
+        }
+    }
+
+    /**
+     * Determine whether the registry of this container is frozen.
+     *
+     * @return <code>true</code> if {@link #freeze()} was called
+     * @since 1.4
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private FrozenComponentRegistry getFrozenRegistry() {
+        if (frozenRegistry == null) {
+            frozenRegistry = createFrozenRegistry();
+        }
+        return frozenRegistry;
+    }
+
+    private FrozenComponentRegistry createFrozenRegistry() {
+        FrozenComponentRegistry parentRegistry = null;
+        if (parent instanceof ImmutableDelegatingPicoContainer) {
+            final PicoContainer delegate = ((ImmutableDelegatingPicoContainer) parent).getDelegate();
+            if (delegate instanceof DefaultPicoContainer && ((DefaultPicoContainer) delegate).frozen) {
+                parentRegistry = ((DefaultPicoContainer) delegate).getFrozenRegistry();
             }
         }
-        return null;
+        return new FrozenComponentRegistry(this, componentAdapters, parentRegistry, parent != null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The generation is the sum of the modifications of this container and all its parents.
+     */
+    public long getComponentRegistryGeneration() {
+        long generation = modificationCount;
+        if (parent != null) {
+            if (!(parent instanceof ComponentRegistryGeneration)) {
+                return UNTRACKED;
+            }
+            final long parentGeneration = ((ComponentRegistryGeneration) parent).getComponentRegistryGeneration();
+            if (parentGeneration == UNTRACKED) {
+                return UNTRACKED;
+            }
+            generation += parentGeneration;
+        }
+        return generation;
+    }
+
+    /**
+     * Unregister the component of an instance. The instance is looked up by identity among the registered
+     * instances and the instances cached by a {@link CachingComponentAdapter} that have been retrieved from
+     * this container. No component is instantiated by the lookup.
+     *
+     * @param componentInstance the instance of the component
+     * @return the adapter of the unregistered component or <code>null</code> if the instance is unknown
+     */
+    public ComponentAdapter unregisterComponentByInstance(Object componentInstance) {
+        final ComponentAdapter componentAdapter = (ComponentAdapter) componentInstanceIndex.get(componentInstance);
+        if (componentAdapter == null) {
+            return null;
+        }
+        return unregisterComponent(componentAdapter.getComponentKey());
     }
 
     /**
@@ -455,10 +682,24 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
         started = true;
         this.lifecycleManager.start(this);
         childrenStarted.clear();
-        for (Iterator iterator = children.iterator(); iterator.hasNext();) {
-            PicoContainer child = (PicoContainer) iterator.next();
-            childrenStarted.add(new Integer(child.hashCode()));
-            child.start();
+        if (childLifecycleExecutor != null) {
+            final LifecycleBatch batch = new LifecycleBatch();
+            for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+                final PicoContainer child = (PicoContainer) iterator.next();
+                childrenStarted.add(new Integer(child.hashCode()));
+                batch.add(new Runnable() {
+                    public void run() {
+                        child.start();
+                    }
+                });
+            }
+            runConcurrently(batch);
+        } else {
+            for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+                PicoContainer child = (PicoContainer) iterator.next();
+                childrenStarted.add(new Integer(child.hashCode()));
+                child.start();
+            }
         }
     }
 
@@ -480,10 +721,25 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
     public void stop() {
         if (disposed) throw new IllegalStateException("Already disposed");
         if (!started) throw new IllegalStateException("Not started");
-        for (Iterator iterator = children.iterator(); iterator.hasNext();) {
-            PicoContainer child = (PicoContainer) iterator.next();
-            if ( childStarted(child) ){
-                child.stop();
+        if (childLifecycleExecutor != null) {
+            final LifecycleBatch batch = new LifecycleBatch();
+            for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+                final PicoContainer child = (PicoContainer) iterator.next();
+                if ( childStarted(child) ){
+                    batch.add(new Runnable() {
+                        public void run() {
+                            child.stop();
+                        }
+                    });
+                }
+            }
+            runConcurrently(batch);
+        } else {
+            for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+                PicoContainer child = (PicoContainer) iterator.next();
+                if ( childStarted(child) ){
+                    child.stop();
+                }
             }
         }
         this.lifecycleManager.stop(this);
@@ -515,14 +771,103 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
      */
     public void dispose() {
         if (disposed) throw new IllegalStateException("Already disposed");
-        for (Iterator iterator = children.iterator(); iterator.hasNext();) {
-            PicoContainer child = (PicoContainer) iterator.next();
-            child.dispose();
+        if (childLifecycleExecutor != null) {
+            final LifecycleBatch batch = new LifecycleBatch();
+            for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+                final PicoContainer child = (PicoContainer) iterator.next();
+                batch.add(new Runnable() {
+                    public void run() {
+                        child.dispose();
+                    }
+                });
+            }
+            runConcurrently(batch);
+        } else {
+            for (Iterator iterator = children.iterator(); iterator.hasNext();) {
+                PicoContainer child = (PicoContainer) iterator.next();
+                child.dispose();
+            }
         }
         this.lifecycleManager.dispose(this);
         disposed = true;
     }
 
+    /**
+     * Start and stop the components of this container concurrently on an executor. The components
+     * are started in waves, that respect the dependencies between them, and stopped in the
+     * reverse order of the waves. By default the components are started one after the other in
+     * the order of their instantiation. The setting does not apply to the child containers.
+     *
+     * @param lifecycleExecutor the executor or <code>null</code> to start the components one after
+     *           the other
+     * @throws IllegalStateException if the container is started or starts its components lazily
+     * @see #setLazyStart(boolean)
+     * @since 1.4
+     */
+    public void setLifecycleExecutor(LifecycleExecutor lifecycleExecutor) {
+        if (started) throw new IllegalStateException("Already started");
+        if (lifecycleExecutor != null && lazyStart) throw new IllegalStateException("Lazy start cannot be combined with a lifecycle executor");
+        this.lifecycleExecutor = lifecycleExecutor;
+        updateLifecycleManager();
+    }
+
+    /**
+     * Start the components on their first retrieval instead of the start of the container. Calling
+     * {@link #start()} only starts the components that are already instantiated. Any other component
+     * is started, after the components it depends on, when it is retrieved from the started container
+     * for the first time. The components are still stopped and disposed in the reverse order of their
+     * instantiation. The lazy start cannot be combined with the concurrent start set with
+     * {@link #setLifecycleExecutor(LifecycleExecutor)}.
+     *
+     * @param lazyStart <code>true</code> to start the components on their first retrieval
+     * @throws IllegalStateException if the container is started or has a lifecycle executor
+     * @since 1.4
+     */
+    public void setLazyStart(boolean lazyStart) {
+        if (started) throw new IllegalStateException("Already started");
+        if (lazyStart && lifecycleExecutor != null) throw new IllegalStateException("Lazy start cannot be combined with a lifecycle executor");
+        this.lazyStart = lazyStart;
+        updateLifecycleManager();
+    }
+
+    private void updateLifecycleManager() {
+        if (lazyStart) {
+            lifecycleManager = new LazyStartLifecycleManager();
+        } else if (lifecycleExecutor != null) {
+            lifecycleManager = new DependencyOrderedLifecycleManager(lifecycleExecutor);
+        } else {
+            lifecycleManager = new OrderedComponentAdapterLifecycleManager();
+        }
+    }
+
+    /**
+     * Start, stop and dispose the child containers concurrently on an executor. The components of
+     * this container are still started before and stopped and disposed after the ones of its
+     * children. All children are processed, even if some of them fail; several failures are
+     * rethrown as a {@link ConcurrentLifecycleException}. The executor bounds the number of child
+     * containers processed in parallel, besides the calling thread. By default the children are
+     * processed one after the other. While the children run concurrently, they resolve the shared
+     * components of this container and its parents one at a time.
+     *
+     * @param childLifecycleExecutor the executor or <code>null</code> to process the children one
+     *           after the other
+     * @throws IllegalStateException if the container is started
+     * @since 1.4
+     */
+    public void setChildLifecycleExecutor(LifecycleExecutor childLifecycleExecutor) {
+        if (started) throw new IllegalStateException("Already started");
+        this.childLifecycleExecutor = childLifecycleExecutor;
+    }
+
+    private void runConcurrently(LifecycleBatch batch) {
+        concurrentChildren++;
+        try {
+            LifecycleBatch.rethrow(batch.run(childLifecycleExecutor));
+        } finally {
+            concurrentChildren--;
+        }
+    }
+
     public MutablePicoContainer makeChildContainer() {
         DefaultPicoContainer pc = new DefaultPicoContainer(componentAdapterFactory,
                                                            lifecycleStrategyForInstanceRegistrations,
@@ -626,7 +971,7 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
     private class OrderedComponentAdapterLifecycleManager implements LifecycleManager, Serializable {
 
         /** List collecting the CAs which have been successfully started */
-        private List startedComponentAdapters = new ArrayList();
+        List startedComponentAdapters = new ArrayList();
 
         /**
          * {@inheritDoc}
@@ -634,19 +979,8 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
          * start(PicoContainer) method on the ones which are LifecycleManagers
          */
         public void start(PicoContainer node) {
-            Collection adapters = getComponentAdapters();
-            for (final Iterator iter = adapters.iterator(); iter.hasNext();) {
-                final ComponentAdapter adapter = (ComponentAdapter)iter.next();
-                if ( adapter instanceof LifecycleManager ){
-                    LifecycleManager manager = (LifecycleManager)adapter;
-                    if (manager.hasLifecycle()) {
-                        // create an instance, it will be added to the ordered CA list
-                        adapter.getComponentInstance(node);
-                        addOrderedComponentAdapter(adapter);
-                    }
-                }
-            }
-            adapters = orderedComponentAdapters;
+            instantiateComponents(node);
+            Collection adapters = orderedComponentAdapters;
             // clear list of started CAs
             startedComponentAdapters.clear();
             for (final Iterator iter = adapters.iterator(); iter.hasNext();) {
@@ -682,8 +1016,8 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
          */
         public void dispose(PicoContainer node) {
             List adapters = orderedComponentAdapters;
-            for (int i = adapters.size() - 1; 0 <= i; i--) {
-                Object adapter = adapters.get(i);
+            for (final ListIterator iter = adapters.listIterator(adapters.size()); iter.hasPrevious();) {
+                Object adapter = iter.previous();
                 if ( adapter instanceof LifecycleManager ){
                     LifecycleManager manager = (LifecycleManager)adapter;
                     manager.dispose(node);
@@ -695,6 +1029,239 @@ public class DefaultPicoContainer implements MutablePicoContainer, ComponentMoni
             throw new UnsupportedOperationException("Should not have been called");
         }
 
+        /**
+         * Instantiate the components with a lifecycle, so they are added to the ordered CA list. An adapter
+         * that does not cache its instance is added after the components it depends on without an instance.
+         */
+        void instantiateComponents(PicoContainer node) {
+            Collection adapters = getComponentAdapters();
+            for (final Iterator iter = adapters.iterator(); iter.hasNext();) {
+                final ComponentAdapter adapter = (ComponentAdapter)iter.next();
+                if ( adapter instanceof LifecycleManager ){
+                    LifecycleManager manager = (LifecycleManager)adapter;
+                    if (manager.hasLifecycle()) {
+                        if (getCachingComponentAdapter(adapter) == null && instantiateDependencies(node, adapter)) {
+                            // the adapter manages its instances, e.g. a pool, an instance would never be returned
+                            addOrderedComponentAdapter(adapter);
+                        } else {
+                            // create an instance, it will be added to the ordered CA list
+                            final Object instance = adapter.getComponentInstance(node);
+                            addOrderedComponentAdapter(adapter);
+                            indexComponentInstance(adapter, instance);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Instantiate the components a component depends on, so they are ordered before it.
+         *
+         * @return <code>false</code> if the dependencies are not known
+         */
+        private boolean instantiateDependencies(PicoContainer node, ComponentAdapter adapter) {
+            final ComponentAdapter[] dependencies = getDependencies(node, adapter);
+            if (dependencies == null) {
+                return false;
+            }
+            for (int i = 0; i < dependencies.length; i++) {
+                node.getComponentInstance(dependencies[i].getComponentKey());
+            }
+            return true;
+        }
+
+        ComponentAdapter[] getDependencies(PicoContainer node, ComponentAdapter adapter) {
+            ComponentAdapter delegate = adapter;
+            while (delegate instanceof DecoratingComponentAdapter) {
+                delegate = ((DecoratingComponentAdapter)delegate).getDelegate();
+            }
+            if (delegate instanceof ConstructorInjectionComponentAdapter) {
+                return ((ConstructorInjectionComponentAdapter)delegate).getConstructorDependencies(node);
+            } else if (delegate instanceof InstanceComponentAdapter) {
+                return new ComponentAdapter[0];
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Implementation of lifecycle manager which starts the component adapters when their component is
+     * retrieved from the started container. A component is started after its instantiation, that
+     * retrieves and therefore starts its dependencies first.
+     *
+     * @since 1.4
+     */
+    private class LazyStartLifecycleManager extends OrderedComponentAdapterLifecycleManager {
+
+        /** Set of the CAs which have been started or are starting */
+        private Set startingComponentAdapters = new HashSet();
+
+        /**
+         * {@inheritDoc}
+         * Starts the component adapters which have been instantiated already.
+         */
+        public void start(PicoContainer node) {
+            startedComponentAdapters.clear();
+            startingComponentAdapters.clear();
+            final List adapters = new ArrayList(orderedComponentAdapters);
+            for (final Iterator iter = adapters.iterator(); iter.hasNext();) {
+                startComponent((ComponentAdapter)iter.next(), node);
+            }
+        }
+
+        void startComponent(ComponentAdapter adapter, PicoContainer node) {
+            if ( adapter instanceof LifecycleManager && startingComponentAdapters.add(adapter) ){
+                try {
+                    ((LifecycleManager)adapter).start(node);
+                } catch (RuntimeException e) {
+                    // retry on the next retrieval
+                    startingComponentAdapters.remove(adapter);
+                    throw e;
+                }
+                startedComponentAdapters.add(adapter);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Implementation of lifecycle manager which starts and stops the component adapters concurrently
+     * on a {@link LifecycleExecutor}. The components are started in waves: a component is started in
+     * the wave after the last wave containing one of its dependencies. The dependencies are taken from
+     * the constructor arguments resolved by a {@link ConstructorInjectionComponentAdapter}, transitively
+     * through the components without lifecycle. A component with dependencies that are not known this
+     * way is started after all components instantiated before it.
+     * </p>
+     * <p>
+     * The waves are stopped in reverse order. If a component fails, the remaining components of its
+     * wave are processed before the failures are rethrown. Disposal keeps the reverse instantiation order.
+     * The time spent in the lifecycle method of each component is reported to the
+     * {@link ComponentMonitor} by the {@link LifecycleStrategy} of its adapter.
+     * </p>
+     *
+     * @since 1.4
+     */
+    private class DependencyOrderedLifecycleManager extends OrderedComponentAdapterLifecycleManager {
+        private final LifecycleExecutor executor;
+
+        /** List collecting the waves of CAs which have been successfully started */
+        private List startedWaves = new ArrayList();
+
+        DependencyOrderedLifecycleManager(LifecycleExecutor executor) {
+            this.executor = executor;
+        }
+
+        public void start(final PicoContainer node) {
+            instantiateComponents(node);
+            final List waves = getWaves(node);
+            startedWaves.clear();
+            for (final Iterator iter = waves.iterator(); iter.hasNext();) {
+                final List wave = (List)iter.next();
+                final List started = new ArrayList();
+                final LifecycleBatch batch = new LifecycleBatch();
+                for (final Iterator adapters = wave.iterator(); adapters.hasNext();) {
+                    final Object adapter = adapters.next();
+                    batch.add(new Runnable() {
+                        public void run() {
+                            ((LifecycleManager)adapter).start(node);
+                            synchronized (started) {
+                                started.add(adapter);
+                            }
+                        }
+                    });
+                }
+                final List failures = batch.run(executor);
+                startedWaves.add(started);
+                LifecycleBatch.rethrow(failures);
+            }
+        }
+
+        public void stop(final PicoContainer node) {
+            for (int i = startedWaves.size() - 1; 0 <= i; i--) {
+                final List wave = (List)startedWaves.get(i);
+                final LifecycleBatch batch = new LifecycleBatch();
+                for (final Iterator adapters = wave.iterator(); adapters.hasNext();) {
+                    final Object adapter = adapters.next();
+                    batch.add(new Runnable() {
+                        public void run() {
+                            ((LifecycleManager)adapter).stop(node);
+                        }
+                    });
+                }
+                LifecycleBatch.rethrow(batch.run(executor));
+            }
+        }
+
+        /**
+         * Group the instantiated component adapters with lifecycle into waves.
+         *
+         * @return the list of waves, each one a List of CAs
+         */
+        private List getWaves(PicoContainer node) {
+            final List lifecycleAdapters = new ArrayList();
+            for (final Iterator iter = orderedComponentAdapters.iterator(); iter.hasNext();) {
+                final Object adapter = iter.next();
+                if (adapter instanceof LifecycleManager && ((LifecycleManager)adapter).hasLifecycle()) {
+                    lifecycleAdapters.add(adapter);
+                }
+            }
+            final Set lifecycleAdapterSet = new HashSet(lifecycleAdapters);
+            final Map levels = new HashMap();
+            final List waves = new ArrayList();
+            for (final Iterator iter = lifecycleAdapters.iterator(); iter.hasNext();) {
+                final ComponentAdapter adapter = (ComponentAdapter)iter.next();
+                final Collection dependencies = getLifecycleDependencies(node, adapter, lifecycleAdapterSet);
+                int level = 0;
+                if (dependencies == null) {
+                    level = waves.size();
+                } else {
+                    for (final Iterator deps = dependencies.iterator(); deps.hasNext();) {
+                        final Integer dependencyLevel = (Integer)levels.get(deps.next());
+                        if (dependencyLevel != null) {
+                            level = Math.max(level, dependencyLevel.intValue() + 1);
+                        }
+                    }
+                }
+                levels.put(adapter, new Integer(level));
+                if (level == waves.size()) {
+                    waves.add(new ArrayList());
+                }
+                ((List)waves.get(level)).add(adapter);
+            }
+            return waves;
+        }
+
+        /**
+         * Collect the CAs with lifecycle a component depends on, directly or through components without lifecycle.
+         *
+         * @return the CAs or <code>null</code> if the dependencies are not known
+         */
+        private Collection getLifecycleDependencies(PicoContainer node, ComponentAdapter adapter, Set lifecycleAdapters) {
+            final Set result = new HashSet();
+            final Set visited = new HashSet();
+            final List pending = new ArrayList();
+            visited.add(adapter);
+            pending.add(adapter);
+            while (!pending.isEmpty()) {
+                final ComponentAdapter current = (ComponentAdapter)pending.remove(pending.size() - 1);
+                final ComponentAdapter[] dependencies = getDependencies(node, current);
+                if (dependencies == null) {
+                    return null;
+                }
+                for (int i = 0; i < dependencies.length; i++) {
+                    final ComponentAdapter dependency = dependencies[i];
+                    // the components of the parent are already started
+                    if (componentAdapters.contains(dependency) && visited.add(dependency)) {
+                        if (lifecycleAdapters.contains(dependency)) {
+                            result.add(dependency);
+                        } else {
+                            pending.add(dependency);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
     }
 
 }
@@ -0,0 +1,171 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.picocontainer.ComponentAdapter;
+
+/**
+ * The read-optimized registry of a frozen {@link DefaultPicoContainer}. The keys are kept in an
+ * open-addressing table, that also contains the keys of the frozen parents not hidden by a local key,
+ * so a lookup by key needs a single probe sequence for the complete parent chain. The adapters of every
+ * type a local component implementation is assignable to are precomputed as array.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+final class FrozenComponentRegistry {
+    private static final ComponentAdapter[] NO_ADAPTERS = new ComponentAdapter[0];
+
+    private final Object[] keys;
+    private final ComponentAdapter[] adapters;
+    private final DefaultPicoContainer[] owners;
+    private final boolean complete;
+    private final IdentityMap typeToAdapters = new IdentityMap();
+    private final List componentAdapters;
+
+    /**
+     * Construct the registry of a container.
+     *
+     * @param owner the frozen container
+     * @param localAdapters the adapters registered in the container
+     * @param parentRegistry the registry of the frozen parent or <code>null</code>
+     * @param hasParent <code>true</code> if the container has a parent
+     */
+    FrozenComponentRegistry(DefaultPicoContainer owner, List localAdapters, FrozenComponentRegistry parentRegistry, boolean hasParent) {
+        final int parentSize = parentRegistry == null ? 0 : parentRegistry.size();
+        int capacity = 8;
+        while (capacity < 2 * (localAdapters.size() + parentSize)) {
+            capacity <<= 1;
+        }
+        keys = new Object[capacity];
+        adapters = new ComponentAdapter[capacity];
+        owners = new DefaultPicoContainer[capacity];
+        for (final Iterator iter = localAdapters.iterator(); iter.hasNext();) {
+            final ComponentAdapter adapter = (ComponentAdapter) iter.next();
+            insert(adapter.getComponentKey(), adapter, owner);
+        }
+        if (parentRegistry != null) {
+            for (int i = 0; i < parentRegistry.keys.length; i++) {
+                final Object key = parentRegistry.keys[i];
+                if (key != null && indexOf(key) < 0) {
+                    insert(key, parentRegistry.adapters[i], parentRegistry.owners[i]);
+                }
+            }
+        }
+        complete = !hasParent || (parentRegistry != null && parentRegistry.complete);
+
+        final Map types = new HashMap();
+        for (final Iterator iter = localAdapters.iterator(); iter.hasNext();) {
+            final ComponentAdapter adapter = (ComponentAdapter) iter.next();
+            final Iterator assignableTypes = ComponentAdapterTypeIndex.getAssignableTypes(adapter.getComponentImplementation()).iterator();
+            while (assignableTypes.hasNext()) {
+                final Object type = assignableTypes.next();
+                List adaptersOfType = (List) types.get(type);
+                if (adaptersOfType == null) {
+                    adaptersOfType = new ArrayList(1);
+                    types.put(type, adaptersOfType);
+                }
+                adaptersOfType.add(adapter);
+            }
+        }
+        for (final Iterator iter = types.entrySet().iterator(); iter.hasNext();) {
+            final Map.Entry entry = (Map.Entry) iter.next();
+            final List adaptersOfType = (List) entry.getValue();
+            typeToAdapters.put(entry.getKey(), adaptersOfType.toArray(new ComponentAdapter[adaptersOfType.size()]));
+        }
+        componentAdapters = Collections.unmodifiableList(new ArrayList(localAdapters));
+    }
+
+    private void insert(Object key, ComponentAdapter adapter, DefaultPicoContainer owner) {
+        int i = key.hashCode() & (keys.length - 1);
+        while (keys[i] != null) {
+            i = (i + 1) & (keys.length - 1);
+        }
+        keys[i] = key;
+        adapters[i] = adapter;
+        owners[i] = owner;
+    }
+
+    private int size() {
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Find the slot of a key.
+     *
+     * @param key the key
+     * @return the slot or -1 if the key is not registered in the container or its frozen parents
+     */
+    int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int i = key.hashCode() & (keys.length - 1);
+        while (true) {
+            final Object candidate = keys[i];
+            if (candidate == null) {
+                return -1;
+            } else if (candidate == key || candidate.equals(key)) {
+                return i;
+            }
+            i = (i + 1) & (keys.length - 1);
+        }
+    }
+
+    ComponentAdapter getAdapter(int slot) {
+        return adapters[slot];
+    }
+
+    /**
+     * Retrieve the container that registered the adapter in a slot.
+     */
+    DefaultPicoContainer getOwner(int slot) {
+        return owners[slot];
+    }
+
+    /**
+     * Determine whether the keys of all parents are contained, so a missing key does not need to be
+     * looked up in the parent.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Retrieve the local adapters with an implementation assignable to a type.
+     *
+     * @param componentType the type
+     * @return the adapters in registration order, the array must not be modified
+     */
+    ComponentAdapter[] getComponentAdaptersOfType(Class componentType) {
+        final ComponentAdapter[] adaptersOfType = (ComponentAdapter[]) typeToAdapters.get(componentType);
+        return adaptersOfType == null ? NO_ADAPTERS : adaptersOfType;
+    }
+
+    /**
+     * @return the unmodifiable list of local adapters in registration order
+     */
+    List getComponentAdapters() {
+        return componentAdapters;
+    }
+}
@@ -0,0 +1,273 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A list of distinct elements compared by identity, that appends, finds and removes an element
+ * in constant time. The elements are linked in their order and indexed by an {@link IdentityMap},
+ * once the list is too long to be scanned. Access by index walks the links from the closer end of the
+ * list, the iterators walk them forward or backward in constant time per element. Like an
+ * <code>ArrayList</code> the list may be read by several threads at once, as long as none of them
+ * modifies it. Elements must not be <code>null</code>.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+final class IdentityList extends AbstractList implements Serializable {
+    // the longest list scanned instead of indexed
+    private static final int SCAN_LIMIT = 8;
+
+    private transient Node header;
+    private transient int size;
+    // the node of every element, null while the list is scanned
+    private transient IdentityMap nodes;
+
+    IdentityList() {
+        init();
+    }
+
+    private void init() {
+        header = new Node(null);
+        header.previous = header;
+        header.next = header;
+        size = 0;
+        nodes = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(Object element) {
+        return find(element) != null;
+    }
+
+    public Object get(int index) {
+        return node(index).element;
+    }
+
+    public Iterator iterator() {
+        return new NodeIterator(header.next, 0);
+    }
+
+    public ListIterator listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new NodeIterator(index == size ? header : node(index), index);
+    }
+
+    /**
+     * Append an element, unless it is already contained.
+     *
+     * @param element the element
+     * @return <code>true</code> if the element was appended
+     */
+    public boolean add(Object element) {
+        if (find(element) != null) {
+            return false;
+        }
+        final Node node = new Node(element);
+        node.previous = header.previous;
+        node.next = header;
+        header.previous.next = node;
+        header.previous = node;
+        size++;
+        if (nodes != null) {
+            nodes.put(element, node);
+        } else if (size > SCAN_LIMIT) {
+            final IdentityMap index = new IdentityMap();
+            for (Node n = header.next; n != header; n = n.next) {
+                index.put(n.element, n);
+            }
+            nodes = index;
+        }
+        modCount++;
+        return true;
+    }
+
+    public boolean remove(Object element) {
+        final Node node = find(element);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    public Object remove(int index) {
+        final Node node = node(index);
+        unlink(node);
+        return node.element;
+    }
+
+    public void clear() {
+        init();
+        modCount++;
+    }
+
+    private Node find(Object element) {
+        if (nodes != null) {
+            return (Node) nodes.get(element);
+        }
+        for (Node node = header.next; node != header; node = node.next) {
+            if (node.element == element) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private void unlink(Node node) {
+        node.previous.next = node.next;
+        node.next.previous = node.previous;
+        size--;
+        if (nodes != null) {
+            nodes.remove(node.element);
+        }
+        modCount++;
+    }
+
+    private Node node(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Node node = header;
+        if (index < size / 2) {
+            for (int i = -1; i < index; i++) {
+                node = node.next;
+            }
+        } else {
+            for (int i = size; i > index; i--) {
+                node = node.previous;
+            }
+        }
+        return node;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (Node node = header.next; node != header; node = node.next) {
+            out.writeObject(node.element);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+        final int elements = in.readInt();
+        for (int i = 0; i < elements; i++) {
+            add(in.readObject());
+        }
+    }
+
+    /**
+     * Iterator walking the links, the position is kept by the iterator and not by the list.
+     */
+    private final class NodeIterator implements ListIterator {
+        private Node next;
+        private int nextIndex;
+        private Node lastReturned;
+        private int expectedModCount = modCount;
+
+        private NodeIterator(Node next, int nextIndex) {
+            this.next = next;
+            this.nextIndex = nextIndex;
+        }
+
+        public boolean hasNext() {
+            return next != header;
+        }
+
+        public Object next() {
+            checkForComodification();
+            if (next == header) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.next;
+            nextIndex++;
+            return lastReturned.element;
+        }
+
+        public boolean hasPrevious() {
+            return next.previous != header;
+        }
+
+        public Object previous() {
+            checkForComodification();
+            if (next.previous == header) {
+                throw new NoSuchElementException();
+            }
+            next = next.previous;
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.element;
+        }
+
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        public void remove() {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (next == lastReturned) {
+                next = lastReturned.next;
+            } else {
+                nextIndex--;
+            }
+            unlink(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        public void set(Object element) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void add(Object element) {
+            throw new UnsupportedOperationException();
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private static final class Node {
+        private final Object element;
+        private Node previous;
+        private Node next;
+
+        private Node(Object element) {
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * A hash map comparing its keys by identity, since java.util.IdentityHashMap is not available
+ * in JDK 1.3. The map uses open addressing with linear probing in a single array of alternating
+ * keys and values. Keys must not be <code>null</code>. The identity hash codes are not stable
+ * across serialization, so the entries are hashed again when the map is deserialized.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+final class IdentityMap implements Serializable {
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private transient Object[] table;
+    private transient int size;
+
+    IdentityMap() {
+        table = new Object[2 * MINIMUM_CAPACITY];
+    }
+
+    /**
+     * Construct a copy of another map.
+     *
+     * @param map the copied map
+     */
+    IdentityMap(IdentityMap map) {
+        table = (Object[]) map.table.clone();
+        size = map.size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Retrieve the value of a key.
+     *
+     * @param key the key
+     * @return the value or <code>null</code> if the key is not contained
+     */
+    Object get(Object key) {
+        final Object[] tab = table;
+        int i = index(key, tab.length);
+        while (true) {
+            final Object item = tab[i];
+            if (item == key) {
+                return tab[i + 1];
+            } else if (item == null) {
+                return null;
+            }
+            i = next(i, tab.length);
+        }
+    }
+
+    /**
+     * Associate a key with a value.
+     *
+     * @param key the key
+     * @param value the value, not <code>null</code>
+     * @return the previous value or <code>null</code> if the key was not contained
+     */
+    Object put(Object key, Object value) {
+        Object[] tab = table;
+        int i = index(key, tab.length);
+        while (true) {
+            final Object item = tab[i];
+            if (item == key) {
+                final Object previous = tab[i + 1];
+                tab[i + 1] = value;
+                return previous;
+            } else if (item == null) {
+                break;
+            }
+            i = next(i, tab.length);
+        }
+        if (3 * (size + 1) > tab.length) {
+            resize(2 * tab.length);
+            tab = table;
+            i = index(key, tab.length);
+            while (tab[i] != null) {
+                i = next(i, tab.length);
+            }
+        }
+        tab[i] = key;
+        tab[i + 1] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key the key
+     * @return the value of the key or <code>null</code> if the key was not contained
+     */
+    Object remove(Object key) {
+        final Object[] tab = table;
+        int i = index(key, tab.length);
+        while (true) {
+            final Object item = tab[i];
+            if (item == key) {
+                final Object value = tab[i + 1];
+                tab[i] = null;
+                tab[i + 1] = null;
+                size--;
+                closeDeletion(i);
+                return value;
+            } else if (item == null) {
+                return null;
+            }
+            i = next(i, tab.length);
+        }
+    }
+
+    void clear() {
+        table = new Object[2 * MINIMUM_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Move the entries following a removed one back into the gap, so no entry is separated from
+     * its hash index by an empty slot.
+     */
+    private void closeDeletion(int deleted) {
+        final Object[] tab = table;
+        final int length = tab.length;
+        for (int i = next(deleted, length); tab[i] != null; i = next(i, length)) {
+            final int home = index(tab[i], length);
+            if ((i < home && (home <= deleted || deleted <= i)) || (home <= deleted && deleted <= i)) {
+                tab[deleted] = tab[i];
+                tab[deleted + 1] = tab[i + 1];
+                tab[i] = null;
+                tab[i + 1] = null;
+                deleted = i;
+            }
+        }
+    }
+
+    private void resize(int length) {
+        final Object[] old = table;
+        table = new Object[length];
+        for (int j = 0; j < old.length; j += 2) {
+            if (old[j] != null) {
+                int i = index(old[j], length);
+                while (table[i] != null) {
+                    i = next(i, length);
+                }
+                table[i] = old[j];
+                table[i + 1] = old[j + 1];
+            }
+        }
+    }
+
+    private static int index(Object key, int length) {
+        final int h = System.identityHashCode(key);
+        // multiply to spread the bits and double to land on a key slot
+        return ((h << 1) - (h << 8)) & (length - 1);
+    }
+
+    private static int next(int i, int length) {
+        return i + 2 < length ? i + 2 : 0;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int j = 0; j < table.length; j += 2) {
+            if (table[j] != null) {
+                out.writeObject(table[j]);
+                out.writeObject(table[j + 1]);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        final int entries = in.readInt();
+        table = new Object[2 * MINIMUM_CAPACITY];
+        for (int j = 0; j < entries; j++) {
+            put(in.readObject(), in.readObject());
+        }
+    }
+}
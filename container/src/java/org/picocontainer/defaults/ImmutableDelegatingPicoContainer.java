@@ -0,0 +1,150 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.Disposable;
+import org.picocontainer.PicoContainer;
+import org.picocontainer.PicoVerificationException;
+import org.picocontainer.PicoVisitor;
+import org.picocontainer.Startable;
+
+/**
+ * An immutable view of a {@link PicoContainer}. All lookups are delegated directly to the
+ * wrapped container, while the lifecycle methods of {@link Startable} and {@link Disposable} are
+ * refused. The view behaves like the proxy created by
+ * {@link ImmutablePicoContainerProxyFactory#newProxyInstance(PicoContainer)}, but does not use
+ * reflection to dispatch the calls. {@link DefaultPicoContainer} uses it to hide its parent.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public final class ImmutableDelegatingPicoContainer implements PicoContainer, ComponentRegistryGeneration, Serializable {
+
+    private final PicoContainer delegate;
+
+    /**
+     * Construct an ImmutableDelegatingPicoContainer.
+     *
+     * @param delegate the container to hide
+     * @throws NullPointerException if <tt>delegate</tt> is <code>null</code>
+     */
+    public ImmutableDelegatingPicoContainer(final PicoContainer delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * Create an immutable view of a container. A container that is already such a view is returned unchanged.
+     *
+     * @param pico the container to hide
+     * @return the immutable view
+     * @throws NullPointerException if <tt>pico</tt> is <code>null</code>
+     */
+    public static PicoContainer newInstance(final PicoContainer pico) {
+        if (pico instanceof ImmutableDelegatingPicoContainer) {
+            return pico;
+        }
+        return new ImmutableDelegatingPicoContainer(pico);
+    }
+
+    /**
+     * Retrieve the hidden container.
+     *
+     * @return the container
+     */
+    PicoContainer getDelegate() {
+        return delegate;
+    }
+
+    public Object getComponentInstance(Object componentKey) {
+        return delegate.getComponentInstance(componentKey);
+    }
+
+    public Object getComponentInstanceOfType(Class componentType) {
+        return delegate.getComponentInstanceOfType(componentType);
+    }
+
+    public List getComponentInstances() {
+        return delegate.getComponentInstances();
+    }
+
+    public PicoContainer getParent() {
+        return delegate.getParent();
+    }
+
+    public ComponentAdapter getComponentAdapter(Object componentKey) {
+        return delegate.getComponentAdapter(componentKey);
+    }
+
+    public ComponentAdapter getComponentAdapterOfType(Class componentType) {
+        return delegate.getComponentAdapterOfType(componentType);
+    }
+
+    public Collection getComponentAdapters() {
+        return delegate.getComponentAdapters();
+    }
+
+    public List getComponentAdaptersOfType(Class componentType) {
+        return delegate.getComponentAdaptersOfType(componentType);
+    }
+
+    /**
+     * @deprecated since 1.1 - Use "new VerifyingVisitor().traverse(this)"
+     */
+    public void verify() throws PicoVerificationException {
+        delegate.verify();
+    }
+
+    public List getComponentInstancesOfType(Class componentType) {
+        return delegate.getComponentInstancesOfType(componentType);
+    }
+
+    public void accept(PicoVisitor visitor) {
+        delegate.accept(visitor);
+    }
+
+    public long getComponentRegistryGeneration() {
+        if (delegate instanceof ComponentRegistryGeneration) {
+            return ((ComponentRegistryGeneration) delegate).getComponentRegistryGeneration();
+        }
+        return UNTRACKED;
+    }
+
+    public void start() {
+        throw new UnsupportedOperationException("This container is immutable, start is not allowed");
+    }
+
+    public void stop() {
+        throw new UnsupportedOperationException("This container is immutable, stop is not allowed");
+    }
+
+    public void dispose() {
+        throw new UnsupportedOperationException("This container is immutable, dispose is not allowed");
+    }
+
+    public boolean equals(Object obj) {
+        return obj != null && obj.equals(delegate);
+    }
+
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+
+    public String toString() {
+        return delegate.toString();
+    }
+}
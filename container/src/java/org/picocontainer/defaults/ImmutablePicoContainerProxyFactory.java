@@ -24,6 +24,7 @@ import org.picocontainer.Startable;
  * A factory for immutable PicoContainer proxies.
  * 
  * @author J&ouml;rg Schaible
+ * @see ImmutableDelegatingPicoContainer a reflection-free alternative
  * @since 1.2
  */
 public class ImmutablePicoContainerProxyFactory implements InvocationHandler, Serializable {
@@ -34,20 +34,66 @@ import java.lang.reflect.Modifier;
  */
 public abstract class InstantiatingComponentAdapter extends AbstractComponentAdapter 
                                 implements LifecycleStrategy {
-    /** The cycle guard for the verification. */ 
+    /**
+     * The cycle guard for the verification.
+     * @deprecated As of 1.4 the verification uses a {@link ResolutionGuard}, the field is no longer set.
+     */ 
     protected transient Guard verifyingGuard;
+    // the cycle guard for the verification
+    private transient ResolutionGuard verificationGuard;
     /** The parameters to use for initialization. */ 
     protected transient Parameter[] parameters;
     /** Flag indicating instanciation of non-public classes. */ 
     protected boolean allowNonPublicClasses;
     
-    /** The cycle guard for the verification. */
+    /**
+     * The cycle guard for the verification.
+     * @deprecated As of 1.4 use a {@link ResolutionGuard}, that shares the resolution stack of the
+     *             current thread with the guards of all other adapters.
+     */
     protected static abstract class Guard extends ThreadLocalCyclicDependencyGuard {
         protected PicoContainer guardedContainer;
         protected void setArguments(PicoContainer container) {
             this.guardedContainer = container;
         }
     }
+
+    /**
+     * The cycle guard for the verification and instantiation. All guards of a thread share a single
+     * resolution stack, that detects a guard observed recursively.
+     *
+     * @since 1.4
+     */
+    protected static abstract class ResolutionGuard {
+        /**
+         * Implement this function with the functionality to observe for a dependency cycle.
+         *
+         * @param guardedContainer the container passed to {@link #observe}
+         * @return a value, if the functionality result in an expression,
+         *      otherwise just return <code>null</code>
+         * @since 1.4
+         */
+        public abstract Object run(PicoContainer guardedContainer);
+
+        /**
+         * Call the observing function.
+         *
+         * @param stackFrame the type to report for this guard in a {@link CyclicDependencyException}
+         * @param container the container to pass to {@link #run}
+         * @return the result of the <code>run</code> method
+         * @throws CyclicDependencyException if this guard is already observing in the current thread
+         * @since 1.4
+         */
+        public final Object observe(Class stackFrame, PicoContainer container) {
+            final ResolutionStack stack = ResolutionStack.current();
+            stack.push(this, stackFrame);
+            try {
+                return run(container);
+            } finally {
+                stack.pop();
+            }
+        }
+    }
     
     /** The strategy used to control the lifecycle */
     protected LifecycleStrategy lifecycleStrategy;
@@ -133,10 +179,33 @@ public abstract class InstantiatingComponentAdapter extends AbstractComponentAda
         return componentParameters;
     }
 
+    /**
+     * Check whether the dependencies are resolved by the standard {@link Parameter} implementations
+     * only. Their resolution does not change as long as the registry of the container is not
+     * modified and can therefore be reused by a resolution plan.
+     *
+     * @return <code>true</code> if the resolution of the parameters can be cached
+     */
+    boolean hasStableParameters() {
+        if (parameters != null) {
+            for (int i = 0; i < parameters.length; i++) {
+                final Parameter parameter = parameters[i];
+                final Class parameterClass = parameter.getClass();
+                if (!(parameterClass == ComponentParameter.class
+                        || parameterClass == BasicComponentParameter.class
+                        || parameter instanceof ConstantParameter
+                        || parameter instanceof CollectionComponentParameter)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     public void verify(final PicoContainer container) throws PicoIntrospectionException {
-        if (verifyingGuard == null) {
-            verifyingGuard = new Guard() {
-                public Object run() {
+        if (verificationGuard == null) {
+            verificationGuard = new ResolutionGuard() {
+                public Object run(PicoContainer guardedContainer) {
                     final Constructor constructor = getGreediestSatisfiableConstructor(guardedContainer);
                     final Class[] parameterTypes = constructor.getParameterTypes();
                     final Parameter[] currentParameters = parameters != null ? parameters : createDefaultParameters(parameterTypes);
@@ -147,8 +216,7 @@ public abstract class InstantiatingComponentAdapter extends AbstractComponentAda
                 }
             };
         }
-        verifyingGuard.setArguments(container);
-        verifyingGuard.observe(getComponentImplementation());
+        verificationGuard.observe(getComponentImplementation(), container);
     }
 
     public void accept(PicoVisitor visitor) {
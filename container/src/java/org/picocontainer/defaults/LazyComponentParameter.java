@@ -0,0 +1,164 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.Parameter;
+import org.picocontainer.PicoContainer;
+import org.picocontainer.PicoInitializationException;
+import org.picocontainer.PicoVisitor;
+
+/**
+ * A Parameter that defers the instantiation of a dependency until it is used. If the expected type is
+ * an interface, the parameter passes a lazy proxy implementing it. The proxy resolves and instantiates
+ * the component with its delegate {@link Parameter} on the first method call and forwards every call
+ * to this instance. A dependency that is rarely used therefore does not add to the time and memory
+ * needed to instantiate the depending component. A dependency of a type that is not an interface is
+ * resolved immediately by the delegate. The methods <code>equals</code> and <code>hashCode</code> of
+ * the proxy are based on its identity and <code>toString</code> does not instantiate the component
+ * either.
+ * <p>
+ * Note, that the lazily instantiated component is neither part of the dependencies considered for
+ * the start order of the depending component, nor is it started, if the container was already started
+ * before, unless the container starts components lazily.
+ * </p>
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public class LazyComponentParameter implements Parameter, Serializable {
+
+    /**
+     * <code>LAZY_DEFAULT</code> is an instance of LazyComponentParameter resolving any component of
+     * the appropriate type.
+     */
+    public static final LazyComponentParameter LAZY_DEFAULT = new LazyComponentParameter();
+
+    private final Parameter delegate;
+
+    /**
+     * Expect a parameter matching a component of a specific key.
+     *
+     * @param componentKey the key of the desired component
+     */
+    public LazyComponentParameter(Object componentKey) {
+        this(new BasicComponentParameter(componentKey));
+    }
+
+    /**
+     * Expect any parameter of the appropriate type.
+     */
+    public LazyComponentParameter() {
+        this(BasicComponentParameter.BASIC_DEFAULT);
+    }
+
+    /**
+     * Resolve the dependency lazily with another parameter.
+     *
+     * @param delegate the parameter resolving the dependency
+     */
+    public LazyComponentParameter(Parameter delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        this.delegate = delegate;
+    }
+
+    public boolean isResolvable(PicoContainer container, ComponentAdapter adapter, Class expectedType) {
+        return delegate.isResolvable(container, adapter, expectedType);
+    }
+
+    /**
+     * Retrieve a lazy proxy for the dependency. The component is not instantiated, unless the expected
+     * type is not an interface.
+     *
+     * @return the proxy, the instance or <code>null</code> if the dependency cannot be resolved
+     * @see org.picocontainer.Parameter#resolveInstance(org.picocontainer.PicoContainer,
+     *           org.picocontainer.ComponentAdapter, java.lang.Class)
+     */
+    public Object resolveInstance(PicoContainer container, ComponentAdapter adapter, Class expectedType) {
+        if (!expectedType.isInterface()) {
+            return delegate.resolveInstance(container, adapter, expectedType);
+        }
+        if (!delegate.isResolvable(container, adapter, expectedType)) {
+            return null;
+        }
+        return Proxy.newProxyInstance(expectedType.getClassLoader(), new Class[]{expectedType},
+                new LazyInstance(container, adapter, expectedType));
+    }
+
+    public void verify(PicoContainer container, ComponentAdapter adapter, Class expectedType) {
+        delegate.verify(container, adapter, expectedType);
+    }
+
+    /**
+     * Visit the current {@link Parameter}.
+     *
+     * @see org.picocontainer.Parameter#accept(org.picocontainer.PicoVisitor)
+     */
+    public void accept(final PicoVisitor visitor) {
+        visitor.visitParameter(this);
+    }
+
+    private class LazyInstance implements InvocationHandler, Serializable {
+        private final PicoContainer container;
+        private final ComponentAdapter adapter;
+        private final Class expectedType;
+        private transient Object instance;
+
+        private LazyInstance(PicoContainer container, ComponentAdapter adapter, Class expectedType) {
+            this.container = container;
+            this.adapter = adapter;
+            this.expectedType = expectedType;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                final String name = method.getName();
+                if (name.equals("equals")) {
+                    return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+                } else if (name.equals("hashCode")) {
+                    return new Integer(System.identityHashCode(proxy));
+                } else if (name.equals("toString")) {
+                    final Object resolved = getResolvedInstance();
+                    return resolved == null
+                            ? "Lazy " + expectedType.getName() + " of " + adapter.getComponentKey()
+                            : resolved.toString();
+                }
+            }
+            try {
+                return method.invoke(getInstance(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        private synchronized Object getResolvedInstance() {
+            return instance;
+        }
+
+        private synchronized Object getInstance() {
+            if (instance == null) {
+                instance = delegate.resolveInstance(container, adapter, expectedType);
+                if (instance == null) {
+                    throw new PicoInitializationException("Lazy dependency of type "
+                            + expectedType.getName() + " cannot be resolved anymore");
+                }
+            }
+            return instance;
+        }
+    }
+}
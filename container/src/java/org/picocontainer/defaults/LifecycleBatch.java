@@ -0,0 +1,120 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A set of lifecycle tasks run concurrently on a {@link LifecycleExecutor}. The calling thread
+ * takes part in the work and runs pending tasks itself, before it waits for the tasks taken by the
+ * executor. Nested batches sharing a bounded executor therefore cannot starve each other.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+final class LifecycleBatch {
+    private final LinkedList pending = new LinkedList();
+    private final List failures = new ArrayList();
+    private int running;
+
+    /**
+     * Add a task to the batch.
+     *
+     * @param task the task
+     */
+    void add(Runnable task) {
+        pending.addLast(task);
+    }
+
+    /**
+     * Run all tasks of the batch and wait for their completion.
+     *
+     * @param executor the executor providing the additional threads
+     * @return the {@link RuntimeException RuntimeExceptions} and {@link Error Errors} thrown by the
+     *         tasks, in the order of their occurrence
+     */
+    List run(LifecycleExecutor executor) {
+        final int helpers;
+        synchronized (this) {
+            helpers = pending.size() - 1;
+        }
+        for (int i = 0; i < helpers; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    drain();
+                }
+            });
+        }
+        drain();
+        boolean interrupted = false;
+        synchronized (this) {
+            while (running > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failures;
+    }
+
+    /**
+     * Rethrow the failures of a batch. A single failure is rethrown as it is, several ones are
+     * collected in a {@link ConcurrentLifecycleException}.
+     *
+     * @param failures the failures returned by {@link #run(LifecycleExecutor)}
+     */
+    static void rethrow(List failures) {
+        if (failures.size() > 1) {
+            throw new ConcurrentLifecycleException(failures);
+        } else if (failures.size() == 1) {
+            final Object failure = failures.get(0);
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (RuntimeException) failure;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            final Runnable task;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                task = (Runnable) pending.removeFirst();
+                running++;
+            }
+            Throwable failure = null;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = e;
+            } finally {
+                synchronized (this) {
+                    if (failure != null) {
+                        failures.add(failure);
+                    }
+                    running--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
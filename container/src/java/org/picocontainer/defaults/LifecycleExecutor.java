@@ -0,0 +1,29 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+/**
+ * Runs the lifecycle methods of the components in a container concurrently. A container calls
+ * the executor for some of the tasks of a lifecycle phase and runs the remaining tasks itself,
+ * so an executor may run a task in any thread including the calling one.
+ *
+ * @version $Revision$
+ * @see DefaultPicoContainer#setLifecycleExecutor(LifecycleExecutor)
+ * @since 1.4
+ */
+public interface LifecycleExecutor {
+
+    /**
+     * Run a task at some time in the future.
+     *
+     * @param task the task to run
+     */
+    void execute(Runnable task);
+}
@@ -0,0 +1,91 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+/**
+ * The stack of the dependency resolutions in progress for the current thread. All component
+ * adapters of a thread share a single stack. A resolution pushes a frame object, typically the
+ * guard of an adapter, that is compared by identity with the frames already on the stack. A frame
+ * found twice is a dependency cycle, that is reported with the complete path of the resolution.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+final class ResolutionStack {
+    private static final ThreadLocal STACKS = new ThreadLocal() {
+        protected Object initialValue() {
+            return new ResolutionStack();
+        }
+    };
+
+    private Object[] frames = new Object[16];
+    private Class[] types = new Class[16];
+    private int size;
+
+    private ResolutionStack() {
+    }
+
+    /**
+     * Retrieve the stack of the current thread.
+     *
+     * @return the stack
+     */
+    static ResolutionStack current() {
+        return (ResolutionStack) STACKS.get();
+    }
+
+    /**
+     * Push a frame on the stack.
+     *
+     * @param frame the frame
+     * @param type the type resolved by the frame
+     * @throws CyclicDependencyException if the frame is already on the stack
+     */
+    void push(Object frame, Class type) {
+        for (int i = 0; i < size; i++) {
+            if (frames[i] == frame) {
+                throw newCyclicDependencyException(type);
+            }
+        }
+        if (size == frames.length) {
+            final Object[] newFrames = new Object[size * 2];
+            System.arraycopy(frames, 0, newFrames, 0, size);
+            frames = newFrames;
+            final Class[] newTypes = new Class[size * 2];
+            System.arraycopy(types, 0, newTypes, 0, size);
+            types = newTypes;
+        }
+        frames[size] = frame;
+        types[size] = type;
+        size++;
+    }
+
+    /**
+     * Remove the top frame from the stack.
+     */
+    void pop() {
+        size--;
+        frames[size] = null;
+        types[size] = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private CyclicDependencyException newCyclicDependencyException(Class type) {
+        // the dependencies are reported starting with the innermost one
+        final CyclicDependencyException exception = new CyclicDependencyException(type);
+        for (int i = size - 1; i >= 0; i--) {
+            exception.push(types[i]);
+        }
+        return exception;
+    }
+}
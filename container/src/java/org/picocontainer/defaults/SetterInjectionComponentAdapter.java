@@ -9,6 +9,7 @@
  *****************************************************************************/
 package org.picocontainer.defaults;
 
+import org.picocontainer.ComponentAdapter;
 import org.picocontainer.ComponentMonitor;
 import org.picocontainer.Parameter;
 import org.picocontainer.PicoContainer;
@@ -36,6 +37,10 @@ import java.util.Set;
  * use a {@link CachingComponentAdapter} around this one.
  * </em>
  * </p>
+ * <p>
+ * The adapter matches the parameters to the setters once and reuses the result as long as the
+ * generation of the container's component registry does not change.
+ * </p>
  *
  * @author Aslak Helles&oslash;y
  * @author J&ouml;rg Schaible
@@ -43,10 +48,13 @@ import java.util.Set;
  * @version $Revision$
  */
 public class SetterInjectionComponentAdapter extends InstantiatingComponentAdapter {
-    private transient Guard instantiationGuard;
-    private transient List setters;
+    private transient ResolutionGuard instantiationGuard;
+    private transient ResolutionGuard verificationGuard;
+    private transient Constructor constructor;
+    private transient Method[] setters;
     private transient List setterNames;
     private transient Class[] setterTypes;
+    private transient volatile InjectionPlan injectionPlan;
 
     /**
      * Constructs a SetterInjectionComponentAdapter
@@ -121,11 +129,14 @@ public class SetterInjectionComponentAdapter extends InstantiatingComponentAdapt
 
     protected Constructor getGreediestSatisfiableConstructor(PicoContainer container) throws PicoIntrospectionException, UnsatisfiableDependenciesException, AmbiguousComponentResolutionException, AssignabilityRegistrationException, NotConcreteRegistrationException {
         final Constructor constructor = getConstructor();
-        getMatchingParameterListForSetters(container);
+        getInjectionPlan(container);
         return constructor;
     }
 
     private Constructor getConstructor() throws PicoInvocationTargetInitializationException {
+        if (constructor != null) {
+            return constructor;
+        }
         Object retVal = AccessController.doPrivileged(new PrivilegedAction() {
             public Object run() {
                 try {
@@ -138,7 +149,8 @@ public class SetterInjectionComponentAdapter extends InstantiatingComponentAdapt
             }
         });
         if (retVal instanceof Constructor) {
-            return (Constructor) retVal;
+            constructor = (Constructor) retVal;
+            return constructor;
         } else {
             throw (PicoInitializationException) retVal;
         }
@@ -149,7 +161,7 @@ public class SetterInjectionComponentAdapter extends InstantiatingComponentAdapt
             initializeSetterAndTypeLists();
         }
 
-        final List matchingParameterList = new ArrayList(Collections.nCopies(setters.size(), null));
+        final List matchingParameterList = new ArrayList(Collections.nCopies(setters.length, null));
         final Set nonMatchingParameterPositions = new HashSet();
         final Parameter[] currentParameters = parameters != null ? parameters : createDefaultParameters(setterTypes);
         for (int i = 0; i < currentParameters.length; i++) {
@@ -181,12 +193,49 @@ public class SetterInjectionComponentAdapter extends InstantiatingComponentAdapt
         return (Parameter[]) matchingParameterList.toArray(new Parameter[matchingParameterList.size()]);
     }
 
+    /**
+     * Retrieve the plan to inject the dependencies of the component. A plan is reused as long as the
+     * generation of the container's component registry does not change and all parameters are
+     * resolved by the standard {@link Parameter} implementations. Otherwise the parameters are
+     * matched to the setters again.
+     *
+     * @param container the container to resolve the dependencies
+     * @return the plan
+     */
+    private InjectionPlan getInjectionPlan(PicoContainer container) {
+        final long generation = container instanceof ComponentRegistryGeneration
+                ? ((ComponentRegistryGeneration) container).getComponentRegistryGeneration()
+                : ComponentRegistryGeneration.UNTRACKED;
+        InjectionPlan plan = injectionPlan;
+        if (plan != null && plan.container == container && plan.generation == generation) {
+            return plan;
+        }
+        plan = compileInjectionPlan(container, generation);
+        if (generation != ComponentRegistryGeneration.UNTRACKED && hasStableParameters()) {
+            injectionPlan = plan;
+        }
+        return plan;
+    }
+
+    private InjectionPlan compileInjectionPlan(PicoContainer container, long generation) {
+        final Parameter[] matchingParameters = getMatchingParameterListForSetters(container);
+        final ComponentAdapter[] targetAdapters = new ComponentAdapter[matchingParameters.length];
+        for (int i = 0; i < matchingParameters.length; i++) {
+            final Class parameterClass = matchingParameters[i].getClass();
+            if (parameterClass == ComponentParameter.class || parameterClass == BasicComponentParameter.class) {
+                // a null adapter means the ComponentParameter resolves a collection
+                targetAdapters[i] = ((BasicComponentParameter) matchingParameters[i]).resolveAdapter(container, this, setterTypes[i]);
+            }
+        }
+        return new InjectionPlan(container, generation, setters, setterTypes, matchingParameters, targetAdapters);
+    }
+
     public Object getComponentInstance(final PicoContainer container) throws PicoInitializationException, PicoIntrospectionException, AssignabilityRegistrationException, NotConcreteRegistrationException {
         final Constructor constructor = getConstructor();
         if (instantiationGuard == null) {
-            instantiationGuard = new Guard() {
-                public Object run() {
-                    final Parameter[] matchingParameters = getMatchingParameterListForSetters(guardedContainer);
+            instantiationGuard = new ResolutionGuard() {
+                public Object run(PicoContainer guardedContainer) {
+                    final InjectionPlan plan = getInjectionPlan(guardedContainer);
                     ComponentMonitor componentMonitor = currentMonitor();
                     Object componentInstance;
                     long startTime = System.currentTimeMillis();
@@ -215,13 +264,13 @@ public class SetterInjectionComponentAdapter extends InstantiatingComponentAdapt
                         ///CLOVER:ON
                     }
                     Method setter = null;
-                    Object injected[] = new Object[setters.size()];
+                    Object injected[] = new Object[plan.setters.length];
                     try {
-                        for (int i = 0; i < setters.size(); i++) {
-                            setter = (Method) setters.get(i);
+                        for (int i = 0; i < plan.setters.length; i++) {
+                            setter = plan.setters[i];
                             componentMonitor.invoking(setter, componentInstance);
-                            Object toInject = matchingParameters[i].resolveInstance(guardedContainer, SetterInjectionComponentAdapter.this, setterTypes[i]);
-                            setter.invoke(componentInstance, new Object[]{toInject});
+                            Object toInject = plan.getArgument(i, guardedContainer, SetterInjectionComponentAdapter.this);
+                            invokeSetter(setter, componentInstance, toInject);
                             injected[i] = toInject;
                             //componentMonitor.invoked(setter, componentInstance, System.currentTimeMillis() - startTime);
                         }
@@ -243,15 +292,28 @@ public class SetterInjectionComponentAdapter extends InstantiatingComponentAdapt
                 }
             };
         }
-        instantiationGuard.setArguments(container);
-        return instantiationGuard.observe(getComponentImplementation());
+        return instantiationGuard.observe(getComponentImplementation(), container);
+    }
+
+    /**
+     * Inject a dependency into the component by calling the setter.
+     *
+     * @param setter the setter to call
+     * @param componentInstance the component
+     * @param value the dependency to inject
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException
+     * @since 1.4
+     */
+    protected void invokeSetter(Method setter, Object componentInstance, Object value) throws IllegalAccessException, InvocationTargetException {
+        setter.invoke(componentInstance, new Object[]{value});
     }
 
     public void verify(final PicoContainer container) throws PicoIntrospectionException {
-        if (verifyingGuard == null) {
-            verifyingGuard = new Guard() {
-                public Object run() {
-                    final Parameter[] currentParameters = getMatchingParameterListForSetters(guardedContainer);
+        if (verificationGuard == null) {
+            verificationGuard = new ResolutionGuard() {
+                public Object run(PicoContainer guardedContainer) {
+                    final Parameter[] currentParameters = getInjectionPlan(guardedContainer).parameters;
                     for (int i = 0; i < currentParameters.length; i++) {
                         currentParameters[i].verify(container, SetterInjectionComponentAdapter.this, setterTypes[i]);
                     }
@@ -259,12 +321,11 @@ public class SetterInjectionComponentAdapter extends InstantiatingComponentAdapt
                 }
             };
         }
-        verifyingGuard.setArguments(container);
-        verifyingGuard.observe(getComponentImplementation());
+        verificationGuard.observe(getComponentImplementation(), container);
     }
 
     private void initializeSetterAndTypeLists() {
-        setters = new ArrayList();
+        final List setterList = new ArrayList();
         setterNames = new ArrayList();
         final List typeList = new ArrayList();
         final Method[] methods = getMethods();
@@ -277,13 +338,43 @@ public class SetterInjectionComponentAdapter extends InstantiatingComponentAdapt
                 boolean isBeanStyle = methodName.length() >= 4 && methodName.startsWith("set") && Character.isUpperCase(methodName.charAt(3));
                 if (isBeanStyle) {
                     String attribute = Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
-                    setters.add(method);
+                    setterList.add(method);
                     setterNames.add(attribute);
                     typeList.add(parameterTypes[0]);
                 }
             }
         }
         setterTypes = (Class[]) typeList.toArray(new Class[0]);
+        setters = (Method[]) setterList.toArray(new Method[setterList.size()]);
+    }
+
+    /**
+     * The setters of the component with the parameters matched to them in a generation of the
+     * container's registry.
+     */
+    private static final class InjectionPlan {
+        private final PicoContainer container;
+        private final long generation;
+        private final Method[] setters;
+        private final Class[] setterTypes;
+        private final Parameter[] parameters;
+        private final ComponentAdapter[] targetAdapters;
+
+        private InjectionPlan(PicoContainer container, long generation, Method[] setters, Class[] setterTypes, Parameter[] parameters, ComponentAdapter[] targetAdapters) {
+            this.container = container;
+            this.generation = generation;
+            this.setters = setters;
+            this.setterTypes = setterTypes;
+            this.parameters = parameters;
+            this.targetAdapters = targetAdapters;
+        }
+
+        private Object getArgument(int index, PicoContainer container, ComponentAdapter adapter) {
+            if (targetAdapters[index] != null) {
+                return container.getComponentInstance(targetAdapters[index].getComponentKey());
+            }
+            return parameters[index].resolveInstance(container, adapter, setterTypes[index]);
+        }
     }
 
     private Method[] getMethods() {
@@ -12,11 +12,14 @@ package org.picocontainer.defaults;
 import java.io.Serializable;
 
 /**
+ * An {@link ObjectReference} holding the object in a field. The field is volatile, an assigned object is
+ * therefore visible to any thread calling {@link #get()} without further synchronization.
+ *
  * @author Aslak Helles&oslash;y
  * @version $Revision$
  */
 public class SimpleReference implements ObjectReference, Serializable {
-    private Object instance;
+    private volatile Object instance;
 
     public Object get() {
         return instance;
@@ -16,6 +16,8 @@ package org.picocontainer.defaults;
  * The method will be called by  {@link ThreadLocalCyclicDependencyGuard#observe}. Select
  * an appropriate guard for your scope. Any {@link ObjectReference} can be 
  * used as long as it is initialized with  <code>Boolean.FALSE</code>.
+ * The {@link InstantiatingComponentAdapter} implementations do no longer use this guard,
+ * they share a single resolution stack per thread.
  * 
  * @author J&ouml;rg Schaible
  * @since 1.1
@@ -0,0 +1,102 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.io.Serializable;
+import java.util.LinkedList;
+
+/**
+ * A {@link LifecycleExecutor} running the tasks on a bounded number of daemon threads. The
+ * threads are created on demand and terminate after they have been idle for a second, so an
+ * executor that is no longer used does not need to be shut down.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public class ThreadPoolLifecycleExecutor implements LifecycleExecutor, Serializable {
+    /**
+     * The number of threads used by the default constructor.
+     */
+    public static final int DEFAULT_MAXIMUM_THREADS = 4;
+    private static final long KEEP_ALIVE = 1000;
+
+    private final int maximumThreads;
+    private final Object lock = new Object[0]; // an array is used since it is serializable
+    private transient LinkedList queue;
+    private transient int threads;
+    private transient int idleThreads;
+
+    /**
+     * Construct an executor with a maximum number of threads.
+     *
+     * @param maximumThreads the maximum number of threads running tasks at the same time
+     * @throws IllegalArgumentException if the number is not positive
+     */
+    public ThreadPoolLifecycleExecutor(int maximumThreads) {
+        if (maximumThreads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        this.maximumThreads = maximumThreads;
+    }
+
+    /**
+     * Construct an executor with {@link #DEFAULT_MAXIMUM_THREADS} threads.
+     */
+    public ThreadPoolLifecycleExecutor() {
+        this(DEFAULT_MAXIMUM_THREADS);
+    }
+
+    public void execute(Runnable task) {
+        synchronized (lock) {
+            if (queue == null) {
+                queue = new LinkedList();
+            }
+            queue.addLast(task);
+            if (queue.size() > idleThreads && threads < maximumThreads) {
+                threads++;
+                final Thread worker = new Thread(new Worker(), "PicoContainer lifecycle " + threads);
+                worker.setDaemon(true);
+                worker.start();
+            } else {
+                lock.notify();
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        public void run() {
+            while (true) {
+                final Runnable task;
+                synchronized (lock) {
+                    if (queue.isEmpty()) {
+                        idleThreads++;
+                        try {
+                            lock.wait(KEEP_ALIVE);
+                        } catch (InterruptedException e) {
+                            // terminate unless there is work left
+                        } finally {
+                            idleThreads--;
+                        }
+                        if (queue.isEmpty()) {
+                            threads--;
+                            return;
+                        }
+                    }
+                    task = (Runnable) queue.removeFirst();
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // the tasks of a container report their own failures
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,17 @@
 package org.picocontainer.defaults;
 
+import java.beans.PropertyEditorManager;
+import java.beans.PropertyEditorSupport;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
 import junit.framework.TestCase;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.PicoInitializationException;
 import org.picocontainer.testmodel.CoupleBean;
+import org.picocontainer.testmodel.SimpleTouchable;
+import org.picocontainer.testmodel.Touchable;
 
 /**
  *
@@ -18,4 +28,118 @@ public class BeanPropertyComponentAdapterTestCase extends TestCase {
         assertEquals("Charles", ((CoupleBean) c).getPersonB().getName());
     }
 
+    public static class Shade {
+        private final String name;
+
+        public Shade(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class TextToShadeConverter extends PropertyEditorSupport {
+        public void setAsText(String text) {
+            setValue(new Shade(text));
+        }
+    }
+
+    public void testPropertyEditorRegisteredAfterConversionIsUsed() throws ClassNotFoundException {
+        assertNull(BeanPropertyComponentAdapter.convert(Shade.class.getName(), "dark", getClass().getClassLoader()));
+        PropertyEditorManager.registerEditor(Shade.class, TextToShadeConverter.class);
+        try {
+            final Object shade = BeanPropertyComponentAdapter.convert(Shade.class.getName(), "dark", getClass().getClassLoader());
+            assertTrue(shade instanceof Shade);
+            assertEquals("dark", ((Shade) shade).name);
+        } finally {
+            PropertyEditorManager.registerEditor(Shade.class, null);
+        }
+    }
+
+    public static class Configured {
+        private URL url;
+        private int count;
+        private CoupleBean couple;
+        private Touchable touchable;
+
+        public void setUrl(URL url) {
+            this.url = url;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public void setCouple(CoupleBean couple) {
+            this.couple = couple;
+        }
+
+        public void setTouchable(Touchable touchable) {
+            this.touchable = touchable;
+        }
+    }
+
+    private BeanPropertyComponentAdapter createConfiguredAdapter(Map properties) {
+        BeanPropertyComponentAdapter adapter = new BeanPropertyComponentAdapter(
+                new ConstructorInjectionComponentAdapter(Configured.class, Configured.class));
+        adapter.setProperties(properties);
+        return adapter;
+    }
+
+    public void testConvertedValuesAreSharedByAllInstances() throws Exception {
+        Map properties = new HashMap();
+        properties.put("url", "http://www.picocontainer.org/");
+        properties.put("count", "42");
+        BeanPropertyComponentAdapter adapter = createConfiguredAdapter(properties);
+        Configured first = (Configured) adapter.getComponentInstance(null);
+        Configured second = (Configured) adapter.getComponentInstance(null);
+        assertEquals(new URL("http://www.picocontainer.org/"), first.url);
+        assertEquals(42, first.count);
+        assertSame(first.url, second.url);
+        assertEquals(42, second.count);
+    }
+
+    public void testValuesOfPropertyEditorsAreConvertedForEveryInstance() {
+        Map properties = new HashMap();
+        properties.put("couple", "a's name:Camilla;b's name:Charles;");
+        BeanPropertyComponentAdapter adapter = createConfiguredAdapter(properties);
+        Configured first = (Configured) adapter.getComponentInstance(null);
+        Configured second = (Configured) adapter.getComponentInstance(null);
+        assertEquals("Camilla", first.couple.getPersonA().getName());
+        assertEquals("Charles", second.couple.getPersonB().getName());
+        assertNotSame(first.couple, second.couple);
+    }
+
+    public void testComponentKeysAreResolvedForEveryInstance() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation("touchable", SimpleTouchable.class);
+        Map properties = new HashMap();
+        properties.put("touchable", "touchable");
+        BeanPropertyComponentAdapter adapter = createConfiguredAdapter(properties);
+        assertSame(pico.getComponentInstance("touchable"), ((Configured) adapter.getComponentInstance(pico)).touchable);
+        pico.unregisterComponent("touchable");
+        pico.registerComponentImplementation("touchable", SimpleTouchable.class);
+        assertSame(pico.getComponentInstance("touchable"), ((Configured) adapter.getComponentInstance(pico)).touchable);
+    }
+
+    public void testNewPropertiesAreBoundAgain() {
+        Map properties = new HashMap();
+        properties.put("count", "1");
+        BeanPropertyComponentAdapter adapter = createConfiguredAdapter(properties);
+        assertEquals(1, ((Configured) adapter.getComponentInstance(null)).count);
+        properties = new HashMap();
+        properties.put("count", "2");
+        adapter.setProperties(properties);
+        assertEquals(2, ((Configured) adapter.getComponentInstance(null)).count);
+    }
+
+    public void testPropertyWithoutSetterFails() {
+        Map properties = new HashMap();
+        properties.put("unknown", "value");
+        BeanPropertyComponentAdapter adapter = createConfiguredAdapter(properties);
+        try {
+            adapter.getComponentInstance(null);
+            fail("PicoInitializationException expected");
+        } catch (PicoInitializationException e) {
+            assertTrue(e.getMessage().indexOf("unknown") >= 0);
+        }
+    }
 }
@@ -11,6 +11,7 @@ import org.jmock.Mock;
 import org.jmock.MockObjectTestCase;
 import org.picocontainer.ComponentAdapter;
 import org.picocontainer.PicoContainer;
+import org.picocontainer.PicoInitializationException;
 import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.testmodel.SimpleTouchable;
 import org.picocontainer.testmodel.Touchable;
@@ -157,6 +158,121 @@ public class CachingComponentAdapterTestCase extends MockObjectTestCase {
         return (ComponentAdapter)mock.proxy();
     }
 
+    public static class SlowlyInstantiated {
+        static int instances;
+
+        public SlowlyInstantiated() throws InterruptedException {
+            synchronized (SlowlyInstantiated.class) {
+                instances++;
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    public void testComponentIsInstantiatedOnceByConcurrentThreads() throws InterruptedException {
+        SlowlyInstantiated.instances = 0;
+        final CachingComponentAdapter adapter = new CachingComponentAdapter(
+                new ConstructorInjectionComponentAdapter(SlowlyInstantiated.class, SlowlyInstantiated.class),
+                new SimpleReference(), true);
+        final PicoContainer pico = new DefaultPicoContainer();
+        final Object[] instances = new Object[8];
+        Thread[] threads = new Thread[instances.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    instances[index] = adapter.getComponentInstance(pico);
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertEquals(1, SlowlyInstantiated.instances);
+        for (int i = 0; i < instances.length; i++) {
+            assertSame(instances[0], instances[i]);
+        }
+    }
+
+    public static class Chicken {
+        public Chicken(Egg egg) {
+        }
+    }
+
+    public static class Egg {
+        public Egg(Chicken chicken) {
+        }
+    }
+
+    /**
+     * Delegate, that lets two threads meet before they instantiate their components.
+     */
+    public static class MeetingComponentAdapter extends DecoratingComponentAdapter {
+        private final int[] arrivals;
+
+        public MeetingComponentAdapter(ComponentAdapter delegate, int[] arrivals) {
+            super(delegate);
+            this.arrivals = arrivals;
+        }
+
+        public Object getComponentInstance(PicoContainer container) {
+            synchronized (arrivals) {
+                if (arrivals[0] < 2) {
+                    arrivals[0]++;
+                    arrivals.notifyAll();
+                    try {
+                        while (arrivals[0] < 2) {
+                            arrivals.wait();
+                        }
+                    } catch (InterruptedException e) {
+                        throw new PicoInitializationException(e);
+                    }
+                }
+            }
+            return super.getComponentInstance(container);
+        }
+    }
+
+    public void testCyclicDependencyResolvedByConcurrentThreadsFailsInsteadOfDeadlock() throws InterruptedException {
+        final MutablePicoContainer pico = new DefaultPicoContainer();
+        final int[] arrivals = new int[1];
+        pico.registerComponent(new CachingComponentAdapter(new MeetingComponentAdapter(
+                new ConstructorInjectionComponentAdapter(Chicken.class, Chicken.class), arrivals), new SimpleReference(), true));
+        pico.registerComponent(new CachingComponentAdapter(new MeetingComponentAdapter(
+                new ConstructorInjectionComponentAdapter(Egg.class, Egg.class), arrivals), new SimpleReference(), true));
+        final Class[] keys = new Class[]{Chicken.class, Egg.class};
+        final Object[] failures = new Object[keys.length];
+        final Thread[] threads = new Thread[keys.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        pico.getComponentInstance(keys[index]);
+                    } catch (RuntimeException e) {
+                        failures[index] = e;
+                    }
+                }
+            };
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join(10000);
+            assertFalse("Deadlock", threads[i].isAlive());
+            assertTrue(failures[i] instanceof CyclicDependencyException);
+        }
+    }
+
+    public void testFactoryCreatesAdaptersInstantiatingOnce() {
+        MutablePicoContainer pico = new DefaultPicoContainer(new CachingComponentAdapterFactory(
+                new ConstructorInjectionComponentAdapterFactory(), true));
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        assertTrue(pico.getComponentAdapter(Touchable.class) instanceof CachingComponentAdapter);
+        assertSame(pico.getComponentInstance(Touchable.class), pico.getComponentInstance(Touchable.class));
+    }
+
     private ComponentAdapter mockComponentAdapterSupportingLifecycleStrategy(
             boolean start, boolean stop, boolean dispose) {
         boolean hasLifecycle = start || stop || dispose;
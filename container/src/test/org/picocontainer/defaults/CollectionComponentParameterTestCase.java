@@ -5,12 +5,14 @@ import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.Parameter;
 import org.picocontainer.PicoContainer;
 import org.picocontainer.PicoIntrospectionException;
+import org.picocontainer.alternatives.EmptyPicoContainer;
 import org.picocontainer.testmodel.SimpleTouchable;
 import org.picocontainer.testmodel.Touchable;
 
 import org.jmock.Mock;
 import org.jmock.MockObjectTestCase;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -306,6 +308,173 @@ public class CollectionComponentParameterTestCase
         parameterEmpty.verify(pico, null, Cod[].class);
     }
 
+    public static class CountingCollectionComponentParameter extends CollectionComponentParameter {
+        private int collections;
+
+        protected Map getMatchingComponentAdapters(PicoContainer container, ComponentAdapter adapter, Class keyType, Class valueType) {
+            collections++;
+            return super.getMatchingComponentAdapters(container, adapter, keyType, valueType);
+        }
+    }
+
+    public static class Aquarium {
+        private final Fish[] fishes;
+
+        public Aquarium(Fish[] fishes) {
+            this.fishes = fishes;
+        }
+    }
+
+    private ComponentAdapter registerAquarium(MutablePicoContainer pico, Parameter parameter) {
+        return pico.registerComponent(new ConstructorInjectionComponentAdapter("aquarium", Aquarium.class, new Parameter[]{parameter}));
+    }
+
+    public void testMatchingAdaptersAreCollectedAgainOnlyAfterRegistryChanges() {
+        MutablePicoContainer parent = new DefaultPicoContainer();
+        parent.registerComponentImplementation("Tom", Cod.class);
+        MutablePicoContainer child = new DefaultPicoContainer(parent);
+        child.registerComponentImplementation("Dick", Shark.class);
+        CountingCollectionComponentParameter parameter = new CountingCollectionComponentParameter();
+        registerAquarium(child, parameter);
+        assertEquals(2, ((Aquarium) child.getComponentInstance("aquarium")).fishes.length);
+        int collections = parameter.collections;
+        assertEquals(2, ((Aquarium) child.getComponentInstance("aquarium")).fishes.length);
+        assertEquals(collections, parameter.collections);
+
+        parent.registerComponentImplementation("Harry", Cod.class);
+        assertEquals(3, ((Aquarium) child.getComponentInstance("aquarium")).fishes.length);
+        assertTrue(collections < parameter.collections);
+        collections = parameter.collections;
+        child.unregisterComponent("Dick");
+        assertEquals(2, ((Aquarium) child.getComponentInstance("aquarium")).fishes.length);
+        assertTrue(collections < parameter.collections);
+    }
+
+    public void testSharedParameterKeepsNoAdaptersOfAContainer() {
+        CountingCollectionComponentParameter parameter = new CountingCollectionComponentParameter();
+        MutablePicoContainer[] containers = new MutablePicoContainer[40];
+        for (int i = 0; i < containers.length; i++) {
+            containers[i] = new DefaultPicoContainer();
+            for (int j = 0; j <= i % 3; j++) {
+                containers[i].registerComponentImplementation("fish" + j, Cod.class);
+            }
+            registerAquarium(containers[i], parameter);
+            assertEquals(i % 3 + 1, ((Aquarium) containers[i].getComponentInstance("aquarium")).fishes.length);
+        }
+        final int collections = parameter.collections;
+        for (int i = 0; i < containers.length; i++) {
+            assertEquals(i % 3 + 1, ((Aquarium) containers[i].getComponentInstance("aquarium")).fishes.length);
+        }
+        assertEquals(collections, parameter.collections);
+        // the parameter itself collects on every call
+        parameter.resolveInstance(containers[0], null, Fish[].class);
+        parameter.resolveInstance(containers[0], null, Fish[].class);
+        assertEquals(collections + 2, parameter.collections);
+    }
+
+    public void testMatchingAdaptersAreNotKeptForContainerWithoutRegistryGeneration() {
+        MutablePicoContainer pico = new DefaultPicoContainer(new EmptyPicoContainer());
+        pico.registerComponentImplementation(Shark.class);
+        CountingCollectionComponentParameter parameter = new CountingCollectionComponentParameter();
+        registerAquarium(pico, parameter);
+        pico.getComponentInstance("aquarium");
+        final int collections = parameter.collections;
+        pico.getComponentInstance("aquarium");
+        assertEquals(2 * collections, parameter.collections);
+    }
+
+    public static class CountingFish implements Fish {
+        public CountingFish(ArrayList instantiations) {
+            instantiations.add(this);
+        }
+    }
+
+    public static class LazyBowl {
+        private final List fishes;
+        private final Map fishesByKey;
+
+        public LazyBowl(List fishes, Map fishesByKey) {
+            this.fishes = fishes;
+            this.fishesByKey = fishesByKey;
+        }
+    }
+
+    private MutablePicoContainer getLazyBowlContainer(ArrayList instantiations) {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentInstance(instantiations);
+        pico.registerComponentImplementation("Tom", CountingFish.class);
+        pico.registerComponentImplementation("Dick", CountingFish.class);
+        pico.registerComponentImplementation("Harry", CountingFish.class);
+        CollectionComponentParameter lazy = new CollectionComponentParameter(Object.class, Fish.class, false, true);
+        pico.registerComponentImplementation(LazyBowl.class, LazyBowl.class, new Parameter[]{lazy, lazy});
+        return pico;
+    }
+
+    public void testLazyListInstantiatesElementsOnFirstAccess() {
+        ArrayList instantiations = new ArrayList();
+        MutablePicoContainer pico = getLazyBowlContainer(instantiations);
+        LazyBowl bowl = (LazyBowl) pico.getComponentInstance(LazyBowl.class);
+        assertEquals(3, bowl.fishes.size());
+        assertEquals(0, instantiations.size());
+        Object dick = bowl.fishes.get(1);
+        assertSame(pico.getComponentInstance("Dick"), dick);
+        assertSame(dick, bowl.fishes.get(1));
+        assertEquals(1, instantiations.size());
+        assertSame(pico.getComponentInstance("Tom"), bowl.fishes.get(0));
+        assertSame(pico.getComponentInstance("Harry"), bowl.fishes.get(2));
+        assertEquals(3, instantiations.size());
+    }
+
+    public void testLazyMapInstantiatesValuesOnFirstAccess() {
+        ArrayList instantiations = new ArrayList();
+        MutablePicoContainer pico = getLazyBowlContainer(instantiations);
+        LazyBowl bowl = (LazyBowl) pico.getComponentInstance(LazyBowl.class);
+        assertEquals(3, bowl.fishesByKey.size());
+        assertTrue(bowl.fishesByKey.containsKey("Harry"));
+        assertFalse(bowl.fishesByKey.containsKey("Sally"));
+        assertEquals(Arrays.asList(new String[]{"Tom", "Dick", "Harry"}), new ArrayList(bowl.fishesByKey.keySet()));
+        assertEquals(0, instantiations.size());
+        assertSame(pico.getComponentInstance("Harry"), bowl.fishesByKey.get("Harry"));
+        assertNull(bowl.fishesByKey.get("Sally"));
+        assertEquals(1, instantiations.size());
+        Map.Entry entry = (Map.Entry) bowl.fishesByKey.entrySet().iterator().next();
+        assertEquals("Tom", entry.getKey());
+        assertEquals(1, instantiations.size());
+        assertSame(pico.getComponentInstance("Tom"), entry.getValue());
+        assertEquals(2, instantiations.size());
+    }
+
+    public void testLazyViewsAreReadOnly() {
+        LazyBowl bowl = (LazyBowl) getLazyBowlContainer(new ArrayList()).getComponentInstance(LazyBowl.class);
+        try {
+            bowl.fishes.add(new Cod());
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            bowl.fishesByKey.put("Sally", new Cod());
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            bowl.fishesByKey.keySet().iterator().remove();
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void testLazyModeResolvesArraysAndSetsEagerly() {
+        ArrayList instantiations = new ArrayList();
+        MutablePicoContainer pico = getLazyBowlContainer(instantiations);
+        CollectionComponentParameter lazy = new CollectionComponentParameter(Object.class, Fish.class, false, true);
+        assertEquals(3, ((Fish[]) lazy.resolveInstance(pico, null, Fish[].class)).length);
+        assertEquals(3, instantiations.size());
+        assertTrue(lazy.resolveInstance(pico, null, Set.class) instanceof HashSet);
+    }
+
     // PICO-243 : this test will fail if executed on jdk1.3 without commons-collections
     public void testOrderOfElementsOfAnArrayDependencyIsPreserved() {
         MutablePicoContainer pico = new DefaultPicoContainer();
@@ -0,0 +1,133 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.picocontainer.PicoContainer;
+import org.picocontainer.alternatives.EmptyPicoContainer;
+
+/**
+ * @version $Revision$
+ */
+public class ComponentHandleTestCase extends TestCase {
+
+    public static class CountingPicoContainer extends DefaultPicoContainer {
+        private int lookups;
+
+        public CountingPicoContainer() {
+        }
+
+        public CountingPicoContainer(ComponentAdapterFactory componentAdapterFactory) {
+            super(componentAdapterFactory);
+        }
+
+        public CountingPicoContainer(PicoContainer parent) {
+            super(parent);
+        }
+
+        public Object getComponentInstance(Object componentKey) {
+            lookups++;
+            return super.getComponentInstance(componentKey);
+        }
+    }
+
+    public void testCachedInstanceIsReturnedWithoutFurtherLookup() {
+        CountingPicoContainer pico = new CountingPicoContainer();
+        pico.registerComponentImplementation(List.class, ArrayList.class);
+        ComponentHandle handle = pico.getComponentHandle(List.class);
+        assertEquals(List.class, handle.getComponentKey());
+        Object list = handle.get();
+        assertSame(pico.getComponentInstance(List.class), list);
+        int lookups = pico.lookups;
+        assertSame(list, handle.get());
+        assertSame(list, handle.get());
+        assertEquals(lookups, pico.lookups);
+    }
+
+    public void testRegisteredInstanceIsReturned() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentInstance("list", new ArrayList());
+        ComponentHandle handle = pico.getComponentHandle("list");
+        assertSame(pico.getComponentInstance("list"), handle.get());
+        assertSame(handle.get(), handle.get());
+    }
+
+    public void testKeyIsResolvedAgainAfterModificationOfRegistry() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        ComponentHandle handle = pico.getComponentHandle(List.class);
+        assertNull(handle.get());
+        pico.registerComponentImplementation(List.class, ArrayList.class);
+        assertEquals(ArrayList.class, handle.get().getClass());
+        pico.unregisterComponent(List.class);
+        pico.registerComponentImplementation(List.class, LinkedList.class);
+        assertEquals(LinkedList.class, handle.get().getClass());
+        pico.unregisterComponent(List.class);
+        assertNull(handle.get());
+    }
+
+    public void testKeyIsResolvedAgainAfterModificationOfParentRegistry() {
+        DefaultPicoContainer parent = new DefaultPicoContainer();
+        DefaultPicoContainer child = new DefaultPicoContainer(parent);
+        parent.registerComponentImplementation(List.class, ArrayList.class);
+        ComponentHandle handle = child.getComponentHandle(List.class);
+        assertSame(parent.getComponentInstance(List.class), handle.get());
+        parent.unregisterComponent(List.class);
+        parent.registerComponentImplementation(List.class, LinkedList.class);
+        assertEquals(LinkedList.class, handle.get().getClass());
+    }
+
+    public void testInstanceIsRetrievedAgainAfterCacheIsFlushed() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        CachingComponentAdapter adapter = (CachingComponentAdapter) pico.registerComponentImplementation(List.class, ArrayList.class);
+        ComponentHandle handle = pico.getComponentHandle(List.class);
+        Object first = handle.get();
+        adapter.flush();
+        Object second = handle.get();
+        assertNotSame(first, second);
+        assertSame(second, pico.getComponentInstance(List.class));
+    }
+
+    public void testInstanceThatIsNotCachedIsAlwaysRetrieved() {
+        DefaultPicoContainer pico = new DefaultPicoContainer(new ConstructorInjectionComponentAdapterFactory());
+        pico.registerComponentImplementation(List.class, ArrayList.class);
+        ComponentHandle handle = pico.getComponentHandle(List.class);
+        assertNotSame(handle.get(), handle.get());
+    }
+
+    public void testContainerWithoutRegistryGenerationIsAlwaysAsked() {
+        CountingPicoContainer pico = new CountingPicoContainer(new EmptyPicoContainer());
+        pico.registerComponentImplementation(List.class, ArrayList.class);
+        ComponentHandle handle = pico.getComponentHandle(List.class);
+        assertSame(handle.get(), handle.get());
+        assertEquals(2, pico.lookups);
+    }
+
+    public void testHandleOfConcurrentPicoContainer() {
+        ConcurrentPicoContainer pico = new ConcurrentPicoContainer();
+        pico.registerComponentImplementation(List.class, ArrayList.class);
+        ComponentHandle handle = pico.getComponentHandle(List.class);
+        assertSame(pico.getComponentInstance(List.class), handle.get());
+        assertSame(handle.get(), handle.get());
+    }
+
+    public void testContainerMustNotBeNull() {
+        try {
+            new ComponentHandle(null, "key");
+            fail("NPE expected");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.PicoContainer;
+import org.picocontainer.tck.AbstractPicoContainerTestCase;
+import org.picocontainer.testmodel.DependsOnTouchable;
+import org.picocontainer.testmodel.SimpleTouchable;
+import org.picocontainer.testmodel.Touchable;
+
+/**
+ * @version $Revision$
+ */
+public class ConcurrentPicoContainerTestCase extends AbstractPicoContainerTestCase {
+    protected MutablePicoContainer createPicoContainer(PicoContainer parent) {
+        return new ConcurrentPicoContainer(parent);
+    }
+
+    public void testInstantiationWithNullComponentAdapterFactory() {
+        try {
+            new ConcurrentPicoContainer((ComponentAdapterFactory) null, (PicoContainer) null);
+            fail("NPE expected");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+
+    public void testMakeChildContainerCreatesConcurrentContainer() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        assertTrue(pico.makeChildContainer() instanceof ConcurrentPicoContainer);
+    }
+
+    public void testComponentAdaptersAreSnapshots() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        List adapters = new ArrayList(pico.getComponentAdapters());
+        assertEquals(1, adapters.size());
+        ComponentAdapter adapter = pico.registerComponentImplementation(DependsOnTouchable.class);
+        assertEquals(1, adapters.size());
+        assertEquals(2, pico.getComponentAdapters().size());
+        assertSame(adapter, pico.unregisterComponent(DependsOnTouchable.class));
+        assertEquals(1, pico.getComponentAdapters().size());
+        assertNull(pico.unregisterComponent(DependsOnTouchable.class));
+    }
+
+    public void testUnregisteredComponentIsRemovedFromInstantiationOrder() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        pico.registerComponentImplementation(DependsOnTouchable.class);
+        assertEquals(2, pico.getComponentInstances().size());
+        pico.unregisterComponent(DependsOnTouchable.class);
+        assertEquals(1, pico.getComponentInstances().size());
+    }
+
+    public void testReregisteredComponentIsRecordedInInstantiationOrderAgain() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        ComponentAdapter touchable = pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        pico.registerComponentImplementation(DependsOnTouchable.class);
+        for (int i = 0; i < 3; i++) {
+            pico.getComponentInstance(DependsOnTouchable.class);
+        }
+        List instances = pico.getComponentInstances();
+        assertEquals(2, instances.size());
+        assertTrue(instances.get(0) instanceof SimpleTouchable);
+        pico.unregisterComponent(Touchable.class);
+        pico.registerComponent(touchable);
+        instances = pico.getComponentInstances();
+        assertEquals(2, instances.size());
+        assertTrue(instances.get(1) instanceof SimpleTouchable);
+    }
+
+    public void testComponentRegistryGenerationChangesWithRegistrations() {
+        ConcurrentPicoContainer parent = new ConcurrentPicoContainer();
+        ConcurrentPicoContainer child = new ConcurrentPicoContainer(parent);
+        long generation = child.getComponentRegistryGeneration();
+        parent.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        assertTrue(generation != child.getComponentRegistryGeneration());
+        generation = child.getComponentRegistryGeneration();
+        child.registerComponentImplementation(DependsOnTouchable.class);
+        assertTrue(generation != child.getComponentRegistryGeneration());
+    }
+
+    public void testRemovalByInstanceDoesNotInstantiateComponents() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        pico.registerComponentImplementation(DefaultPicoContainerTestCase.NotToBeInstantiated.class);
+        pico.registerComponentImplementation(ArrayList.class);
+        Object list = pico.getComponentInstance(ArrayList.class);
+        assertNull(pico.unregisterComponentByInstance(new ArrayList()));
+        // a later registration publishes a new registry with the same instance index
+        pico.registerComponentInstance("instance", "instance");
+        assertNotNull(pico.unregisterComponentByInstance(list));
+        assertEquals("instance", pico.unregisterComponentByInstance("instance").getComponentKey());
+        assertEquals(1, pico.getComponentAdapters().size());
+    }
+
+    public void testFlushedInstanceIsReplacedByNewInstanceForRemoval() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        CachingComponentAdapter adapter = (CachingComponentAdapter) pico.registerComponentImplementation(ArrayList.class);
+        Object first = pico.getComponentInstance(ArrayList.class);
+        adapter.flush();
+        Object second = pico.getComponentInstance(ArrayList.class);
+        assertNull(pico.unregisterComponentByInstance(first));
+        assertSame(adapter, pico.unregisterComponentByInstance(second));
+        assertNull(pico.unregisterComponentByInstance(second));
+    }
+
+    public static class Component {
+    }
+
+    public void testConcurrentLookupsSeeConsistentRegistryWhileRegistering() throws InterruptedException {
+        final MutablePicoContainer pico = createPicoContainer(null);
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        final Touchable touchable = (Touchable) pico.getComponentInstance(Touchable.class);
+        final List failures = Collections.synchronizedList(new ArrayList());
+        final boolean[] done = new boolean[1];
+        Thread[] readers = new Thread[8];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread() {
+                public void run() {
+                    try {
+                        while (!isDone()) {
+                            if (pico.getComponentInstance(Touchable.class) != touchable) {
+                                failures.add("Touchable not found");
+                            }
+                            final List instances = pico.getComponentInstancesOfType(Component.class);
+                            if (new HashSet(instances).size() != instances.size()) {
+                                failures.add("Duplicate instances: " + instances);
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }
+
+                private boolean isDone() {
+                    synchronized (done) {
+                        return done[0];
+                    }
+                }
+            };
+            readers[i].start();
+        }
+        for (int i = 0; i < 200; i++) {
+            pico.registerComponentImplementation("component" + i, Component.class);
+        }
+        synchronized (done) {
+            done[0] = true;
+        }
+        for (int i = 0; i < readers.length; i++) {
+            readers[i].join();
+        }
+        assertEquals(Collections.EMPTY_LIST, failures);
+        assertEquals(201, pico.getComponentInstances().size());
+    }
+
+    public void testInstantiationOrderIsRecordedOncePerComponentByConcurrentThreads() throws InterruptedException {
+        final MutablePicoContainer pico = createPicoContainer(null);
+        for (int i = 0; i < 50; i++) {
+            pico.registerComponentImplementation("component" + i, Component.class);
+        }
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 50; j++) {
+                        pico.getComponentInstance("component" + j);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        List instances = pico.getComponentInstances();
+        assertEquals(50, instances.size());
+        assertEquals(50, new HashSet(instances).size());
+    }
+}
@@ -22,6 +22,7 @@ import org.picocontainer.ComponentAdapter;
 import org.picocontainer.ComponentMonitor;
 import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.Parameter;
+import org.picocontainer.PicoContainer;
 import org.picocontainer.PicoInitializationException;
 import org.picocontainer.PicoIntrospectionException;
 import org.picocontainer.PicoRegistrationException;
@@ -348,4 +349,139 @@ public class ConstructorInjectionComponentAdapterTestCase extends AbstractCompon
         cica.dispose(touchable);
         assertEquals("<start<stop<dispose", strategy.recording());
     }
+
+    private static class ConstructorSelectionCountingComponentAdapter extends ConstructorInjectionComponentAdapter {
+        private int selections;
+
+        public ConstructorSelectionCountingComponentAdapter(Object componentKey, Class componentImplementation, Parameter[] parameters) {
+            super(componentKey, componentImplementation, parameters);
+        }
+
+        protected Constructor getGreediestSatisfiableConstructor(PicoContainer container) {
+            selections++;
+            return super.getGreediestSatisfiableConstructor(container);
+        }
+    }
+
+    public static class GreedyTouchable {
+        public final Touchable touchable;
+        public final Map map;
+
+        public GreedyTouchable(Touchable touchable) {
+            this(touchable, null);
+        }
+
+        public GreedyTouchable(Touchable touchable, Map map) {
+            this.touchable = touchable;
+            this.map = map;
+        }
+    }
+
+    public void testResolutionPlanIsReusedAsLongAsTheRegistryIsUnchanged() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        ConstructorSelectionCountingComponentAdapter adapter = new ConstructorSelectionCountingComponentAdapter(
+                GreedyTouchable.class, GreedyTouchable.class, null);
+        pico.registerComponent(adapter);
+
+        GreedyTouchable first = (GreedyTouchable) adapter.getComponentInstance(pico);
+        GreedyTouchable second = (GreedyTouchable) adapter.getComponentInstance(pico);
+        assertNotSame(first, second);
+        assertSame(first.touchable, second.touchable);
+        assertNull(second.map);
+        assertEquals(1, adapter.selections);
+    }
+
+    public void testResolutionPlanIsInvalidatedByRegistrationInParent() {
+        MutablePicoContainer parent = new DefaultPicoContainer();
+        parent.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        MutablePicoContainer child = new DefaultPicoContainer(parent);
+        ConstructorSelectionCountingComponentAdapter adapter = new ConstructorSelectionCountingComponentAdapter(
+                GreedyTouchable.class, GreedyTouchable.class, null);
+        child.registerComponent(adapter);
+
+        assertNull(((GreedyTouchable) adapter.getComponentInstance(child)).map);
+        parent.registerComponentImplementation(Map.class, HashMap.class);
+        assertNotNull(((GreedyTouchable) adapter.getComponentInstance(child)).map);
+        assertEquals(2, adapter.selections);
+    }
+
+    public void testResolutionPlanIsInvalidatedByUnregistration() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        pico.registerComponentImplementation(Map.class, HashMap.class);
+        ConstructorSelectionCountingComponentAdapter adapter = new ConstructorSelectionCountingComponentAdapter(
+                GreedyTouchable.class, GreedyTouchable.class, null);
+        pico.registerComponent(adapter);
+
+        assertNotNull(((GreedyTouchable) adapter.getComponentInstance(pico)).map);
+        pico.unregisterComponent(Map.class);
+        assertNull(((GreedyTouchable) adapter.getComponentInstance(pico)).map);
+        assertEquals(2, adapter.selections);
+    }
+
+    public void testResolutionPlanIsNotCachedForCustomParameters() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        Parameter parameter = new ComponentParameter() {
+        };
+        ConstructorSelectionCountingComponentAdapter adapter = new ConstructorSelectionCountingComponentAdapter(
+                GreedyTouchable.class, GreedyTouchable.class, new Parameter[]{parameter});
+        pico.registerComponent(adapter);
+
+        adapter.getComponentInstance(pico);
+        adapter.getComponentInstance(pico);
+        assertEquals(2, adapter.selections);
+    }
+
+    public static class GuardingComponentAdapter extends ConstructorInjectionComponentAdapter {
+        private final Guard guard = new Guard() {
+            public Object run() {
+                return guardedContainer.getComponentInstance(getComponentKey());
+            }
+        };
+
+        public GuardingComponentAdapter(Object componentKey, Class componentImplementation) {
+            super(componentKey, componentImplementation);
+        }
+
+        public Object getComponentInstance(PicoContainer container) {
+            guard.setArguments(container);
+            return guard.observe(getComponentImplementation());
+        }
+    }
+
+    public void testSubclassWithDeprecatedGuardDetectsCycle() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponent(new GuardingComponentAdapter(Touchable.class, SimpleTouchable.class));
+        try {
+            pico.getComponentInstance(Touchable.class);
+            fail("CyclicDependencyException expected");
+        } catch (CyclicDependencyException e) {
+            assertSame(SimpleTouchable.class, e.getDependencies()[0]);
+        }
+    }
+
+    public static class DecoratingArgumentsComponentAdapter extends ConstructorInjectionComponentAdapter {
+        private int calls;
+
+        public DecoratingArgumentsComponentAdapter(Object componentKey, Class componentImplementation) {
+            super(componentKey, componentImplementation);
+        }
+
+        protected Object[] getConstructorArguments(PicoContainer container, Constructor ctor) {
+            calls++;
+            return super.getConstructorArguments(container, ctor);
+        }
+    }
+
+    public void testOverriddenConstructorArgumentsAreUsedWithCachedPlan() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(SimpleTouchable.class);
+        DecoratingArgumentsComponentAdapter adapter = new DecoratingArgumentsComponentAdapter(DependsOnTouchable.class, DependsOnTouchable.class);
+        pico.registerComponent(adapter);
+        adapter.getComponentInstance(pico);
+        adapter.getComponentInstance(pico);
+        assertEquals(2, adapter.calls);
+    }
 }
@@ -498,4 +498,326 @@ public class DefaultPicoContainerLifecycleTestCase extends MockObjectTestCase {
         parent.stop();
 
     }
-}
\ No newline at end of file
+
+    public void testConcurrentStartShouldBeDependencyOrderAndStopTheOpposite() throws Exception {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.setLifecycleExecutor(new ThreadPoolLifecycleExecutor(2));
+        pico.registerComponentImplementation("recording", StringBuffer.class);
+        pico.registerComponentImplementation(Four.class);
+        pico.registerComponentImplementation(Two.class);
+        pico.registerComponentImplementation(One.class);
+        pico.registerComponentImplementation(Three.class);
+
+        pico.start();
+        pico.stop();
+        pico.dispose();
+
+        assertEquals("<One<Two<Three<FourFour>Three>Two>One>!Four!Three!Two!One",
+                pico.getComponentInstance("recording").toString());
+    }
+
+    public static class Rendezvous {
+        private int arrived;
+
+        public synchronized boolean arrive(int parties) throws InterruptedException {
+            arrived++;
+            notifyAll();
+            final long end = System.currentTimeMillis() + 5000;
+            while (arrived < parties && System.currentTimeMillis() < end) {
+                wait(end - System.currentTimeMillis());
+            }
+            return arrived >= parties;
+        }
+    }
+
+    public static class Meeting implements Startable {
+        private final Rendezvous rendezvous;
+        private boolean met;
+
+        public Meeting(Rendezvous rendezvous) {
+            this.rendezvous = rendezvous;
+        }
+
+        public void start() {
+            try {
+                met = rendezvous.arrive(2);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e.getMessage());
+            }
+        }
+
+        public void stop() {
+        }
+    }
+
+    public void testIndependentComponentsAreStartedConcurrently() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.setLifecycleExecutor(new ThreadPoolLifecycleExecutor(2));
+        pico.registerComponentInstance(new Rendezvous());
+        pico.registerComponentImplementation("first", Meeting.class);
+        pico.registerComponentImplementation("second", Meeting.class);
+
+        pico.start();
+
+        assertTrue(((Meeting) pico.getComponentInstance("first")).met);
+        assertTrue(((Meeting) pico.getComponentInstance("second")).met);
+    }
+
+    public void testDisablingLazyStartKeepsTheLifecycleExecutor() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.setLifecycleExecutor(new ThreadPoolLifecycleExecutor(2));
+        pico.setLazyStart(false);
+        pico.registerComponentInstance(new Rendezvous());
+        pico.registerComponentImplementation("first", Meeting.class);
+        pico.registerComponentImplementation("second", Meeting.class);
+
+        pico.start();
+
+        assertTrue(((Meeting) pico.getComponentInstance("first")).met);
+        assertTrue(((Meeting) pico.getComponentInstance("second")).met);
+    }
+
+    public void testLazyStartCannotBeCombinedWithLifecycleExecutor() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.setLifecycleExecutor(new ThreadPoolLifecycleExecutor());
+        try {
+            pico.setLazyStart(true);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        pico = new DefaultPicoContainer();
+        pico.setLazyStart(true);
+        try {
+            pico.setLifecycleExecutor(new ThreadPoolLifecycleExecutor());
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        pico.setLifecycleExecutor(null);
+    }
+
+    public void testComponentsOfAFailedWaveAreStartedAndCanBeStopped() {
+        Mock s1 = mock(Startable.class, "s1");
+        s1.expects(once()).method("start");
+        s1.expects(once()).method("stop");
+
+        Mock s2 = mock(Startable.class, "s2");
+        s2.expects(once()).method("start").will(throwException(new RuntimeException("I do not want to start myself")));
+
+        DefaultPicoContainer dpc = new DefaultPicoContainer();
+        dpc.setLifecycleExecutor(new ThreadPoolLifecycleExecutor());
+        dpc.registerComponentInstance("bar", s2.proxy());
+        dpc.registerComponentInstance("foo", s1.proxy());
+
+        try {
+            dpc.start();
+            fail("PicoLifecycleException expected");
+        } catch (PicoLifecycleException e) {
+            assertEquals("I do not want to start myself", e.getCause().getMessage());
+            dpc.stop();
+        }
+    }
+
+    public void testLifecycleExecutorCannotBeChangedWhenStarted() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.start();
+        try {
+            pico.setLifecycleExecutor(new ThreadPoolLifecycleExecutor());
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testConcurrentChildrenAreStartedAfterAndStoppedAndDisposedBeforeTheirParent() throws Exception {
+        DefaultPicoContainer parent = new DefaultPicoContainer();
+        parent.setChildLifecycleExecutor(new ThreadPoolLifecycleExecutor(2));
+        MutablePicoContainer child = parent.makeChildContainer();
+
+        parent.registerComponentImplementation("recording", StringBuffer.class);
+        child.registerComponentImplementation(Four.class);
+        parent.registerComponentImplementation(Two.class);
+        parent.registerComponentImplementation(One.class);
+        child.registerComponentImplementation(Three.class);
+
+        parent.start();
+        parent.stop();
+        parent.dispose();
+
+        assertEquals("<One<Two<Three<FourFour>Three>Two>One>!Four!Three!Two!One",
+                parent.getComponentInstance("recording").toString());
+    }
+
+    public void testChildContainersAreStartedConcurrently() {
+        DefaultPicoContainer parent = new DefaultPicoContainer();
+        parent.setChildLifecycleExecutor(new ThreadPoolLifecycleExecutor(1));
+        parent.registerComponentInstance(new Rendezvous());
+        MutablePicoContainer first = parent.makeChildContainer();
+        first.registerComponentImplementation(Meeting.class);
+        MutablePicoContainer second = parent.makeChildContainer();
+        second.registerComponentImplementation(Meeting.class);
+
+        parent.start();
+
+        assertTrue(((Meeting) first.getComponentInstance(Meeting.class)).met);
+        assertTrue(((Meeting) second.getComponentInstance(Meeting.class)).met);
+    }
+
+    public static class Shared {
+        public Shared(List instances) {
+            synchronized (instances) {
+                instances.add(this);
+            }
+        }
+    }
+
+    public static class SharingService implements Startable {
+        public SharingService(Shared shared) {
+        }
+        public void start() {
+        }
+        public void stop() {
+        }
+    }
+
+    public void testConcurrentChildrenShareUninstantiatedComponentOfTheirParent() {
+        for (int i = 0; i < 20; ++i) {
+            List instances = new ArrayList();
+            DefaultPicoContainer parent = new DefaultPicoContainer();
+            parent.setChildLifecycleExecutor(new ThreadPoolLifecycleExecutor(8));
+            parent.registerComponentInstance(instances);
+            parent.registerComponentImplementation(Shared.class);
+            for (int j = 0; j < 8; ++j) {
+                parent.makeChildContainer().registerComponentImplementation(SharingService.class);
+            }
+
+            parent.start();
+
+            assertEquals(1, instances.size());
+            assertSame(instances.get(0), parent.getComponentInstance(Shared.class));
+            parent.dispose();
+        }
+    }
+
+    public static class StartableShared extends Shared implements Startable {
+        private int starts;
+
+        public StartableShared(List instances) {
+            super(instances);
+        }
+
+        public synchronized void start() {
+            starts++;
+        }
+
+        public void stop() {
+        }
+    }
+
+    public static class StartableSharingService implements Startable {
+        public StartableSharingService(StartableShared shared) {
+        }
+        public void start() {
+        }
+        public void stop() {
+        }
+    }
+
+    public void testConcurrentChildrenOfLazyParentStartSharedComponentOnce() {
+        for (int i = 0; i < 20; ++i) {
+            List instances = new ArrayList();
+            DefaultPicoContainer parent = new DefaultPicoContainer();
+            parent.setLazyStart(true);
+            parent.setChildLifecycleExecutor(new ThreadPoolLifecycleExecutor(8));
+            parent.registerComponentInstance(instances);
+            parent.registerComponentImplementation(StartableShared.class);
+            for (int j = 0; j < 8; ++j) {
+                parent.makeChildContainer().registerComponentImplementation(StartableSharingService.class);
+            }
+
+            parent.start();
+
+            assertEquals(1, instances.size());
+            assertEquals(1, ((StartableShared) instances.get(0)).starts);
+            parent.dispose();
+        }
+    }
+
+    public static class NeedsShared {
+        public NeedsShared(Shared shared) {
+        }
+    }
+
+    public void testConcurrentChildrenDoNotInstantiateUnusedComponentsOfTheirParent() {
+        DefaultPicoContainer parent = new DefaultPicoContainer();
+        parent.setChildLifecycleExecutor(new ThreadPoolLifecycleExecutor(2));
+        // not satisfiable, but without lifecycle and not needed by anyone
+        parent.registerComponentImplementation("unused", NeedsShared.class);
+        parent.makeChildContainer();
+        parent.makeChildContainer();
+
+        parent.start();
+        parent.dispose();
+    }
+
+    public void testFailuresOfConcurrentChildrenAreAggregated() {
+        Mock s1 = mock(Startable.class, "s1");
+        s1.expects(once()).method("start").will(throwException(new RuntimeException("s1 failed")));
+        Mock s2 = mock(Startable.class, "s2");
+        s2.expects(once()).method("start").will(throwException(new RuntimeException("s2 failed")));
+
+        DefaultPicoContainer parent = new DefaultPicoContainer();
+        parent.setChildLifecycleExecutor(new ThreadPoolLifecycleExecutor());
+        parent.makeChildContainer().registerComponentInstance(s1.proxy());
+        parent.makeChildContainer().registerComponentInstance(s2.proxy());
+
+        try {
+            parent.start();
+            fail("ConcurrentLifecycleException expected");
+        } catch (ConcurrentLifecycleException e) {
+            assertEquals(2, e.getFailures().size());
+        }
+    }
+
+    public void testLazyStartStartsComponentsOnFirstRetrievalInDependencyOrder() throws Exception {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.setLazyStart(true);
+        pico.registerComponentImplementation("recording", StringBuffer.class);
+        pico.registerComponentImplementation(Four.class);
+        pico.registerComponentImplementation(Two.class);
+        pico.registerComponentImplementation(One.class);
+        pico.registerComponentImplementation(Three.class);
+
+        pico.start();
+        StringBuffer recording = (StringBuffer) pico.getComponentInstance("recording");
+        assertEquals("", recording.toString());
+        pico.getComponentInstance(Two.class);
+        assertEquals("<One<Two", recording.toString());
+        pico.getComponentInstance(Two.class);
+        assertEquals("<One<Two", recording.toString());
+        pico.stop();
+        pico.dispose();
+
+        assertEquals("<One<TwoTwo>One>!Two!One", recording.toString());
+    }
+
+    public void testLazyStartStartsInstantiatedComponentsOnStart() throws Exception {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.setLazyStart(true);
+        pico.registerComponentImplementation("recording", StringBuffer.class);
+        pico.registerComponentImplementation(One.class);
+        pico.registerComponentImplementation(Two.class);
+        pico.getComponentInstance(One.class);
+
+        pico.start();
+        assertEquals("<One", pico.getComponentInstance("recording").toString());
+        pico.getComponentInstance(Two.class);
+        pico.stop();
+        pico.getComponentInstance(Two.class);
+        pico.start();
+
+        assertEquals("<One<TwoTwo>One><One<Two", pico.getComponentInstance("recording").toString());
+    }
+}
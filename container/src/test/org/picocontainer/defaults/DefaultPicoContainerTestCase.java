@@ -27,14 +27,20 @@ import org.picocontainer.testmodel.DependsOnTouchable;
 import org.picocontainer.testmodel.SimpleTouchable;
 import org.picocontainer.testmodel.Touchable;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.StringWriter;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author Aslak Helles&oslash;y
@@ -85,6 +91,88 @@ public class DefaultPicoContainerTestCase extends AbstractPicoContainerTestCase
         assertEquals(HashMap.class, pico.getComponentInstanceOfType(Serializable.class).getClass());
     }
 
+    public static class NotToBeInstantiated {
+        public NotToBeInstantiated() {
+            fail("Must not be instantiated");
+        }
+    }
+
+    public void testRemovalByInstanceDoesNotInstantiateComponents() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        pico.registerComponentImplementation(NotToBeInstantiated.class);
+        pico.registerComponentImplementation(ArrayList.class);
+        Object list = pico.getComponentInstance(ArrayList.class);
+        assertNull(pico.unregisterComponentByInstance(new ArrayList()));
+        assertNotNull(pico.unregisterComponentByInstance(list));
+        assertEquals(1, pico.getComponentAdapters().size());
+    }
+
+    public void testRegisteredInstancesCanBeRemovedByInstanceWithoutLookup() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        String instance = new String("instance");
+        pico.registerComponentInstance("one", instance);
+        ComponentAdapter adapter = pico.registerComponent(new SynchronizedComponentAdapter(new InstanceComponentAdapter("two", new StringBuffer())));
+        assertEquals("one", pico.unregisterComponentByInstance(instance).getComponentKey());
+        assertNull(pico.unregisterComponentByInstance(instance));
+        assertSame(adapter, pico.unregisterComponentByInstance(adapter.getComponentInstance(pico)));
+    }
+
+    public void testUncachedInstancesCannotBeRemovedByInstance() {
+        MutablePicoContainer pico = new DefaultPicoContainer(new ConstructorInjectionComponentAdapterFactory());
+        pico.registerComponentImplementation(ArrayList.class);
+        assertNull(pico.unregisterComponentByInstance(pico.getComponentInstance(ArrayList.class)));
+    }
+
+    public void testFlushedInstanceIsReplacedByNewInstanceForRemoval() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        CachingComponentAdapter adapter = (CachingComponentAdapter) pico.registerComponentImplementation(ArrayList.class);
+        Object first = pico.getComponentInstance(ArrayList.class);
+        adapter.flush();
+        Object second = pico.getComponentInstance(ArrayList.class);
+        assertNull(pico.unregisterComponentByInstance(first));
+        assertSame(adapter, pico.unregisterComponentByInstance(second));
+    }
+
+    public static class RecordingStartable implements Startable {
+        private final StringBuffer record;
+        private final String name;
+
+        public RecordingStartable(StringBuffer record, String name) {
+            this.record = record;
+            this.name = name;
+        }
+
+        public void start() {
+            record.append(name);
+        }
+
+        public void stop() {
+        }
+    }
+
+    public void testLookupOfRegisteredInstanceRecordsInstantiationOrder() {
+        StringBuffer record = new StringBuffer();
+        MutablePicoContainer pico = createPicoContainer(null);
+        pico.registerComponentInstance("instance", new RecordingStartable(record, "<instance>"));
+        pico.registerComponentInstance(StringBuffer.class, record);
+        pico.registerComponentImplementation("component", RecordingStartable.class, new Parameter[]{
+                ComponentParameter.DEFAULT, new ConstantParameter("<component>")});
+        Object instance = pico.getComponentInstance("instance");
+        assertSame(instance, pico.getComponentInstance("instance"));
+        pico.getComponentInstance("component");
+        pico.start();
+        assertEquals("<instance><component>", record.toString());
+    }
+
+    public void testCachedInstanceIsReturnedForTypeLookupOfSingleAdapter() {
+        MutablePicoContainer pico = createPicoContainer(null);
+        pico.registerComponentImplementation("list", ArrayList.class);
+        Object list = pico.getComponentInstanceOfType(ArrayList.class);
+        assertSame(list, pico.getComponentInstanceOfType(ArrayList.class));
+        pico.getComponentAdaptersOfType(ArrayList.class).clear();
+        assertSame(list, pico.getComponentInstanceOfType(ArrayList.class));
+    }
+
     public void testComponentInstancesListIsReturnedForNullType(){
         MutablePicoContainer pico = createPicoContainer(null);
         List componentInstances = pico.getComponentInstancesOfType(null);
@@ -134,7 +222,52 @@ public class DefaultPicoContainerTestCase extends AbstractPicoContainerTestCase
         assertNotNull(adapters);
         assertEquals(0, adapters.size());
     }
-    
+
+    public void testGetComponentAdaptersOfTypeReturnsAllSupertypeMatchesInRegistrationOrder() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        ComponentAdapter linkedList = pico.registerComponentImplementation("linked", LinkedList.class);
+        pico.registerComponentImplementation(HashMap.class);
+        ComponentAdapter arrayList = pico.registerComponentImplementation("array", ArrayList.class);
+
+        assertEquals(Arrays.asList(new Object[]{linkedList, arrayList}), pico.getComponentAdaptersOfType(List.class));
+        assertEquals(Arrays.asList(new Object[]{linkedList, arrayList}), pico.getComponentAdaptersOfType(Collection.class));
+        assertEquals(Arrays.asList(new Object[]{arrayList}), pico.getComponentAdaptersOfType(ArrayList.class));
+        assertEquals(3, pico.getComponentAdaptersOfType(Object.class).size());
+        assertEquals(3, pico.getComponentAdaptersOfType(Serializable.class).size());
+        assertEquals(0, pico.getComponentAdaptersOfType(Set.class).size());
+    }
+
+    public void testGetComponentAdaptersOfTypeIsUpdatedOnUnregistration() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation("linked", LinkedList.class);
+        ComponentAdapter arrayList = pico.registerComponentImplementation("array", ArrayList.class);
+        pico.unregisterComponent("linked");
+
+        assertEquals(Arrays.asList(new Object[]{arrayList}), pico.getComponentAdaptersOfType(List.class));
+        assertSame(arrayList, pico.getComponentAdapterOfType(List.class));
+        pico.unregisterComponent("array");
+        assertEquals(0, pico.getComponentAdaptersOfType(List.class).size());
+        assertEquals(0, pico.getComponentAdaptersOfType(Object.class).size());
+    }
+
+    public void testGetComponentAdaptersOfTypeIsNotBackedByTheContainer() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(ArrayList.class);
+        pico.getComponentAdaptersOfType(List.class).clear();
+        assertEquals(1, pico.getComponentAdaptersOfType(List.class).size());
+    }
+
+    public void testGetComponentAdaptersOfTypeMatchesArraysCovariantly() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        ComponentAdapter strings = pico.registerComponentInstance("strings", new String[]{"a"});
+        pico.registerComponentInstance("ints", new int[]{1});
+
+        assertEquals(Arrays.asList(new Object[]{strings}), pico.getComponentAdaptersOfType(Object[].class));
+        assertEquals(Arrays.asList(new Object[]{strings}), pico.getComponentAdaptersOfType(Comparable[].class));
+        assertEquals(Arrays.asList(new Object[]{strings}), pico.getComponentAdaptersOfType(String[].class));
+        assertEquals(2, pico.getComponentAdaptersOfType(Cloneable.class).size());
+    }
+
 
     public static class Service {
     }
@@ -455,4 +588,102 @@ public class DefaultPicoContainerTestCase extends AbstractPicoContainerTestCase
         assertEquals(SynchronizedComponentAdapter.class, mpc.registerComponentInstance("foobar").getClass());
         assertEquals(SynchronizedComponentAdapter.class, mpc.registerComponentImplementation(SimpleA.class).getClass());
     }
-}
\ No newline at end of file
+
+    public void testComponentRegistryGenerationChangesWithRegistrationsInContainerAndParent() {
+        DefaultPicoContainer parent = new DefaultPicoContainer();
+        DefaultPicoContainer child = new DefaultPicoContainer(parent);
+        long generation = child.getComponentRegistryGeneration();
+        child.registerComponentImplementation(ArrayList.class);
+        assertTrue(generation != child.getComponentRegistryGeneration());
+        generation = child.getComponentRegistryGeneration();
+        parent.registerComponentImplementation(HashMap.class);
+        assertTrue(generation != child.getComponentRegistryGeneration());
+        generation = child.getComponentRegistryGeneration();
+        parent.unregisterComponent(HashMap.class);
+        assertTrue(generation != child.getComponentRegistryGeneration());
+        generation = child.getComponentRegistryGeneration();
+        child.unregisterComponent("unknown");
+        assertEquals(generation, child.getComponentRegistryGeneration());
+    }
+
+    public void testComponentRegistryGenerationIsUntrackedForForeignParent() {
+        PicoContainer parent = ImmutablePicoContainerProxyFactory.newProxyInstance(new DefaultPicoContainer());
+        DefaultPicoContainer child = new DefaultPicoContainer(parent);
+        assertEquals(ComponentRegistryGeneration.UNTRACKED, child.getComponentRegistryGeneration());
+    }
+
+    public void testFrozenContainerRejectsRegistrations() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(ArrayList.class);
+        pico.freeze();
+        assertTrue(pico.isFrozen());
+        try {
+            pico.registerComponentImplementation(HashMap.class);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            pico.unregisterComponent(ArrayList.class);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1, pico.getComponentAdapters().size());
+    }
+
+    public void testFrozenContainerResolvesComponentsByKeyAndType() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        pico.registerComponentImplementation(DependsOnTouchable.class);
+        pico.registerComponentInstance("list", new ArrayList());
+        pico.registerComponentInstance("otherList", new LinkedList());
+        pico.freeze();
+
+        DependsOnTouchable dependsOnTouchable = (DependsOnTouchable) pico.getComponentInstance(DependsOnTouchable.class);
+        assertSame(pico.getComponentInstance(Touchable.class), pico.getComponentInstanceOfType(SimpleTouchable.class));
+        assertSame(dependsOnTouchable, pico.getComponentInstanceOfType(DependsOnTouchable.class));
+        assertEquals(2, pico.getComponentAdaptersOfType(List.class).size());
+        assertEquals(2, pico.getComponentInstancesOfType(List.class).size());
+        assertNull(pico.getComponentInstance("unknown"));
+        try {
+            pico.getComponentInstanceOfType(List.class);
+            fail("AmbiguousComponentResolutionException expected");
+        } catch (AmbiguousComponentResolutionException e) {
+            // expected
+        }
+    }
+
+    public void testFrozenChildFindsComponentsOfFrozenAndMutableParents() {
+        DefaultPicoContainer grandParent = new DefaultPicoContainer();
+        DefaultPicoContainer parent = new DefaultPicoContainer(grandParent);
+        DefaultPicoContainer child = new DefaultPicoContainer(parent);
+        parent.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        parent.registerComponentImplementation("shadowed", ArrayList.class);
+        child.registerComponentImplementation("shadowed", LinkedList.class);
+        child.registerComponentImplementation(DependsOnTouchable.class);
+        parent.freeze();
+        child.freeze();
+
+        assertSame(parent.getComponentInstance(Touchable.class), child.getComponentInstance(Touchable.class));
+        assertSame(parent.getComponentAdapter(Touchable.class), child.getComponentAdapter(Touchable.class));
+        assertEquals(LinkedList.class, child.getComponentInstance("shadowed").getClass());
+        assertNotNull(child.getComponentInstance(DependsOnTouchable.class));
+        assertNull(child.getComponentInstance(HashMap.class));
+        grandParent.registerComponentImplementation(HashMap.class);
+        assertNotNull(child.getComponentInstance(HashMap.class));
+    }
+
+    public void testFrozenContainerCanBeSerialized() throws Exception {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        pico.freeze();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(pico);
+        out.close();
+        DefaultPicoContainer copy = (DefaultPicoContainer) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertTrue(copy.isFrozen());
+        assertNotNull(copy.getComponentInstance(Touchable.class));
+    }
+}
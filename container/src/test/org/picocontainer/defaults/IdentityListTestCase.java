@@ -0,0 +1,169 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Revision$
+ */
+public class IdentityListTestCase extends TestCase {
+
+    public void testElementsAreDistinctByIdentity() {
+        final IdentityList list = new IdentityList();
+        final String element = new String("element");
+        assertTrue(list.add(element));
+        assertFalse(list.add(element));
+        assertTrue(list.add(new String("element")));
+        assertEquals(2, list.size());
+        assertTrue(list.contains(element));
+        assertFalse(list.contains(new String("element")));
+        assertFalse(list.remove(new String("element")));
+        assertTrue(list.remove(element));
+        assertEquals(1, list.size());
+        assertNotSame(element, list.get(0));
+    }
+
+    public void testOrderIsKeptWhileAddingAndRemoving() {
+        final IdentityList list = new IdentityList();
+        final List expected = new ArrayList();
+        for (int i = 0; i < 100; i++) {
+            final Integer element = new Integer(i);
+            list.add(element);
+            expected.add(element);
+        }
+        for (int i = 0; i < 100; i += 3) {
+            assertTrue(list.remove(expected.get(i)));
+        }
+        for (int i = 99; i >= 0; i -= 3) {
+            expected.remove(i);
+        }
+        assertEquals(expected, list);
+        for (int i = expected.size() - 1; i >= 0; i--) {
+            assertSame(expected.get(i), list.get(i));
+        }
+        assertSame(expected.remove(10), list.remove(10));
+        assertSame(expected.get(10), list.get(10));
+        assertEquals(expected, list);
+        for (final Iterator iter = list.iterator(); iter.hasNext();) {
+            if (((Integer) iter.next()).intValue() % 2 == 0) {
+                iter.remove();
+            }
+        }
+        for (final Iterator iter = expected.iterator(); iter.hasNext();) {
+            if (((Integer) iter.next()).intValue() % 2 == 0) {
+                iter.remove();
+            }
+        }
+        assertEquals(expected, list);
+        list.clear();
+        assertEquals(0, list.size());
+        assertFalse(list.iterator().hasNext());
+    }
+
+    public void testListIteratorWalksBackward() {
+        final IdentityList list = new IdentityList();
+        for (int i = 0; i < 20; i++) {
+            list.add(new Integer(i));
+        }
+        final ListIterator iter = list.listIterator(list.size());
+        for (int i = 19; i >= 0; i--) {
+            assertTrue(iter.hasPrevious());
+            assertEquals(i, iter.previousIndex());
+            assertEquals(new Integer(i), iter.previous());
+            if (i % 2 == 0) {
+                iter.remove();
+            }
+        }
+        assertFalse(iter.hasPrevious());
+        assertEquals(10, list.size());
+        assertEquals(new Integer(19), list.get(9));
+    }
+
+    public void testConcurrentReadersSeeTheSameElements() throws InterruptedException {
+        final IdentityList list = new IdentityList();
+        final Object[] elements = new Object[500];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new Object();
+            list.add(elements[i]);
+        }
+        final List failures = Collections.synchronizedList(new ArrayList());
+        final Thread[] readers = new Thread[8];
+        for (int t = 0; t < readers.length; t++) {
+            final int offset = t;
+            readers[t] = new Thread() {
+                public void run() {
+                    for (int round = 0; round < 100; round++) {
+                        for (int i = 0; i < elements.length; i++) {
+                            final int index = (i * 7 + offset) % elements.length;
+                            if (list.get(index) != elements[index]) {
+                                failures.add("get(" + index + ")");
+                            }
+                        }
+                        int index = 0;
+                        for (final Iterator iter = list.iterator(); iter.hasNext(); index++) {
+                            if (iter.next() != elements[index]) {
+                                failures.add("iterator at " + index);
+                            }
+                        }
+                    }
+                }
+            };
+        }
+        for (int t = 0; t < readers.length; t++) {
+            readers[t].start();
+        }
+        for (int t = 0; t < readers.length; t++) {
+            readers[t].join();
+        }
+        assertEquals(Collections.EMPTY_LIST, failures);
+    }
+
+    public void testIndexOutOfBoundsIsRejected() {
+        final IdentityList list = new IdentityList();
+        list.add("element");
+        try {
+            list.get(1);
+            fail("IndexOutOfBoundsException expected");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    public void testElementsAreIndexedAgainAfterDeserialization() throws Exception {
+        final IdentityList list = new IdentityList();
+        for (int i = 0; i < 100; i++) {
+            list.add(new StringBuffer("element" + i));
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(list);
+        out.close();
+        final IdentityList copy = (IdentityList) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(100, copy.size());
+        for (int i = 0; i < copy.size(); i++) {
+            assertEquals("element" + i, copy.get(i).toString());
+            assertTrue(copy.contains(copy.get(i)));
+        }
+        final Object first = copy.get(0);
+        assertTrue(copy.remove(first));
+        assertFalse(copy.contains(first));
+    }
+}
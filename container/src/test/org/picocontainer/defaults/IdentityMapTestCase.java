@@ -0,0 +1,78 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Revision$
+ */
+public class IdentityMapTestCase extends TestCase {
+
+    public void testKeysAreComparedByIdentity() {
+        final IdentityMap map = new IdentityMap();
+        final String key = new String("key");
+        map.put(key, "value");
+        assertEquals("value", map.get(key));
+        assertNull(map.get(new String("key")));
+        assertFalse(map.containsKey(new String("key")));
+        assertEquals("value", map.put(key, "other"));
+        assertEquals(1, map.size());
+    }
+
+    public void testEntriesRemainAccessibleWhileGrowingAndRemoving() {
+        final IdentityMap map = new IdentityMap();
+        final Object[] keys = new Object[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Object();
+            assertNull(map.put(keys[i], new Integer(i)));
+        }
+        for (int i = 0; i < keys.length; i += 3) {
+            assertEquals(new Integer(i), map.remove(keys[i]));
+            assertNull(map.remove(keys[i]));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (i % 3 == 0) {
+                assertFalse(map.containsKey(keys[i]));
+            } else {
+                assertEquals(new Integer(i), map.get(keys[i]));
+            }
+        }
+        assertEquals(666, map.size());
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(keys[1]));
+    }
+
+    public void testEntriesAreHashedAgainAfterDeserialization() throws Exception {
+        final IdentityMap map = new IdentityMap();
+        final Object[] keys = new Object[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new StringBuffer("key" + i);
+            map.put(keys[i], new Integer(i));
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(new Object[]{map, keys});
+        out.close();
+        final Object[] copy = (Object[]) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        final IdentityMap mapCopy = (IdentityMap) copy[0];
+        final Object[] keysCopy = (Object[]) copy[1];
+        assertEquals(100, mapCopy.size());
+        for (int i = 0; i < keysCopy.length; i++) {
+            assertEquals(new Integer(i), mapCopy.get(keysCopy[i]));
+        }
+    }
+}
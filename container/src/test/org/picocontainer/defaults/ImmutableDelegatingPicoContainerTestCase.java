@@ -0,0 +1,119 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.PicoContainer;
+import org.picocontainer.PicoVisitor;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+/**
+ * @version $Revision$
+ */
+public class ImmutableDelegatingPicoContainerTestCase extends MockObjectTestCase {
+
+    public void testImmutingOfNullBarfs() {
+        try {
+            new ImmutableDelegatingPicoContainer(null);
+            fail("Should have barfed");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+
+    public void testLifecylceBarfs() {
+        Mock mockPicoContainer = mock(PicoContainer.class);
+        PicoContainer ipc = new ImmutableDelegatingPicoContainer((PicoContainer) mockPicoContainer.proxy());
+        try {
+            ipc.start();
+            fail("should have barfed");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            ipc.stop();
+            fail("should have barfed");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            ipc.dispose();
+            fail("should have barfed");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void testLookupsAreDelegated() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        ComponentAdapter componentAdapter = pico.registerComponentImplementation("list", java.util.ArrayList.class);
+        PicoContainer ipc = new ImmutableDelegatingPicoContainer(pico);
+
+        assertSame(componentAdapter, ipc.getComponentAdapter("list"));
+        assertSame(componentAdapter, ipc.getComponentAdapterOfType(List.class));
+        assertEquals(1, ipc.getComponentAdaptersOfType(List.class).size());
+        assertEquals(1, ipc.getComponentAdapters().size());
+        assertSame(pico.getComponentInstance("list"), ipc.getComponentInstance("list"));
+        assertSame(pico.getComponentInstance("list"), ipc.getComponentInstanceOfType(List.class));
+        assertEquals(pico.getComponentInstances(), ipc.getComponentInstances());
+        assertEquals(pico.getComponentInstancesOfType(List.class), ipc.getComponentInstancesOfType(List.class));
+        assertNull(ipc.getParent());
+    }
+
+    public void testVisitingOfImmutableContainerWorks() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        Object foo = new Object();
+        ComponentAdapter componentAdapter = pico.registerComponentInstance(foo);
+
+        Mock fooVisitor = new Mock(PicoVisitor.class);
+        fooVisitor.expects(once()).method("visitContainer").with(same(pico));
+        fooVisitor.expects(once()).method("visitComponentAdapter").with(same(componentAdapter));
+
+        PicoContainer ipc = new ImmutableDelegatingPicoContainer(pico);
+        ipc.accept((PicoVisitor) fooVisitor.proxy());
+    }
+
+    public void testEquals() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        PicoContainer ipc = new ImmutableDelegatingPicoContainer(pico);
+        assertEquals(ipc, ipc);
+        assertEquals(ipc, new ImmutableDelegatingPicoContainer(pico));
+        assertFalse(ipc.equals(new ImmutableDelegatingPicoContainer(new DefaultPicoContainer())));
+    }
+
+    public void testHashCodeIsSame() {
+        DefaultPicoContainer pico = new DefaultPicoContainer();
+        PicoContainer ipc = new ImmutableDelegatingPicoContainer(pico);
+        assertEquals(ipc.hashCode(), new ImmutableDelegatingPicoContainer(pico).hashCode());
+    }
+
+    public void testDoesNotEqualsToNull() {
+        PicoContainer ipc = new ImmutableDelegatingPicoContainer(new DefaultPicoContainer());
+        assertFalse(ipc.equals(null));
+    }
+
+    public void testNewInstanceDoesNotWrapAnImmutableView() {
+        PicoContainer ipc = ImmutableDelegatingPicoContainer.newInstance(new DefaultPicoContainer());
+        assertSame(ipc, ImmutableDelegatingPicoContainer.newInstance(ipc));
+    }
+
+    public void testDefaultPicoContainerHidesParentWithoutReflectionProxy() {
+        MutablePicoContainer parent = new DefaultPicoContainer();
+        PicoContainer hiddenParent = new DefaultPicoContainer(parent).getParent();
+        assertTrue(hiddenParent instanceof ImmutableDelegatingPicoContainer);
+        assertFalse(Proxy.isProxyClass(hiddenParent.getClass()));
+        assertEquals(hiddenParent, parent);
+    }
+}
@@ -0,0 +1,176 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.Parameter;
+import org.picocontainer.PicoInitializationException;
+import org.picocontainer.PicoIntrospectionException;
+import org.picocontainer.testmodel.DependsOnTouchable;
+import org.picocontainer.testmodel.SimpleTouchable;
+import org.picocontainer.testmodel.Touchable;
+
+/**
+ * @version $Revision$
+ */
+public class LazyComponentParameterTestCase extends TestCase {
+
+    public static class CountingTouchable implements Touchable {
+        public CountingTouchable(List instantiations) {
+            instantiations.add(this);
+        }
+
+        public void touch() {
+        }
+    }
+
+    public static class HoldsTouchable {
+        private final Touchable touchable;
+
+        public HoldsTouchable(Touchable touchable) {
+            this.touchable = touchable;
+        }
+    }
+
+    public static class FailingTouchable implements Touchable {
+        public void touch() {
+            throw new UnsupportedOperationException("touch");
+        }
+    }
+
+    public void testDependencyIsInstantiatedOnFirstUse() {
+        List instantiations = new ArrayList();
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentInstance(instantiations);
+        pico.registerComponentImplementation(Touchable.class, CountingTouchable.class);
+        pico.registerComponentImplementation(HoldsTouchable.class, HoldsTouchable.class, new Parameter[]{LazyComponentParameter.LAZY_DEFAULT});
+        HoldsTouchable holder = (HoldsTouchable) pico.getComponentInstance(HoldsTouchable.class);
+        assertEquals(0, instantiations.size());
+        holder.touchable.touch();
+        holder.touchable.touch();
+        assertEquals(1, instantiations.size());
+        assertSame(pico.getComponentInstance(Touchable.class), instantiations.get(0));
+    }
+
+    public void testObjectMethodsOfProxyDoNotInstantiateDependency() {
+        List instantiations = new ArrayList();
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentInstance(instantiations);
+        pico.registerComponentImplementation(Touchable.class, CountingTouchable.class);
+        pico.registerComponentImplementation(HoldsTouchable.class, HoldsTouchable.class, new Parameter[]{LazyComponentParameter.LAZY_DEFAULT});
+        pico.registerComponentImplementation("other", HoldsTouchable.class, new Parameter[]{LazyComponentParameter.LAZY_DEFAULT});
+        Touchable touchable = ((HoldsTouchable) pico.getComponentInstance(HoldsTouchable.class)).touchable;
+        Touchable other = ((HoldsTouchable) pico.getComponentInstance("other")).touchable;
+        assertTrue(touchable.equals(touchable));
+        assertFalse(touchable.equals(other));
+        assertFalse(touchable.equals(null));
+        assertEquals(System.identityHashCode(touchable), touchable.hashCode());
+        assertNotNull(touchable.toString());
+        assertEquals(0, instantiations.size());
+        touchable.touch();
+        assertTrue(touchable.equals(touchable));
+        assertEquals(instantiations.get(0).toString(), touchable.toString());
+        assertEquals(1, instantiations.size());
+    }
+
+    public void testDependencyIsResolvedByKey() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation("one", SimpleTouchable.class);
+        pico.registerComponentImplementation("two", SimpleTouchable.class);
+        pico.registerComponentImplementation(DependsOnTouchable.class, DependsOnTouchable.class, new Parameter[]{new LazyComponentParameter("two")});
+        pico.getComponentInstance(DependsOnTouchable.class);
+        assertFalse(((SimpleTouchable) pico.getComponentInstance("one")).wasTouched);
+        assertTrue(((SimpleTouchable) pico.getComponentInstance("two")).wasTouched);
+    }
+
+    public void testDependencyOfClassTypeIsResolvedImmediately() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(ArrayList.class);
+        LazyComponentParameter parameter = new LazyComponentParameter();
+        assertSame(pico.getComponentInstance(ArrayList.class), parameter.resolveInstance(pico, null, ArrayList.class));
+    }
+
+    public void testUnresolvableDependencyIsNotSatisfied() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        ComponentAdapter adapter = pico.registerComponentImplementation(HoldsTouchable.class, HoldsTouchable.class, new Parameter[]{LazyComponentParameter.LAZY_DEFAULT});
+        assertNull(LazyComponentParameter.LAZY_DEFAULT.resolveInstance(pico, adapter, Touchable.class));
+        try {
+            pico.getComponentInstance(HoldsTouchable.class);
+            fail("UnsatisfiableDependenciesException expected");
+        } catch (UnsatisfiableDependenciesException e) {
+            // expected
+        }
+        try {
+            LazyComponentParameter.LAZY_DEFAULT.verify(pico, adapter, Touchable.class);
+            fail("PicoIntrospectionException expected");
+        } catch (PicoIntrospectionException e) {
+            // expected
+        }
+    }
+
+    public void testUnregisteredDependencyFailsOnFirstUse() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        pico.registerComponentImplementation(HoldsTouchable.class, HoldsTouchable.class, new Parameter[]{LazyComponentParameter.LAZY_DEFAULT});
+        HoldsTouchable holder = (HoldsTouchable) pico.getComponentInstance(HoldsTouchable.class);
+        pico.unregisterComponent(Touchable.class);
+        try {
+            holder.touchable.touch();
+            fail("PicoInitializationException expected");
+        } catch (PicoInitializationException e) {
+            assertTrue(e.getMessage().indexOf(Touchable.class.getName()) >= 0);
+        }
+    }
+
+    public void testExceptionOfDependencyIsPassedUnwrapped() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(Touchable.class, FailingTouchable.class);
+        pico.registerComponentImplementation(HoldsTouchable.class, HoldsTouchable.class, new Parameter[]{LazyComponentParameter.LAZY_DEFAULT});
+        HoldsTouchable holder = (HoldsTouchable) pico.getComponentInstance(HoldsTouchable.class);
+        try {
+            holder.touchable.touch();
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            assertEquals("touch", e.getMessage());
+        }
+    }
+
+    public static class NeedsHolder implements Touchable {
+        public NeedsHolder(HoldsTouchable holder) {
+        }
+
+        public void touch() {
+        }
+    }
+
+    public void testLazyDependencyBreaksCycle() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(Touchable.class, NeedsHolder.class);
+        pico.registerComponentImplementation(HoldsTouchable.class, HoldsTouchable.class, new Parameter[]{LazyComponentParameter.LAZY_DEFAULT});
+        HoldsTouchable holder = (HoldsTouchable) pico.getComponentInstance(HoldsTouchable.class);
+        holder.touchable.touch();
+        assertNotNull(pico.getComponentInstance(Touchable.class));
+    }
+
+    public void testDelegateMustNotBeNull() {
+        try {
+            new LazyComponentParameter((Parameter) null);
+            fail("NPE expected");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.tck.AbstractPicoContainerTestCase.ComponentB;
+import org.picocontainer.tck.AbstractPicoContainerTestCase.ComponentD;
+import org.picocontainer.tck.AbstractPicoContainerTestCase.ComponentE;
+
+/**
+ * @version $Revision$
+ */
+public class ResolutionStackTestCase extends TestCase {
+
+    public void testStackIsSharedByAllAdaptersOfAThread() {
+        assertSame(ResolutionStack.current(), ResolutionStack.current());
+    }
+
+    public void testStackIsNotSharedBetweenThreads() throws InterruptedException {
+        final ResolutionStack[] stacks = new ResolutionStack[1];
+        Thread thread = new Thread() {
+            public void run() {
+                stacks[0] = ResolutionStack.current();
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotNull(stacks[0]);
+        assertNotSame(ResolutionStack.current(), stacks[0]);
+    }
+
+    public void testFrameIsDetectedByIdentity() {
+        final ResolutionStack stack = ResolutionStack.current();
+        final Object frame = new Object();
+        stack.push(frame, String.class);
+        try {
+            stack.push(new Object(), Integer.class);
+            stack.pop();
+            try {
+                stack.push(frame, String.class);
+                fail("Thrown " + CyclicDependencyException.class.getName() + " expected");
+            } catch (CyclicDependencyException e) {
+                assertEquals(Arrays.asList(new Class[]{String.class, String.class}), Arrays.asList(e.getDependencies()));
+            }
+        } finally {
+            stack.pop();
+        }
+        assertEquals(0, stack.size());
+    }
+
+    public static class DependsOnD {
+        public DependsOnD(ComponentD d) {
+        }
+    }
+
+    public void testCyclicDependencyExceptionReportsFullPath() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(DependsOnD.class);
+        pico.registerComponentImplementation(ComponentB.class);
+        pico.registerComponentImplementation(ComponentD.class);
+        pico.registerComponentImplementation(ComponentE.class);
+        try {
+            pico.getComponentInstance(DependsOnD.class);
+            fail("Thrown " + CyclicDependencyException.class.getName() + " expected");
+        } catch (CyclicDependencyException e) {
+            assertEquals(Arrays.asList(new Class[]{ComponentD.class, ComponentE.class, ComponentD.class, DependsOnD.class}),
+                    Arrays.asList(e.getDependencies()));
+        }
+        assertEquals(0, ResolutionStack.current().size());
+    }
+}
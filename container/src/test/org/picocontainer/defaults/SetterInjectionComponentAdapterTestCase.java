@@ -15,6 +15,7 @@ import java.util.List;
 import org.picocontainer.ComponentAdapter;
 import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.Parameter;
+import org.picocontainer.PicoContainer;
 import org.picocontainer.tck.AbstractComponentAdapterTestCase;
 import org.picocontainer.testmodel.NullLifecycle;
 import org.picocontainer.testmodel.PersonBean;
@@ -316,4 +317,85 @@ public class SetterInjectionComponentAdapterTestCase
         assertEquals("<start<stop<dispose", strategy.recording());
     }
 
+    public static class LookupCountingPicoContainer extends DefaultPicoContainer {
+        private int lookups;
+
+        public List getComponentAdaptersOfType(Class componentType) {
+            lookups++;
+            return super.getComponentAdaptersOfType(componentType);
+        }
+    }
+
+    public static class TouchableBean {
+        private Touchable touchable;
+        private List list;
+
+        public void setTouchable(Touchable touchable) {
+            this.touchable = touchable;
+        }
+
+        public void setList(List list) {
+            this.list = list;
+        }
+    }
+
+    public void testInjectionPlanIsReusedAsLongAsTheRegistryIsUnchanged() {
+        LookupCountingPicoContainer pico = new LookupCountingPicoContainer();
+        pico.registerComponentImplementation("touchable", SimpleTouchable.class);
+        pico.registerComponentImplementation("list", ArrayList.class);
+        SetterInjectionComponentAdapter adapter = new SetterInjectionComponentAdapter("bean", TouchableBean.class, null);
+        pico.registerComponent(adapter);
+
+        TouchableBean first = (TouchableBean) adapter.getComponentInstance(pico);
+        int lookups = pico.lookups;
+        TouchableBean second = (TouchableBean) adapter.getComponentInstance(pico);
+        assertNotSame(first, second);
+        assertSame(first.touchable, second.touchable);
+        assertSame(first.list, second.list);
+        assertEquals(lookups, pico.lookups);
+    }
+
+    public void testInjectionPlanIsInvalidatedByModificationOfRegistry() {
+        MutablePicoContainer parent = new DefaultPicoContainer();
+        parent.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        MutablePicoContainer pico = new DefaultPicoContainer(parent);
+        pico.registerComponentImplementation(List.class, ArrayList.class);
+        SetterInjectionComponentAdapter adapter = new SetterInjectionComponentAdapter("bean", TouchableBean.class, null);
+        pico.registerComponent(adapter);
+
+        assertSame(parent.getComponentInstance(Touchable.class), ((TouchableBean) adapter.getComponentInstance(pico)).touchable);
+        parent.unregisterComponent(Touchable.class);
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        assertSame(pico.getComponentInstance(Touchable.class), ((TouchableBean) adapter.getComponentInstance(pico)).touchable);
+        pico.unregisterComponent(Touchable.class);
+        try {
+            adapter.getComponentInstance(pico);
+            fail("UnsatisfiableDependenciesException expected");
+        } catch (UnsatisfiableDependenciesException e) {
+            assertTrue(e.getUnsatisfiableDependencies().contains(Touchable.class));
+        }
+    }
+
+    public static class ResolvableCountingParameter extends ComponentParameter {
+        private int resolvables;
+
+        public boolean isResolvable(PicoContainer container, ComponentAdapter adapter, Class expectedType) {
+            resolvables++;
+            return super.isResolvable(container, adapter, expectedType);
+        }
+    }
+
+    public void testInjectionPlanIsNotCachedForCustomParameters() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        pico.registerComponentImplementation(List.class, ArrayList.class);
+        ResolvableCountingParameter parameter = new ResolvableCountingParameter();
+        SetterInjectionComponentAdapter adapter = new SetterInjectionComponentAdapter("bean", TouchableBean.class, new Parameter[]{parameter, parameter});
+        pico.registerComponent(adapter);
+
+        adapter.getComponentInstance(pico);
+        int resolvables = parameter.resolvables;
+        adapter.getComponentInstance(pico);
+        assertEquals(2 * resolvables, parameter.resolvables);
+    }
 }
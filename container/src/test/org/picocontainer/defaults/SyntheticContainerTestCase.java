@@ -0,0 +1,131 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.defaults;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.picocontainer.Startable;
+import org.picocontainer.tck.SyntheticContainerGenerator;
+
+/**
+ * Test a {@link DefaultPicoContainer} with synthetic components of a {@link SyntheticContainerGenerator}.
+ *
+ * @version $Revision$
+ */
+public class SyntheticContainerTestCase extends TestCase {
+
+    public void testGeneratedDependenciesRespectFanOutAndFanIn() {
+        SyntheticContainerGenerator generator = new SyntheticContainerGenerator(500, 5);
+        generator.setFanOut(3);
+        generator.setFanIn(4);
+        Class[] classes = generator.getComponentClasses();
+        assertEquals(500, classes.length);
+        Map dependents = new HashMap();
+        for (int i = 0; i < classes.length; i++) {
+            Class[] parameters = classes[i].getConstructors()[0].getParameterTypes();
+            int layer = generator.getLayer(i);
+            assertTrue(generator.getLayerType(layer).isAssignableFrom(classes[i]));
+            if (layer == 0) {
+                assertEquals(0, parameters.length);
+            } else {
+                assertTrue(parameters.length <= 3);
+                assertTrue(generator.getLayerType(layer - 1).isAssignableFrom(parameters[0]));
+            }
+            for (int j = 0; j < parameters.length; j++) {
+                Integer count = (Integer) dependents.get(parameters[j]);
+                dependents.put(parameters[j], new Integer(count == null ? 1 : count.intValue() + 1));
+            }
+        }
+        for (int i = 0; i < classes.length; i++) {
+            Integer count = (Integer) dependents.get(classes[i]);
+            assertTrue(count == null || count.intValue() <= 4);
+        }
+    }
+
+    public void testSameSeedGeneratesSameGraph() {
+        Class[] first = new SyntheticContainerGenerator(100, 4).getComponentClasses();
+        Class[] second = new SyntheticContainerGenerator(100, 4).getComponentClasses();
+        for (int i = 0; i < first.length; i++) {
+            Class[] firstParameters = first[i].getConstructors()[0].getParameterTypes();
+            Class[] secondParameters = second[i].getConstructors()[0].getParameterTypes();
+            assertEquals(firstParameters.length, secondParameters.length);
+            for (int j = 0; j < firstParameters.length; j++) {
+                assertEquals(firstParameters[j].getName(), secondParameters[j].getName());
+            }
+        }
+    }
+
+    public void testStartableRatio() {
+        SyntheticContainerGenerator generator = new SyntheticContainerGenerator(1000, 1);
+        generator.setStartableRatio(0.25);
+        Class[] classes = generator.getComponentClasses();
+        int startables = 0;
+        for (int i = 0; i < classes.length; i++) {
+            if (Startable.class.isAssignableFrom(classes[i])) {
+                startables++;
+            }
+        }
+        assertTrue("Startables: " + startables, startables > 150 && startables < 350);
+    }
+
+    public void testCollectionDependenciesAreResolved() {
+        SyntheticContainerGenerator generator = new SyntheticContainerGenerator(40, 4);
+        generator.setCollectionRatio(1);
+        Class[] classes = generator.getComponentClasses();
+        Class[] parameters = classes[classes.length - 1].getConstructors()[0].getParameterTypes();
+        assertTrue(parameters[parameters.length - 1].isArray());
+        DefaultPicoContainer pico = generator.createContainer(null);
+        assertNotNull(pico.getComponentInstance(classes[classes.length - 1]));
+    }
+
+    public void testLargeContainerIsStartedStoppedAndDisposed() {
+        SyntheticContainerGenerator generator = new SyntheticContainerGenerator(2000, 10);
+        generator.setFanOut(4);
+        generator.setStartableRatio(0.3);
+        generator.setCollectionRatio(0.01);
+        DefaultPicoContainer pico = generator.createContainer(null);
+        pico.start();
+        assertEquals(2000, pico.getComponentInstances().size());
+        pico.stop();
+        pico.dispose();
+    }
+
+    public void testClassesAreReusedForEveryContainer() {
+        SyntheticContainerGenerator generator = new SyntheticContainerGenerator(10, 2);
+        Class type = generator.getLayerType(1);
+        DefaultPicoContainer first = generator.createContainer(null);
+        DefaultPicoContainer second = generator.createContainer(first);
+        assertEquals(5, first.getComponentInstancesOfType(type).size());
+        assertEquals(5, second.getComponentInstancesOfType(type).size());
+    }
+
+    public void testConfigurationIsFixedAfterGeneration() {
+        SyntheticContainerGenerator generator = new SyntheticContainerGenerator(10, 2);
+        generator.getComponentClasses();
+        try {
+            generator.setFanOut(1);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testDepthMustNotExceedComponents() {
+        try {
+            new SyntheticContainerGenerator(3, 4);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
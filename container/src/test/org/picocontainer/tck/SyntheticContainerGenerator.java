@@ -0,0 +1,351 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.tck;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.sf.cglib.asm.ClassWriter;
+import net.sf.cglib.asm.Type;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.Signature;
+import net.sf.cglib.core.TypeUtils;
+
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.PicoContainer;
+import org.picocontainer.Startable;
+import org.picocontainer.defaults.DefaultPicoContainer;
+
+/**
+ * Generates synthetic components with cglib and registers them in a container, to test and measure
+ * the container with thousands of components and a realistic dependency graph. The components are
+ * arranged in layers, the first layer contains the components without dependencies. Every component
+ * of a later layer has a public constructor that depends on at least one component of the layer
+ * below and on further components of any lower layer. Each component implements the marker
+ * interface of its layer, see {@link #getLayerType(int)}, and a component can depend additionally on
+ * an array of all components of the layer below, that is resolved by a
+ * {@link org.picocontainer.defaults.CollectionComponentParameter}. A part of the components
+ * implements {@link Startable} with empty methods.
+ * <p>
+ * The graph is determined by the configuration and the seed of the random generator, the same
+ * configuration always generates the same graph. The classes are generated once with the first call
+ * of {@link #getComponentClasses()}, {@link #registerComponents(MutablePicoContainer)} or
+ * {@link #createContainer(PicoContainer)} and are reused for every further container, so a
+ * benchmark can create fresh containers without generating classes again.
+ * </p>
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public class SyntheticContainerGenerator {
+    private static final String PACKAGE = "org.picocontainer.tck.synthetic.";
+    private static final Type STARTABLE = Type.getType(Startable.class);
+    private static final Signature START = new Signature("start", Type.VOID_TYPE, new Type[0]);
+    private static final Signature STOP = new Signature("stop", Type.VOID_TYPE, new Type[0]);
+
+    private final int components;
+    private final int depth;
+    private int fanOut = 2;
+    private int fanIn = 0;
+    private double startableRatio = 0.5;
+    private double collectionRatio = 0.0;
+    private long seed = 0;
+
+    private Class[] layerTypes;
+    private Class[] componentClasses;
+    private int[] layers;
+
+    /**
+     * Construct a generator.
+     *
+     * @param components the number of components
+     * @param depth the number of layers, that is the length of the longest dependency path
+     * @throws IllegalArgumentException if the depth is smaller than 1 or exceeds the number of
+     *             components
+     */
+    public SyntheticContainerGenerator(int components, int depth) {
+        if (depth < 1 || depth > components) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + components + ": " + depth);
+        }
+        this.components = components;
+        this.depth = depth;
+    }
+
+    /**
+     * Set the number of dependencies of a component, that is not in the first layer. A component
+     * has less dependencies, if not enough components of the lower layers are left, see
+     * {@link #setFanIn(int)}. The default is 2.
+     *
+     * @param fanOut the number of dependencies
+     */
+    public void setFanOut(int fanOut) {
+        checkNotGenerated();
+        if (fanOut < 1) {
+            throw new IllegalArgumentException("Fan-out must be at least 1: " + fanOut);
+        }
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * Set the maximum number of components, that may depend directly on a component. Array
+     * dependencies are not counted. The default of 0 does not limit the dependents.
+     *
+     * @param fanIn the maximum number of dependents or 0
+     */
+    public void setFanIn(int fanIn) {
+        checkNotGenerated();
+        if (fanIn < 0) {
+            throw new IllegalArgumentException("Fan-in must not be negative: " + fanIn);
+        }
+        this.fanIn = fanIn;
+    }
+
+    /**
+     * Set the ratio of the components implementing {@link Startable}. The default is 0.5.
+     *
+     * @param startableRatio the ratio between 0 and 1
+     */
+    public void setStartableRatio(double startableRatio) {
+        checkNotGenerated();
+        this.startableRatio = checkRatio(startableRatio);
+    }
+
+    /**
+     * Set the ratio of the components, that are not in the first layer and depend on an array of
+     * all components of the layer below. The default is 0.
+     *
+     * @param collectionRatio the ratio between 0 and 1
+     */
+    public void setCollectionRatio(double collectionRatio) {
+        checkNotGenerated();
+        this.collectionRatio = checkRatio(collectionRatio);
+    }
+
+    /**
+     * Set the seed of the random generator, that selects the dependencies. The default is 0.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        checkNotGenerated();
+        this.seed = seed;
+    }
+
+    /**
+     * Retrieve the generated component classes. The classes are sorted by their layer, the
+     * components without dependencies come first.
+     *
+     * @return the component classes
+     */
+    public Class[] getComponentClasses() {
+        generate();
+        return (Class[]) componentClasses.clone();
+    }
+
+    /**
+     * Retrieve the marker interface, that is implemented by all components of a layer.
+     *
+     * @param layer the layer starting with 0 for the components without dependencies
+     * @return the interface
+     */
+    public Class getLayerType(int layer) {
+        generate();
+        return layerTypes[layer];
+    }
+
+    /**
+     * Retrieve the layer of a generated component.
+     *
+     * @param index the index of the component in the array of {@link #getComponentClasses()}
+     * @return the layer
+     */
+    public int getLayer(int index) {
+        generate();
+        return layers[index];
+    }
+
+    /**
+     * Register the generated components in a container. Every component is registered with its
+     * class as key.
+     *
+     * @param container the container
+     */
+    public void registerComponents(MutablePicoContainer container) {
+        generate();
+        for (int i = 0; i < componentClasses.length; i++) {
+            container.registerComponentImplementation(componentClasses[i]);
+        }
+    }
+
+    /**
+     * Create a new {@link DefaultPicoContainer} with the generated components.
+     *
+     * @param parent the parent container or <code>null</code>
+     * @return the container
+     */
+    public DefaultPicoContainer createContainer(PicoContainer parent) {
+        DefaultPicoContainer container = new DefaultPicoContainer(parent);
+        registerComponents(container);
+        return container;
+    }
+
+    private void checkNotGenerated() {
+        if (componentClasses != null) {
+            throw new IllegalStateException("Classes already generated");
+        }
+    }
+
+    private static double checkRatio(double ratio) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("Ratio must be between 0 and 1: " + ratio);
+        }
+        return ratio;
+    }
+
+    private synchronized void generate() {
+        if (componentClasses != null) {
+            return;
+        }
+        final Random random = new Random(seed);
+        final GeneratedClassLoader classLoader = new GeneratedClassLoader(SyntheticContainerGenerator.class.getClassLoader());
+        final Type[] layerTypeNames = new Type[depth];
+        for (int i = 0; i < depth; i++) {
+            final String name = PACKAGE + "Layer" + i;
+            layerTypeNames[i] = TypeUtils.getType(name);
+            classLoader.add(name, generateInterface(name));
+        }
+
+        final String[] names = new String[components];
+        final Type[] types = new Type[components];
+        final int[] dependents = new int[components];
+        final int[] layerStart = new int[depth + 1];
+        layers = new int[components];
+        for (int layer = 0, index = 0; layer < depth; layer++) {
+            layerStart[layer] = index;
+            final int size = components / depth + (layer < components % depth ? 1 : 0);
+            for (int i = 0; i < size; i++, index++) {
+                layers[index] = layer;
+                names[index] = PACKAGE + "Component" + index;
+                types[index] = TypeUtils.getType(names[index]);
+            }
+        }
+        layerStart[depth] = components;
+
+        for (int i = 0; i < components; i++) {
+            final int layer = layers[i];
+            final List parameters = new ArrayList();
+            if (layer > 0) {
+                addDependency(parameters, types, dependents, layerStart[layer - 1], layerStart[layer], random);
+                for (int j = 1; j < fanOut; j++) {
+                    addDependency(parameters, types, dependents, 0, layerStart[layer], random);
+                }
+                if (random.nextDouble() < collectionRatio) {
+                    parameters.add(Type.getType("[" + layerTypeNames[layer - 1].getDescriptor()));
+                }
+            }
+            final boolean startable = random.nextDouble() < startableRatio;
+            final Type[] interfaces = startable
+                    ? new Type[]{layerTypeNames[layer], STARTABLE}
+                    : new Type[]{layerTypeNames[layer]};
+            classLoader.add(names[i], generateComponent(names[i], interfaces, (Type[]) parameters.toArray(new Type[parameters.size()]), startable));
+        }
+
+        layerTypes = new Class[depth];
+        for (int i = 0; i < depth; i++) {
+            layerTypes[i] = classLoader.load(layerTypeNames[i].getClassName());
+        }
+        final Class[] classes = new Class[components];
+        for (int i = 0; i < components; i++) {
+            classes[i] = classLoader.load(names[i]);
+        }
+        componentClasses = classes;
+    }
+
+    /**
+     * Add a dependency to a component between the start and end index, that is not already a
+     * dependency and has less dependents than the fan-in. The search starts at a random index and
+     * nothing is added if no such component is left.
+     */
+    private void addDependency(List parameters, Type[] types, int[] dependents, int start, int end, Random random) {
+        final int size = end - start;
+        final int offset = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            final int index = start + (offset + i) % size;
+            if ((fanIn == 0 || dependents[index] < fanIn) && !parameters.contains(types[index])) {
+                dependents[index]++;
+                parameters.add(types[index]);
+                return;
+            }
+        }
+    }
+
+    private static byte[] generateInterface(String name) {
+        final ClassWriter writer = new ClassWriter(true);
+        final ClassEmitter emitter = new ClassEmitter(writer);
+        emitter.begin_class(Constants.V1_2, Constants.ACC_PUBLIC | Constants.ACC_INTERFACE | Constants.ACC_ABSTRACT,
+                name, Constants.TYPE_OBJECT, null, Constants.SOURCE_FILE);
+        emitter.end_class();
+        return writer.toByteArray();
+    }
+
+    private static byte[] generateComponent(String name, Type[] interfaces, Type[] parameters, boolean startable) {
+        final ClassWriter writer = new ClassWriter(true);
+        final ClassEmitter emitter = new ClassEmitter(writer);
+        emitter.begin_class(Constants.V1_2, Constants.ACC_PUBLIC, name, Constants.TYPE_OBJECT, interfaces, Constants.SOURCE_FILE);
+        CodeEmitter code = emitter.begin_method(Constants.ACC_PUBLIC, TypeUtils.parseConstructor(parameters), null, null);
+        code.load_this();
+        code.super_invoke_constructor();
+        code.return_value();
+        code.end_method();
+        if (startable) {
+            code = emitter.begin_method(Constants.ACC_PUBLIC, START, null, null);
+            code.return_value();
+            code.end_method();
+            code = emitter.begin_method(Constants.ACC_PUBLIC, STOP, null, null);
+            code.return_value();
+            code.end_method();
+        }
+        emitter.end_class();
+        return writer.toByteArray();
+    }
+
+    private static class GeneratedClassLoader extends ClassLoader {
+        private final Map definitions = new HashMap();
+
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        void add(String name, byte[] definition) {
+            definitions.put(name, definition);
+        }
+
+        Class load(String name) {
+            try {
+                return loadClass(name);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Generated class not found: " + name);
+            }
+        }
+
+        protected Class findClass(String name) throws ClassNotFoundException {
+            final byte[] definition = (byte[]) definitions.remove(name);
+            if (definition == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, definition, 0, definition.length);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+
+package org.picocontainer.gems.adapters;
+
+import net.sf.cglib.core.CodeGenerationException;
+import net.sf.cglib.reflect.FastClass;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Calls the constructors and methods of a type with a class generated by cglib, that dispatches
+ * by index directly to the member instead of using reflection. The generated class can only
+ * access the members, that are visible to other classes of the same package. A member that is not
+ * accessible or a type for that no class can be generated is reported with a negative index, so
+ * that the caller can fall back to reflection.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+final class FastClassInvoker {
+
+    private final FastClass fastClass;
+    private volatile Map indexes = new HashMap();
+
+    FastClassInvoker(Class type) {
+        FastClass generated;
+        try {
+            generated = FastClass.create(type);
+        } catch (CodeGenerationException e) {
+            generated = null;
+        } catch (LinkageError e) {
+            generated = null;
+        }
+        fastClass = generated;
+    }
+
+    boolean isGenerated() {
+        return fastClass != null;
+    }
+
+    /**
+     * Retrieve the index of a constructor or method in the generated class.
+     *
+     * @param member the {@link Constructor} or {@link Method}
+     * @return the index or -1 if the member cannot be called by the generated class
+     */
+    int getIndex(Member member) {
+        if (fastClass == null) {
+            return -1;
+        }
+        Integer index = (Integer) indexes.get(member);
+        if (index == null) {
+            index = new Integer(lookupIndex(member));
+            // copy on write, the lookups are not synchronized
+            final Map copy = new HashMap(indexes);
+            copy.put(member, index);
+            indexes = copy;
+        }
+        return index.intValue();
+    }
+
+    private int lookupIndex(Member member) {
+        if (member instanceof Constructor) {
+            return fastClass.getIndex(((Constructor) member).getParameterTypes());
+        }
+        final Method method = (Method) member;
+        return fastClass.getIndex(method.getName(), method.getParameterTypes());
+    }
+
+    Object newInstance(int index, Object[] arguments) throws InvocationTargetException {
+        return fastClass.newInstance(index, arguments);
+    }
+
+    Object invoke(int index, Object target, Object[] arguments) throws InvocationTargetException {
+        return fastClass.invoke(index, target, arguments);
+    }
+}
@@ -0,0 +1,114 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+
+package org.picocontainer.gems.adapters;
+
+import org.picocontainer.ComponentMonitor;
+import org.picocontainer.Parameter;
+import org.picocontainer.defaults.AssignabilityRegistrationException;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.LifecycleStrategy;
+import org.picocontainer.defaults.NotConcreteRegistrationException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A {@link ConstructorInjectionComponentAdapter} that calls the constructor with a class generated
+ * by cglib instead of reflection. The adapter falls back to reflection for constructors that cannot
+ * be called from a generated class, e.g. private constructors of non-public classes.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public class FastConstructorInjectionComponentAdapter extends ConstructorInjectionComponentAdapter {
+    private transient FastClassInvoker invoker;
+
+    /**
+     * Creates a FastConstructorInjectionComponentAdapter
+     *
+     * @param componentKey            the search key for this implementation
+     * @param componentImplementation the concrete implementation
+     * @param parameters              the parameters to use for the initialization
+     * @param allowNonPublicClasses   flag to allow instantiation of non-public classes.
+     * @param monitor                 the component monitor used by this adapter
+     * @param lifecycleStrategy       the component lifecycle strategy used by this adapter
+     * @throws AssignabilityRegistrationException
+     *                              if the key is a type and the implementation cannot be assigned to.
+     * @throws NotConcreteRegistrationException
+     *                              if the implementation is not a concrete class.
+     * @throws NullPointerException if one of the parameters is <code>null</code>
+     */
+    public FastConstructorInjectionComponentAdapter(final Object componentKey, final Class componentImplementation, Parameter[] parameters, boolean allowNonPublicClasses, ComponentMonitor monitor, LifecycleStrategy lifecycleStrategy) throws AssignabilityRegistrationException, NotConcreteRegistrationException {
+        super(componentKey, componentImplementation, parameters, allowNonPublicClasses, monitor, lifecycleStrategy);
+    }
+
+    /**
+     * Creates a FastConstructorInjectionComponentAdapter
+     *
+     * @param componentKey            the search key for this implementation
+     * @param componentImplementation the concrete implementation
+     * @param parameters              the parameters to use for the initialization
+     * @param allowNonPublicClasses   flag to allow instantiation of non-public classes.
+     * @throws AssignabilityRegistrationException
+     *                              if the key is a type and the implementation cannot be assigned to.
+     * @throws NotConcreteRegistrationException
+     *                              if the implementation is not a concrete class.
+     * @throws NullPointerException if one of the parameters is <code>null</code>
+     */
+    public FastConstructorInjectionComponentAdapter(final Object componentKey, final Class componentImplementation, Parameter[] parameters, boolean allowNonPublicClasses) throws AssignabilityRegistrationException, NotConcreteRegistrationException {
+        super(componentKey, componentImplementation, parameters, allowNonPublicClasses);
+    }
+
+    /**
+     * Creates a FastConstructorInjectionComponentAdapter with key, implementation and parameters
+     *
+     * @param componentKey            the search key for this implementation
+     * @param componentImplementation the concrete implementation
+     * @param parameters              the parameters to use for the initialization
+     * @throws AssignabilityRegistrationException
+     *                              if the key is a type and the implementation cannot be assigned to.
+     * @throws NotConcreteRegistrationException
+     *                              if the implementation is not a concrete class.
+     * @throws NullPointerException if one of the parameters is <code>null</code>
+     */
+    public FastConstructorInjectionComponentAdapter(Object componentKey, Class componentImplementation, Parameter[] parameters) throws AssignabilityRegistrationException, NotConcreteRegistrationException {
+        this(componentKey, componentImplementation, parameters, false);
+    }
+
+    /**
+     * Creates a FastConstructorInjectionComponentAdapter with key and implementation
+     *
+     * @param componentKey            the search key for this implementation
+     * @param componentImplementation the concrete implementation
+     * @throws AssignabilityRegistrationException
+     *                              if the key is a type and the implementation cannot be assigned to.
+     * @throws NotConcreteRegistrationException
+     *                              if the implementation is not a concrete class.
+     */
+    public FastConstructorInjectionComponentAdapter(Object componentKey, Class componentImplementation) throws AssignabilityRegistrationException, NotConcreteRegistrationException {
+        this(componentKey, componentImplementation, null);
+    }
+
+    protected Object newInstance(Constructor constructor, Object[] parameters) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        final int index = getInvoker().getIndex(constructor);
+        if (index < 0) {
+            return super.newInstance(constructor, parameters);
+        }
+        return invoker.newInstance(index, parameters);
+    }
+
+    private FastClassInvoker getInvoker() {
+        if (invoker == null) {
+            invoker = new FastClassInvoker(getComponentImplementation());
+        }
+        return invoker;
+    }
+}
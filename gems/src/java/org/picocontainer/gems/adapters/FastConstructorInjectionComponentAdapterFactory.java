@@ -0,0 +1,60 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.gems.adapters;
+
+import org.picocontainer.ComponentAdapter;
+import org.picocontainer.ComponentMonitor;
+import org.picocontainer.Parameter;
+import org.picocontainer.PicoIntrospectionException;
+import org.picocontainer.defaults.AssignabilityRegistrationException;
+import org.picocontainer.defaults.DefaultLifecycleStrategy;
+import org.picocontainer.defaults.DelegatingComponentMonitor;
+import org.picocontainer.defaults.LifecycleStrategy;
+import org.picocontainer.defaults.MonitoringComponentAdapterFactory;
+import org.picocontainer.defaults.NotConcreteRegistrationException;
+
+/**
+ * A {@link org.picocontainer.defaults.ComponentAdapterFactory} creating
+ * {@link FastConstructorInjectionComponentAdapter} instances.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public class FastConstructorInjectionComponentAdapterFactory extends MonitoringComponentAdapterFactory {
+    private final boolean allowNonPublicClasses;
+    private LifecycleStrategy lifecycleStrategy;
+
+    public FastConstructorInjectionComponentAdapterFactory(boolean allowNonPublicClasses,
+                        ComponentMonitor monitor, LifecycleStrategy lifecycleStrategy) {
+        this.allowNonPublicClasses = allowNonPublicClasses;
+        this.changeMonitor(monitor);
+        this.lifecycleStrategy = lifecycleStrategy;
+    }
+
+    public FastConstructorInjectionComponentAdapterFactory(boolean allowNonPublicClasses, ComponentMonitor monitor) {
+        this(allowNonPublicClasses, monitor, new DefaultLifecycleStrategy(monitor));
+    }
+
+    public FastConstructorInjectionComponentAdapterFactory(boolean allowNonPublicClasses) {
+        this(allowNonPublicClasses, new DelegatingComponentMonitor());
+    }
+
+    public FastConstructorInjectionComponentAdapterFactory() {
+        this(false);
+    }
+
+    public ComponentAdapter createComponentAdapter(Object componentKey,
+                                                   Class componentImplementation,
+                                                   Parameter[] parameters)
+            throws PicoIntrospectionException, AssignabilityRegistrationException, NotConcreteRegistrationException {
+        return new FastConstructorInjectionComponentAdapter(componentKey, componentImplementation, parameters,
+                allowNonPublicClasses, currentMonitor(), lifecycleStrategy);
+    }
+}
@@ -0,0 +1,111 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+
+package org.picocontainer.gems.adapters;
+
+import org.picocontainer.ComponentMonitor;
+import org.picocontainer.Parameter;
+import org.picocontainer.defaults.AssignabilityRegistrationException;
+import org.picocontainer.defaults.LifecycleStrategy;
+import org.picocontainer.defaults.NotConcreteRegistrationException;
+import org.picocontainer.defaults.SetterInjectionComponentAdapter;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * A {@link SetterInjectionComponentAdapter} that calls the default constructor and the setters with a
+ * class generated by cglib instead of reflection. One class is generated for all members of the
+ * component's implementation. The adapter falls back to reflection for members that cannot be called
+ * from a generated class.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public class FastSetterInjectionComponentAdapter extends SetterInjectionComponentAdapter {
+    private transient FastClassInvoker invoker;
+
+    /**
+     * Creates a FastSetterInjectionComponentAdapter
+     *
+     * @param componentKey            the search key for this implementation
+     * @param componentImplementation the concrete implementation
+     * @param parameters              the parameters to use for the initialization
+     * @param allowNonPublicClasses   flag to allow instantiation of non-public classes.
+     * @param monitor                 the component monitor used by this adapter
+     * @param lifecycleStrategy       the component lifecycle strategy used by this adapter
+     * @throws AssignabilityRegistrationException
+     *                              if the key is a type and the implementation cannot be assigned to.
+     * @throws NotConcreteRegistrationException
+     *                              if the implementation is not a concrete class.
+     * @throws NullPointerException if one of the parameters is <code>null</code>
+     */
+    public FastSetterInjectionComponentAdapter(final Object componentKey, final Class componentImplementation, Parameter[] parameters, boolean allowNonPublicClasses, ComponentMonitor monitor, LifecycleStrategy lifecycleStrategy) throws AssignabilityRegistrationException, NotConcreteRegistrationException {
+        super(componentKey, componentImplementation, parameters, allowNonPublicClasses, monitor, lifecycleStrategy);
+    }
+
+    /**
+     * Creates a FastSetterInjectionComponentAdapter
+     *
+     * @param componentKey            the search key for this implementation
+     * @param componentImplementation the concrete implementation
+     * @param parameters              the parameters to use for the initialization
+     * @param allowNonPublicClasses   flag to allow instantiation of non-public classes.
+     * @throws AssignabilityRegistrationException
+     *                              if the key is a type and the implementation cannot be assigned to.
+     * @throws NotConcreteRegistrationException
+     *                              if the implementation is not a concrete class.
+     * @throws NullPointerException if one of the parameters is <code>null</code>
+     */
+    public FastSetterInjectionComponentAdapter(final Object componentKey, final Class componentImplementation, Parameter[] parameters, boolean allowNonPublicClasses) throws AssignabilityRegistrationException, NotConcreteRegistrationException {
+        super(componentKey, componentImplementation, parameters, allowNonPublicClasses);
+    }
+
+    /**
+     * Creates a FastSetterInjectionComponentAdapter with key, implementation and parameters
+     *
+     * @param componentKey            the search key for this implementation
+     * @param componentImplementation the concrete implementation
+     * @param parameters              the parameters to use for the initialization
+     * @throws AssignabilityRegistrationException
+     *                              if the key is a type and the implementation cannot be assigned to.
+     * @throws NotConcreteRegistrationException
+     *                              if the implementation is not a concrete class.
+     * @throws NullPointerException if one of the parameters is <code>null</code>
+     */
+    public FastSetterInjectionComponentAdapter(Object componentKey, Class componentImplementation, Parameter[] parameters) throws AssignabilityRegistrationException, NotConcreteRegistrationException {
+        this(componentKey, componentImplementation, parameters, false);
+    }
+
+    protected Object newInstance(Constructor constructor, Object[] parameters) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        final int index = getInvoker().getIndex(constructor);
+        if (index < 0) {
+            return super.newInstance(constructor, parameters);
+        }
+        return invoker.newInstance(index, parameters);
+    }
+
+    protected void invokeSetter(Method setter, Object componentInstance, Object value) throws IllegalAccessException, InvocationTargetException {
+        final int index = getInvoker().getIndex(setter);
+        if (index < 0) {
+            super.invokeSetter(setter, componentInstance, value);
+        } else {
+            invoker.invoke(index, componentInstance, new Object[]{value});
+        }
+    }
+
+    private FastClassInvoker getInvoker() {
+        if (invoker == null) {
+            invoker = new FastClassInvoker(getComponentImplementation());
+        }
+        return invoker;
+    }
+}
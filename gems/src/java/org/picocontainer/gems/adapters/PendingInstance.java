@@ -0,0 +1,97 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.gems.adapters;
+
+/**
+ * A pending request for an instance of a {@link PoolingComponentAdapter}. The request is completed
+ * as soon as an instance is available for it. Requests that have to wait are served in the order of
+ * their arrival. A request fails, if the pool is exhausted and does not wait, if the time to wait
+ * for a returning instance has passed or if a new instance cannot be created.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+public interface PendingInstance {
+
+    /**
+     * Callback notified about the completion of a {@link PendingInstance}. The callback is invoked by
+     * the thread that completes the request. This is the thread requesting the instance, a thread
+     * returning an instance into the pool or the thread of the pool expiring the request. A
+     * {@link RuntimeException} thrown by the callback is ignored.
+     *
+     * @since 1.4
+     */
+    public static interface Callback {
+        /**
+         * The requested instance is available.
+         *
+         * @param instance the borrowed instance
+         * @since 1.4
+         */
+        void borrowed(Object instance);
+
+        /**
+         * The request failed.
+         *
+         * @param exception the reason, a {@link PoolException} if the pool is exhausted or the
+         *            request timed out
+         * @since 1.4
+         */
+        void failed(RuntimeException exception);
+    }
+
+    /**
+     * Retrieve whether the request has been completed, failed or cancelled.
+     *
+     * @return <code>true</code> if the request is done
+     * @since 1.4
+     */
+    boolean isDone();
+
+    /**
+     * Retrieve whether the request has been cancelled.
+     *
+     * @return <code>true</code> if the request is cancelled
+     * @since 1.4
+     */
+    boolean isCancelled();
+
+    /**
+     * Cancel the request. A cancelled request is no longer served by the pool and its callback is not
+     * notified.
+     *
+     * @return <code>true</code> if the request was cancelled, <code>false</code> if it was done
+     *         already
+     * @since 1.4
+     */
+    boolean cancel();
+
+    /**
+     * Retrieve the borrowed instance. The call blocks until the request is done.
+     *
+     * @return the borrowed instance
+     * @throws PoolException if the request has been cancelled or the waiting thread was interrupted
+     * @throws RuntimeException the reason for a failed request
+     * @since 1.4
+     */
+    Object get();
+
+    /**
+     * Retrieve the borrowed instance. The call blocks until the request is done or the time has
+     * passed.
+     *
+     * @param milliseconds the maximum number of milliseconds to wait
+     * @return the borrowed instance or <code>null</code> if the request is not done in time
+     * @throws PoolException if the request has been cancelled or the waiting thread was interrupted
+     * @throws RuntimeException the reason for a failed request
+     * @since 1.4
+     */
+    Object get(long milliseconds);
+}
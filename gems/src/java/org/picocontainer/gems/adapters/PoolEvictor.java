@@ -0,0 +1,221 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.gems.adapters;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.picocontainer.PicoContainer;
+
+
+/**
+ * The evictor of the idle instances of the {@link PoolingComponentAdapter} instances of a container.
+ * All pools of the same container share one daemon thread, that evicts the idle instances of every
+ * pool in its interval. The same thread expires the asynchronous requests for instances, that
+ * are waiting too long. The thread is started with the registration of the first pool or request
+ * and ends after the last pool of the container has been unregistered and no request is pending.
+ * The evictor does not keep the pools or the container from being collected by the garbage
+ * collector.
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+final class PoolEvictor implements Runnable {
+
+    // guards the creation and the end of the evictors, the key is the container
+    private static final Map evictors = new WeakHashMap();
+
+    // guarded by this
+    private final List entries = new ArrayList();
+    private final List expirings = new ArrayList();
+    private Thread thread;
+
+    private PoolEvictor() {
+    }
+
+    /**
+     * Register a pool at the evictor of a container.
+     *
+     * @param container the container of the pool
+     * @param adapter the pool
+     * @param interval the interval of the eviction in milliseconds
+     * @return the evictor of the container
+     */
+    static PoolEvictor register(final PicoContainer container, final PoolingComponentAdapter adapter, final long interval) {
+        final Entry entry = new Entry(adapter, interval);
+        synchronized (evictors) {
+            final PoolEvictor evictor = getEvictor(container);
+            synchronized (evictor) {
+                evictor.entries.add(entry);
+                evictor.wakeUp();
+            }
+            return evictor;
+        }
+    }
+
+    /**
+     * Schedule the expiration of a request at the evictor of a container.
+     *
+     * @param container the container of the pool
+     * @param expiring the request
+     * @return the evictor of the container
+     */
+    static PoolEvictor schedule(final PicoContainer container, final Expiring expiring) {
+        synchronized (evictors) {
+            final PoolEvictor evictor = getEvictor(container);
+            synchronized (evictor) {
+                evictor.expirings.add(expiring);
+                evictor.wakeUp();
+            }
+            return evictor;
+        }
+    }
+
+    private static PoolEvictor getEvictor(final PicoContainer container) {
+        PoolEvictor evictor = (PoolEvictor)evictors.get(container);
+        if (evictor == null) {
+            evictor = new PoolEvictor();
+            evictors.put(container, evictor);
+        }
+        return evictor;
+    }
+
+    // called with the monitor of this
+    private void wakeUp() {
+        if (thread == null) {
+            thread = new Thread(this, "PoolingComponentAdapter evictor");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        notify();
+    }
+
+    /**
+     * Unregister a pool. The thread of the evictor ends, if no pool and no request is left.
+     *
+     * @param adapter the pool
+     */
+    synchronized void unregister(final PoolingComponentAdapter adapter) {
+        for (final Iterator iter = entries.iterator(); iter.hasNext();) {
+            if (((Entry)iter.next()).get() == adapter) {
+                iter.remove();
+            }
+        }
+        notify();
+    }
+
+    /**
+     * Remove a request, that does not expire anymore.
+     *
+     * @param expiring the request
+     */
+    synchronized void unschedule(final Expiring expiring) {
+        expirings.remove(expiring);
+        notify();
+    }
+
+    public void run() {
+        while (true) {
+            synchronized (evictors) {
+                synchronized (this) {
+                    if (entries.isEmpty() && expirings.isEmpty()) {
+                        evictors.values().remove(this);
+                        thread = null;
+                        return;
+                    }
+                }
+            }
+            final List due = new ArrayList();
+            final List expired = new ArrayList();
+            synchronized (this) {
+                final long now = System.currentTimeMillis();
+                long next = Long.MAX_VALUE;
+                for (final Iterator iter = entries.iterator(); iter.hasNext();) {
+                    final Entry entry = (Entry)iter.next();
+                    final Object adapter = entry.get();
+                    if (adapter == null) {
+                        iter.remove();
+                        continue;
+                    }
+                    if (entry.next <= now) {
+                        due.add(adapter);
+                        entry.next = now + entry.interval;
+                    }
+                    next = Math.min(next, entry.next);
+                }
+                for (final Iterator iter = expirings.iterator(); iter.hasNext();) {
+                    final Expiring expiring = (Expiring)iter.next();
+                    if (expiring.getDeadline() <= now) {
+                        expired.add(expiring);
+                        iter.remove();
+                    } else {
+                        next = Math.min(next, expiring.getDeadline());
+                    }
+                }
+                if (due.isEmpty() && expired.isEmpty() && next != Long.MAX_VALUE) {
+                    try {
+                        wait(next - now);
+                    } catch (InterruptedException e) {
+                        // continue with the eviction
+                    }
+                }
+            }
+            for (final Iterator iter = expired.iterator(); iter.hasNext();) {
+                try {
+                    ((Expiring)iter.next()).expire();
+                } catch (RuntimeException e) {
+                    // a failing callback must not stop the expiration of the other requests
+                }
+            }
+            for (final Iterator iter = due.iterator(); iter.hasNext();) {
+                try {
+                    ((PoolingComponentAdapter)iter.next()).evictIdleInstances();
+                } catch (RuntimeException e) {
+                    // a failing disposal must not stop the eviction of the other pools
+                }
+            }
+        }
+    }
+
+    /**
+     * A request, that expires at a deadline.
+     */
+    static interface Expiring {
+        /**
+         * Retrieve the time of the expiration.
+         *
+         * @return the deadline in milliseconds
+         */
+        long getDeadline();
+
+        /**
+         * Expire the request.
+         */
+        void expire();
+    }
+
+    /**
+     * A registered pool.
+     */
+    private static final class Entry extends WeakReference {
+        private final long interval;
+        private long next;
+
+        private Entry(final PoolingComponentAdapter adapter, final long interval) {
+            super(adapter);
+            this.interval = interval;
+            this.next = System.currentTimeMillis() + interval;
+        }
+    }
+}
@@ -64,6 +64,25 @@ import com.thoughtworks.proxy.toys.pool.Pool;
  * returning object is also disposed and will not return to the pool anymore. Note, that current
  * implementation cannot dispose pooled objects.
  * </p>
+ * <p>
+ * With an {@link EngineContext} the pool may use a thread-affine engine instead of the {@link Pool}
+ * toy. This engine keeps the instance returned last by a thread for the next borrow of the same
+ * thread and does not serialize all borrows and returns on a single monitor. Threads waiting for a
+ * returning instance are served in the order of their arrival. The engine does not serialize the
+ * pooled instances.
+ * </p>
+ * <p>
+ * With an {@link IdleContext} the pool creates a minimum number of idle instances, when it is
+ * started by its container, so the first requests do not have to wait for them. The thread-affine
+ * engine can also evict the instances, that have been idle for a maximum time. An evicted instance
+ * is stopped and disposed like an instance that cannot be reset. All pools of a container share a
+ * single thread for the eviction, that runs as long as one of them is started.
+ * </p>
+ * <p>
+ * The thread-affine engine supports also the asynchronous request of an instance, that does not
+ * block the requesting thread. The returned {@link PendingInstance} is completed with the next
+ * available instance and queued with the waiting threads in the order of arrival.
+ * </p>
  * 
  * @author J&ouml;rg Schaible
  * @author Aslak Helles&oslash;y
@@ -138,13 +157,63 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
         int getSerializationMode();
     }
 
+    /**
+     * Extension of the {@link Context} selecting the engine of the pool.
+     * 
+     * @since 1.4
+     */
+    public static interface EngineContext extends Context {
+        /**
+         * Retrieve whether the pool uses the thread-affine engine instead of the {@link Pool} toy.
+         * The engine supports the same settings, but ignores the serialization mode.
+         * 
+         * @return <code>true</code> for the thread-affine engine
+         * @since 1.4
+         */
+        boolean isThreadAffine();
+    }
+
+    /**
+     * Extension of the {@link Context} managing the idle instances of the pool.
+     * 
+     * @since 1.4
+     */
+    public static interface IdleContext extends Context {
+        /**
+         * Retrieve the minimum number of idle instances. The pool creates them, when it is started.
+         * Evicting instances of the pool will keep this number of idle instances.
+         * 
+         * @return the minimum number of idle instances
+         * @since 1.4
+         */
+        int getMinIdle();
+
+        /**
+         * Retrieve the maximum number of milliseconds an instance may be idle, before it is
+         * evicted from the pool. The eviction is only supported by the thread-affine engine of an
+         * {@link EngineContext}.
+         * 
+         * @return the maximum idle time or <code>0</code> to keep the idle instances
+         * @since 1.4
+         */
+        int getMaxIdleTimeInMilliseconds();
+
+        /**
+         * Retrieve the number of milliseconds between two evictions.
+         * 
+         * @return the eviction interval or <code>0</code> to use the maximum idle time
+         * @since 1.4
+         */
+        int getEvictionIntervalInMilliseconds();
+    }
+
     /**
      * The default context for a PoolingComponentAdapter.
      * 
      * @author J&ouml;rg Schaible
      * @since 1.2
      */
-    public static class DefaultContext implements Context {
+    public static class DefaultContext implements EngineContext, IdleContext {
 
         /**
          * {@inheritDoc} Returns {@link PoolingComponentAdapter#DEFAULT_MAX_SIZE}.
@@ -188,6 +257,34 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
             return Pool.SERIALIZATION_STANDARD;
         }
 
+        /**
+         * {@inheritDoc} Returns <code>false</code>.
+         */
+        public boolean isThreadAffine() {
+            return false;
+        }
+
+        /**
+         * {@inheritDoc} Returns <code>0</code>.
+         */
+        public int getMinIdle() {
+            return 0;
+        }
+
+        /**
+         * {@inheritDoc} Returns <code>0</code>.
+         */
+        public int getMaxIdleTimeInMilliseconds() {
+            return 0;
+        }
+
+        /**
+         * {@inheritDoc} Returns <code>0</code>.
+         */
+        public int getEvictionIntervalInMilliseconds() {
+            return 0;
+        }
+
     }
 
     /**
@@ -216,12 +313,17 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
     private int maxPoolSize;
     private int waitMilliSeconds;
     private Pool pool;
+    private ThreadAffinePool affinePool;
     private int serializationMode;
     private boolean autostartGC;
     private boolean started;
     private boolean disposed;
     private boolean delegateHasLifecylce;
+    private int minIdle;
+    private int maxIdleTime;
+    private int evictionInterval;
     private transient List components;
+    private transient PoolEvictor evictor;
 
     /**
      * Construct a PoolingComponentAdapter with default settings.
@@ -241,8 +343,8 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
      * 
      * @param delegate the delegated ComponentAdapter
      * @param context the {@link Context} of the pool
-     * @throws IllegalArgumentException if the maximum pool size or the serialization mode is
-     *             invalid
+     * @throws IllegalArgumentException if the maximum pool size, the serialization mode or the
+     *             settings for the idle instances are invalid
      * @since 1.2
      */
     public PoolingComponentAdapter(ComponentAdapter delegate, Context context) {
@@ -254,6 +356,23 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
         if (maxPoolSize <= 0) {
             throw new IllegalArgumentException("Invalid maximum pool size");
         }
+        final boolean threadAffine = context instanceof EngineContext
+                && ((EngineContext)context).isThreadAffine();
+        if (context instanceof IdleContext) {
+            final IdleContext idleContext = (IdleContext)context;
+            this.minIdle = idleContext.getMinIdle();
+            this.maxIdleTime = idleContext.getMaxIdleTimeInMilliseconds();
+            this.evictionInterval = idleContext.getEvictionIntervalInMilliseconds();
+            if (minIdle < 0 || minIdle > maxPoolSize) {
+                throw new IllegalArgumentException("Invalid minimum number of idle instances");
+            }
+            if (maxIdleTime < 0 || evictionInterval < 0) {
+                throw new IllegalArgumentException("Invalid idle time or eviction interval");
+            }
+            if (maxIdleTime > 0 && !threadAffine) {
+                throw new IllegalArgumentException("Eviction of idle instances requires the thread-affine engine");
+            }
+        }
         started = false;
         disposed = false;
         delegateHasLifecylce = delegate instanceof LifecycleStrategy
@@ -264,8 +383,16 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
         final Class type = delegate.getComponentKey() instanceof Class ? (Class)delegate
                 .getComponentKey() : delegate.getComponentImplementation();
         final Resetter resetter = context.getResetter();
-        this.pool = new Pool(type, delegateHasLifecylce ? new LifecycleResetter(
-                this, resetter) : resetter, context.getProxyFactory(), serializationMode);
+        final Resetter poolResetter = delegateHasLifecylce
+                ? new LifecycleResetter(this, resetter)
+                : resetter;
+        if (threadAffine) {
+            this.affinePool = new ThreadAffinePool(
+                    this, type, poolResetter, context.getProxyFactory(), maxPoolSize, waitMilliSeconds,
+                    autostartGC);
+        } else {
+            this.pool = new Pool(type, poolResetter, context.getProxyFactory(), serializationMode);
+        }
     }
 
     /**
@@ -294,6 +421,9 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
         if (delegateHasLifecylce) {
             if (disposed) throw new IllegalStateException("Already disposed");
         }
+        if (affinePool != null) {
+            return affinePool.get(container);
+        }
         Object componentInstance = null;
         long now = System.currentTimeMillis();
         boolean gc = autostartGC;
@@ -304,14 +434,7 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
                     break;
                 }
                 if (maxPoolSize > pool.size()) {
-                    final Object component = super.getComponentInstance(container);
-                    if (delegateHasLifecylce) {
-                        components.add(component);
-                        if (started) {
-                            start(component);
-                        }
-                    }
-                    pool.add(component);
+                    pool.add(createPooledInstance(container));
                 } else if (!gc) {
                     long after = System.currentTimeMillis();
                     if (waitMilliSeconds < 0) {
@@ -338,6 +461,53 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
         return componentInstance;
     }
 
+    /**
+     * Request an instance from the pool without blocking the current thread. The returned
+     * {@link PendingInstance} is completed immediately, if an instance is available or the maximum
+     * size of the pool is not reached. Otherwise it is completed as soon as an instance is returned
+     * into the pool, requests and waiting threads are served in the order of their arrival. The
+     * request fails immediately, if the pool is exhausted and the {@link Context} does not allow to
+     * wait, and fails after the maximum time to wait has passed. It can be cancelled, as long as it
+     * is not completed.
+     * 
+     * @param container the container to resolve the dependencies of a new instance
+     * @param callback the {@link PendingInstance.Callback} notified about the completion of the
+     *            request, may be <code>null</code>
+     * @return the pending request
+     * @throws UnsupportedOperationException if the pool does not use the thread-affine engine
+     * @throws IllegalStateException if the pool has already been disposed
+     * @since 1.4
+     */
+    public PendingInstance requestComponentInstance(PicoContainer container, PendingInstance.Callback callback) {
+        if (affinePool == null) {
+            throw new UnsupportedOperationException("Asynchronous requests require the thread-affine engine");
+        }
+        if (delegateHasLifecylce) {
+            if (disposed) throw new IllegalStateException("Already disposed");
+        }
+        return affinePool.request(container, callback);
+    }
+
+    /**
+     * Create a new instance for the pool with the delegate. The instance is started, if the pool has
+     * been started already.
+     * 
+     * @param container the container to resolve the dependencies of the instance
+     * @return the new instance
+     */
+    Object createPooledInstance(PicoContainer container) {
+        final Object component = super.getComponentInstance(container);
+        if (delegateHasLifecylce) {
+            synchronized (components) {
+                components.add(component);
+            }
+            if (started) {
+                start(component);
+            }
+        }
+        return component;
+    }
+
     /**
      * Retrieve the current size of the pool. The returned value reflects the number of all managed
      * components.
@@ -346,7 +516,49 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
      * @since 1.2
      */
     public int size() {
-        return pool.size();
+        return affinePool != null ? affinePool.size() : pool.size();
+    }
+
+    /**
+     * Discard an instance, that is no longer part of the pool. The instance is stopped, if the pool
+     * has been started, and disposed, if the pool has not been disposed yet.
+     * 
+     * @param instance the discarded instance
+     */
+    void discardPooledInstance(Object instance) {
+        if (delegateHasLifecylce) {
+            synchronized (components) {
+                if (!components.remove(instance)) {
+                    return;
+                }
+                if (started) {
+                    stop(instance);
+                }
+            }
+            if (!disposed) {
+                dispose(instance);
+            }
+        }
+    }
+
+    /**
+     * Evict the instances, that have been idle for the maximum idle time.
+     */
+    void evictIdleInstances() {
+        if (affinePool != null && maxIdleTime > 0) {
+            affinePool.evict(maxIdleTime, minIdle);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A pool, that manages idle instances, has a lifecycle also. A container starts the pool without
+     * borrowing an instance, since the pool does not cache it.
+     * </p>
+     */
+    public boolean hasLifecycle() {
+        return super.hasLifecycle() || minIdle > 0 || maxIdleTime > 0;
     }
 
     static class LifecycleResetter implements Resetter, Serializable {
@@ -362,13 +574,7 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
         public boolean reset(Object object) {
             final boolean result = delegate.reset(object);
             if (!result || adapter.disposed) {
-                if (adapter.started) {
-                    adapter.stop(object);
-                }
-                adapter.components.remove(object);
-                if (!adapter.disposed) {
-                    adapter.dispose(object);
-                }
+                adapter.discardPooledInstance(object);
             }
             return result && !adapter.disposed;
         }
@@ -378,7 +584,8 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
     /**
      * Start of the container ensures that at least one pooled component has been started. Applies
      * only if the delegated {@link ComponentAdapter} supports a lifecylce by implementing
-     * {@link LifecycleStrategy}.
+     * {@link LifecycleStrategy}. The start creates also the minimum number of idle instances and
+     * starts the eviction of the idle instances.
      * 
      * @throws IllegalStateException if pool was already disposed
      */
@@ -386,30 +593,61 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
         if (delegateHasLifecylce) {
             if (started) throw new IllegalStateException("Already started");
             if (disposed) throw new IllegalStateException("Already disposed");
-            for (final Iterator iter = components.iterator(); iter.hasNext();) {
-                start(iter.next());
+            synchronized (components) {
+                for (final Iterator iter = components.iterator(); iter.hasNext();) {
+                    start(iter.next());
+                }
+                started = true;
             }
-            started = true;
-            if (pool.size() == 0) {
+            if (size() == 0 && minIdle == 0) {
                 getComponentInstance(container);
             }
         }
+        if (minIdle > 0) {
+            prewarm(container);
+        }
+        if (maxIdleTime > 0 && evictor == null) {
+            evictor = PoolEvictor.register(container, this, evictionInterval > 0 ? evictionInterval : maxIdleTime);
+        }
+    }
+
+    private void prewarm(final PicoContainer container) {
+        if (affinePool != null) {
+            affinePool.prewarm(container, minIdle);
+        } else {
+            synchronized (pool) {
+                while (pool.getAvailable() < minIdle && pool.size() < maxPoolSize) {
+                    pool.add(createPooledInstance(container));
+                }
+            }
+        }
+    }
+
+    private void stopEviction() {
+        if (evictor != null) {
+            evictor.unregister(this);
+            evictor = null;
+        }
     }
 
     /**
-     * Stop of the container has no effect for the pool. Applies only if the delegated
-     * {@link ComponentAdapter} supports a lifecylce by implementing {@link LifecycleStrategy}.
+     * Stop of the container has no effect for the pool, except that the eviction of idle instances
+     * ends. Applies only if the delegated {@link ComponentAdapter} supports a lifecylce by
+     * implementing {@link LifecycleStrategy}.
      * 
      * @throws IllegalStateException if pool was already disposed
      */
     public void stop(final PicoContainer container) {
+        stopEviction();
         if (delegateHasLifecylce) {
             if (!started) throw new IllegalStateException("Not started yet");
             if (disposed) throw new IllegalStateException("Already disposed");
-            for (final Iterator iter = components.iterator(); iter.hasNext();) {
-                stop(iter.next());
+            synchronized (components) {
+                for (final Iterator iter = components.iterator(); iter.hasNext();) {
+                    stop(iter.next());
+                }
+                started = false;
             }
-            started = false;
         }
     }
 
@@ -421,12 +659,15 @@ public class PoolingComponentAdapter extends DecoratingComponentAdapter implemen
      * @throws IllegalStateException if pool was already disposed
      */
     public void dispose(final PicoContainer container) {
+        stopEviction();
         if (delegateHasLifecylce) {
             if (started) throw new IllegalStateException("Not stopped yet");
             if (disposed) throw new IllegalStateException("Already disposed");
             disposed = true;
-            for (final Iterator iter = components.iterator(); iter.hasNext();) {
-                dispose(iter.next());
+            synchronized (components) {
+                for (final Iterator iter = components.iterator(); iter.hasNext();) {
+                    dispose(iter.next());
+                }
             }
             // @todo: Release pooled components and clear collection
         }
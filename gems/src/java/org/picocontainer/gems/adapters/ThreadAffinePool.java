@@ -0,0 +1,844 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.gems.adapters;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.picocontainer.PicoContainer;
+
+import com.thoughtworks.proxy.Invoker;
+import com.thoughtworks.proxy.ProxyFactory;
+import com.thoughtworks.proxy.kit.Resetter;
+import com.thoughtworks.proxy.toys.pool.Poolable;
+
+
+/**
+ * A pool engine of the {@link PoolingComponentAdapter}, that does not serialize every borrow and
+ * return on a single monitor. A thread keeps the last instance it returned in a slot of its own and
+ * takes it again with its next borrow. Only the monitor of the slot is involved, that is normally
+ * not contended. Instances that do not fit into the slot of the returning thread are kept in a
+ * shared queue. A thread that finds neither takes an instance from the slot of another thread,
+ * creates a new one or waits. The slots holding an instance are listed on a shared stack, so taking
+ * an instance of another thread does not scan the slots of all threads. Waiting threads are served
+ * in the order of their arrival, a returning instance is handed over directly to the thread that
+ * waits longest. A {@link PendingInstance} requested asynchronously waits in the same queue without
+ * blocking a thread.
+ * <p>
+ * The shared queue hands out the instance returned last, the instances returned first stay idle
+ * the longest time. The pool can evict instances, that have been idle longer than a maximum idle
+ * time, from the queue and from the slots.
+ * </p>
+ * <p>
+ * The borrowed instances are proxies implementing the type of the component and {@link Poolable}
+ * like the ones of the {@link com.thoughtworks.proxy.toys.pool.Pool}. An instance, whose proxy was
+ * collected by the garbage collector, returns into the pool. The instances of the pool are not
+ * serialized, a deserialized pool is empty.
+ * </p>
+ *
+ * @version $Revision$
+ * @since 1.4
+ */
+final class ThreadAffinePool implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Method returnInstanceToPool;
+    private static final Method equals;
+    // the value a waiter receives, if it may create a new instance
+    private static final Object GROW = new Object();
+
+    static {
+        try {
+            returnInstanceToPool = Poolable.class.getMethod("returnInstanceToPool", null);
+            equals = Object.class.getMethod("equals", new Class[]{Object.class});
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e.toString());
+        }
+    }
+
+    private final PoolingComponentAdapter adapter;
+    private final Class[] types;
+    private final Resetter resetter;
+    private final ProxyFactory proxyFactory;
+    private final int maxSize;
+    private final int waitMilliSeconds;
+    private final boolean autostartGC;
+    // guards available, waiters and size, available contains Idle entries
+    private transient Object lock;
+    private transient LinkedList available;
+    private transient LinkedList waiters;
+    private transient volatile int waiting;
+    private transient int size;
+    private transient volatile Slot[] slots;
+    // the slots that received an instance since they were taken from the stack, guarded by itself
+    private transient List stocked;
+    private transient ThreadLocal affinity;
+    private transient ReferenceQueue collected;
+
+    /**
+     * Construct a ThreadAffinePool.
+     *
+     * @param adapter the adapter creating new instances
+     * @param type the type of the pooled instances
+     * @param resetter the {@link Resetter} of the returning instances
+     * @param proxyFactory the factory for the proxies of the borrowed instances
+     * @param maxSize the maximum number of instances
+     * @param waitMilliSeconds the maximum time to wait for a returning instance, or
+     *            {@link PoolingComponentAdapter#BLOCK_ON_WAIT} or
+     *            {@link PoolingComponentAdapter#FAIL_ON_WAIT}
+     * @param autostartGC <code>true</code> to run the garbage collector once, before a borrow waits
+     */
+    ThreadAffinePool(
+            final PoolingComponentAdapter adapter, final Class type, final Resetter resetter,
+            final ProxyFactory proxyFactory, final int maxSize, final int waitMilliSeconds,
+            final boolean autostartGC) {
+        this.adapter = adapter;
+        this.types = new Class[]{type, Poolable.class};
+        this.resetter = resetter;
+        this.proxyFactory = proxyFactory;
+        this.maxSize = maxSize;
+        this.waitMilliSeconds = waitMilliSeconds;
+        this.autostartGC = autostartGC;
+        init();
+    }
+
+    private void init() {
+        lock = new Object[0];
+        available = new LinkedList();
+        waiters = new LinkedList();
+        slots = new Slot[0];
+        stocked = new ArrayList();
+        affinity = new ThreadLocal();
+        collected = new ReferenceQueue();
+    }
+
+    /**
+     * Borrow an instance from the pool.
+     *
+     * @param container the container passed to the adapter creating a new instance
+     * @return the proxy of the borrowed instance
+     * @throws PoolException if the pool is exhausted or waiting for a returning instance timed out
+     *             or was interrupted
+     */
+    Object get(final PicoContainer container) {
+        final Slot slot = getSlot();
+        Object instance = slot.take();
+        if (instance == null) {
+            instance = obtain(container);
+        }
+        return borrow(slot, instance);
+    }
+
+    /**
+     * Request an instance from the pool without blocking. The request is completed immediately, if
+     * an instance is available or the pool may grow. Otherwise it waits in the queue of the waiting
+     * threads for a returning instance. The request of an exhausted pool, that does not wait, fails
+     * immediately.
+     *
+     * @param container the container passed to the adapter creating a new instance
+     * @param callback the callback notified about the completion, may be <code>null</code>
+     * @return the pending request
+     */
+    PendingInstance request(final PicoContainer container, final PendingInstance.Callback callback) {
+        final Slot slot = getSlot();
+        final Request request = new Request(container, slot, callback);
+        Object instance = slot.take();
+        if (instance == null) {
+            reclaimCollected(false);
+            instance = takeAvailable();
+        }
+        if (instance == null) {
+            instance = steal();
+        }
+        if (instance == null) {
+            if (waitMilliSeconds < 0) {
+                synchronized (lock) {
+                    if (size < maxSize) {
+                        ++size;
+                        instance = GROW;
+                    }
+                }
+                if (instance == null) {
+                    request.fail(new PoolException("Pool exhausted"));
+                    return request;
+                }
+            } else {
+                synchronized (lock) {
+                    if (!available.isEmpty()) {
+                        instance = ((Idle)available.removeLast()).instance;
+                    } else if (size < maxSize) {
+                        ++size;
+                        instance = GROW;
+                    } else {
+                        waiters.addLast(request);
+                        ++waiting;
+                    }
+                }
+                if (instance == null) {
+                    // an instance may have been returned into a slot before the request was queued
+                    final Object stolen = steal();
+                    if (stolen == null || !dequeue(request)) {
+                        release(stolen);
+                        if (waitMilliSeconds > 0) {
+                            request.schedule(System.currentTimeMillis() + waitMilliSeconds);
+                        }
+                        return request;
+                    }
+                    instance = stolen;
+                }
+            }
+        }
+        request.complete(instance);
+        return request;
+    }
+
+    /**
+     * Create new instances until the pool has a minimum number of idle instances or reached its
+     * maximum size.
+     *
+     * @param container the container passed to the adapter creating a new instance
+     * @param minIdle the minimum number of idle instances
+     */
+    void prewarm(final PicoContainer container, final int minIdle) {
+        while (true) {
+            final int idle = countIdleInSlots();
+            synchronized (lock) {
+                if (idle + available.size() >= minIdle || size >= maxSize) {
+                    return;
+                }
+                ++size;
+            }
+            final Object instance = create(container);
+            final Waiter waiter;
+            synchronized (lock) {
+                if (waiters.isEmpty()) {
+                    available.addLast(new Idle(instance));
+                    continue;
+                }
+                waiter = (Waiter)waiters.removeFirst();
+                --waiting;
+            }
+            waiter.complete(instance);
+        }
+    }
+
+    /**
+     * Evict the instances, that are idle for a maximum time. The evicted instances are discarded
+     * by the adapter.
+     *
+     * @param maxIdleTime the maximum idle time in milliseconds
+     * @param minIdle the number of idle instances that are kept anyway
+     */
+    void evict(final long maxIdleTime, final int minIdle) {
+        reclaimCollected(false);
+        final long cutoff = System.currentTimeMillis() - maxIdleTime;
+        final List evicted = new ArrayList();
+        int idle = countIdleInSlots();
+        synchronized (lock) {
+            idle += available.size();
+            while (idle > minIdle && !available.isEmpty() && ((Idle)available.getFirst()).since <= cutoff) {
+                evicted.add(((Idle)available.removeFirst()).instance);
+                --idle;
+            }
+        }
+        final Slot[] current = slots;
+        for (int i = 0; i < current.length && idle > minIdle; i++) {
+            synchronized (current[i]) {
+                if (current[i].instance != null && current[i].since <= cutoff) {
+                    evicted.add(current[i].take());
+                    --idle;
+                }
+            }
+        }
+        RuntimeException failure = null;
+        for (final Iterator iter = evicted.iterator(); iter.hasNext();) {
+            try {
+                adapter.discardPooledInstance(iter.next());
+            } catch (final RuntimeException e) {
+                // discard the other instances anyway
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            shrink();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Retrieve the number of all managed instances.
+     *
+     * @return the number of instances
+     */
+    int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    private Object obtain(final PicoContainer container) {
+        final long start = System.currentTimeMillis();
+        boolean gc = autostartGC;
+        while (true) {
+            reclaimCollected(false);
+            Object instance = takeAvailable();
+            if (instance == null) {
+                instance = steal();
+            }
+            if (instance == null) {
+                synchronized (lock) {
+                    if (size < maxSize) {
+                        ++size;
+                        instance = GROW;
+                    }
+                }
+            }
+            if (instance == null && gc) {
+                System.gc();
+                reclaimCollected(true);
+                gc = false;
+                continue;
+            }
+            if (instance == null) {
+                instance = await(start);
+            }
+            return instance == GROW ? create(container) : instance;
+        }
+    }
+
+    private Object create(final PicoContainer container) {
+        boolean created = false;
+        try {
+            final Object instance = adapter.createPooledInstance(container);
+            created = true;
+            return instance;
+        } finally {
+            if (!created) {
+                shrink();
+            }
+        }
+    }
+
+    private Object await(final long start) {
+        if (waitMilliSeconds < 0) {
+            throw new PoolException("Pool exhausted");
+        }
+        final Waiter waiter = new Waiter();
+        synchronized (lock) {
+            if (!available.isEmpty()) {
+                return ((Idle)available.removeLast()).instance;
+            }
+            if (size < maxSize) {
+                ++size;
+                return GROW;
+            }
+            waiters.addLast(waiter);
+            ++waiting;
+        }
+        // an instance may have been returned into a slot before this thread was registered
+        final Object stolen = steal();
+        if (stolen != null) {
+            return cancel(waiter, stolen);
+        }
+        synchronized (waiter) {
+            while (waiter.value == null) {
+                long wait = 0;
+                if (waitMilliSeconds > 0) {
+                    wait = start + waitMilliSeconds - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        break;
+                    }
+                }
+                try {
+                    waiter.wait(wait);
+                } catch (InterruptedException e) {
+                    // give the client code of the current thread a chance to abort also
+                    Thread.currentThread().interrupt();
+                    release(cancel(waiter, null));
+                    throw new PoolException("Interrupted waiting for returning object into the pool", e);
+                }
+            }
+        }
+        final Object value = cancel(waiter, null);
+        if (value == null) {
+            throw new PoolException("Time out wating for returning object into pool");
+        }
+        return value;
+    }
+
+    /**
+     * Remove a waiter from the queue. If the waiter has already been served, the passed alternative
+     * instance is released again.
+     *
+     * @return the value of the waiter or the alternative instance
+     */
+    private Object cancel(final Waiter waiter, final Object alternative) {
+        synchronized (lock) {
+            if (waiters.remove(waiter)) {
+                --waiting;
+                return alternative;
+            }
+        }
+        final Object value;
+        synchronized (waiter) {
+            value = waiter.value;
+        }
+        if (alternative != null) {
+            release(alternative);
+        }
+        return value;
+    }
+
+    private boolean dequeue(final Waiter waiter) {
+        synchronized (lock) {
+            if (waiters.remove(waiter)) {
+                --waiting;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private Object borrow(final Slot slot, final Object instance) {
+        final PooledInvoker invoker = new PooledInvoker();
+        final Object proxy = proxyFactory.createProxy(types, invoker);
+        final Borrowed borrowed = new Borrowed(proxy, collected, instance, slot);
+        invoker.borrowed = borrowed;
+        synchronized (slot) {
+            slot.busy.add(borrowed);
+        }
+        return proxy;
+    }
+
+    private void returnInstance(final Borrowed borrowed) {
+        final Object instance;
+        synchronized (borrowed) {
+            instance = borrowed.instance;
+            borrowed.instance = null;
+        }
+        if (instance != null) {
+            borrowed.clear();
+            synchronized (borrowed.owner) {
+                borrowed.owner.busy.remove(borrowed);
+            }
+            if (resetter.reset(instance)) {
+                release(instance);
+            } else {
+                shrink();
+            }
+        }
+    }
+
+    private void release(final Object instance) {
+        if (instance == null) {
+            return;
+        } else if (instance == GROW) {
+            shrink();
+            return;
+        }
+        if (waiting == 0) {
+            final Slot slot = getSlot();
+            if (slot.offer(instance, stocked)) {
+                // a waiter registered concurrently must not miss the instance
+                if (waiting == 0 || slot.take() == null) {
+                    return;
+                }
+            }
+        }
+        final Waiter waiter;
+        synchronized (lock) {
+            if (waiters.isEmpty()) {
+                available.addLast(new Idle(instance));
+                return;
+            }
+            waiter = (Waiter)waiters.removeFirst();
+            --waiting;
+        }
+        waiter.complete(instance);
+    }
+
+    private void shrink() {
+        final Waiter waiter;
+        synchronized (lock) {
+            if (waiters.isEmpty()) {
+                --size;
+                return;
+            }
+            waiter = (Waiter)waiters.removeFirst();
+            --waiting;
+        }
+        waiter.complete(GROW);
+    }
+
+    private Object takeAvailable() {
+        synchronized (lock) {
+            return available.isEmpty() ? null : ((Idle)available.removeLast()).instance;
+        }
+    }
+
+    private int countIdleInSlots() {
+        int idle = 0;
+        final Slot[] current = slots;
+        for (int i = 0; i < current.length; i++) {
+            synchronized (current[i]) {
+                if (current[i].instance != null) {
+                    ++idle;
+                }
+            }
+        }
+        return idle;
+    }
+
+    private Object steal() {
+        while (true) {
+            final Slot slot;
+            synchronized (stocked) {
+                if (stocked.isEmpty()) {
+                    return null;
+                }
+                slot = (Slot)stocked.remove(stocked.size() - 1);
+            }
+            // the owner may have taken the instance again, a slot is listed once per offer at most
+            final Object instance = slot.unlist();
+            if (instance != null) {
+                return instance;
+            }
+        }
+    }
+
+    private void reclaimCollected(final boolean scan) {
+        Borrowed borrowed;
+        while ((borrowed = (Borrowed)collected.poll()) != null) {
+            returnInstance(borrowed);
+        }
+        if (scan) {
+            // the collected references may not have been enqueued yet
+            final List cleared = new ArrayList();
+            final Slot[] current = slots;
+            for (int i = 0; i < current.length; i++) {
+                synchronized (current[i]) {
+                    for (final Iterator iter = current[i].busy.iterator(); iter.hasNext();) {
+                        borrowed = (Borrowed)iter.next();
+                        if (borrowed.get() == null) {
+                            cleared.add(borrowed);
+                        }
+                    }
+                }
+            }
+            for (final Iterator iter = cleared.iterator(); iter.hasNext();) {
+                returnInstance((Borrowed)iter.next());
+            }
+        }
+    }
+
+    private Slot getSlot() {
+        Slot slot = (Slot)affinity.get();
+        if (slot == null) {
+            slot = new Slot();
+            affinity.set(slot);
+            synchronized (lock) {
+                final List list = new ArrayList(slots.length + 1);
+                for (int i = 0; i < slots.length; i++) {
+                    if (!slots[i].isAbandoned()) {
+                        list.add(slots[i]);
+                    }
+                }
+                list.add(slot);
+                slots = (Slot[])list.toArray(new Slot[list.size()]);
+            }
+        }
+        return slot;
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+    }
+
+    /**
+     * The idle instance of a thread and the instances borrowed by it.
+     */
+    private static final class Slot {
+        private final WeakReference owner = new WeakReference(Thread.currentThread());
+        private final Set busy = new HashSet();
+        private Object instance;
+        private long since;
+        // the slot is on the stack of stocked slots, always if it holds an instance
+        private boolean listed;
+
+        private synchronized Object take() {
+            final Object result = instance;
+            instance = null;
+            return result;
+        }
+
+        private synchronized boolean offer(final Object object, final List stocked) {
+            if (instance != null) {
+                return false;
+            }
+            instance = object;
+            since = System.currentTimeMillis();
+            if (!listed) {
+                listed = true;
+                synchronized (stocked) {
+                    stocked.add(this);
+                }
+            }
+            return true;
+        }
+
+        private synchronized Object unlist() {
+            listed = false;
+            return take();
+        }
+
+        private synchronized boolean isAbandoned() {
+            final Thread thread = (Thread)owner.get();
+            return (thread == null || !thread.isAlive()) && instance == null && busy.isEmpty();
+        }
+    }
+
+    /**
+     * An idle instance in the shared queue.
+     */
+    private static final class Idle {
+        private final Object instance;
+        private final long since = System.currentTimeMillis();
+
+        private Idle(final Object instance) {
+            this.instance = instance;
+        }
+    }
+
+    /**
+     * A thread waiting for an instance.
+     */
+    private static class Waiter {
+        private Object value;
+
+        synchronized void complete(final Object object) {
+            value = object;
+            notify();
+        }
+    }
+
+    /**
+     * An asynchronous request waiting for an instance. The request is completed by the thread that
+     * returns an instance or frees the capacity for a new one.
+     */
+    private final class Request extends Waiter implements PendingInstance, PoolEvictor.Expiring {
+        private final PicoContainer container;
+        private final Slot slot;
+        private final PendingInstance.Callback callback;
+        // guarded by this
+        private boolean done;
+        private boolean cancelled;
+        private Object proxy;
+        private RuntimeException failure;
+        private long deadline;
+        private PoolEvictor evictor;
+
+        private Request(final PicoContainer container, final Slot slot, final PendingInstance.Callback callback) {
+            this.container = container;
+            this.slot = slot;
+            this.callback = callback;
+        }
+
+        void complete(final Object object) {
+            final Object instance;
+            try {
+                instance = object == GROW ? create(container) : object;
+            } catch (final RuntimeException e) {
+                fail(e);
+                return;
+            }
+            final Object borrowed = borrow(slot, instance);
+            final PoolEvictor scheduled;
+            synchronized (this) {
+                proxy = borrowed;
+                done = true;
+                scheduled = evictor;
+                notifyAll();
+            }
+            if (scheduled != null) {
+                scheduled.unschedule(this);
+            }
+            if (callback != null) {
+                try {
+                    callback.borrowed(borrowed);
+                } catch (RuntimeException e) {
+                    // a failing callback must not break the thread returning or creating the instance
+                }
+            }
+        }
+
+        private void fail(final RuntimeException exception) {
+            synchronized (this) {
+                failure = exception;
+                done = true;
+                notifyAll();
+            }
+            if (callback != null) {
+                try {
+                    callback.failed(exception);
+                } catch (RuntimeException e) {
+                    // a failing callback must not break the thread failing the request
+                }
+            }
+        }
+
+        private void schedule(final long deadline) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                this.deadline = deadline;
+            }
+            final PoolEvictor scheduled = PoolEvictor.schedule(container, this);
+            final boolean completed;
+            synchronized (this) {
+                evictor = scheduled;
+                completed = done;
+            }
+            if (completed) {
+                scheduled.unschedule(this);
+            }
+        }
+
+        public synchronized long getDeadline() {
+            return deadline;
+        }
+
+        public void expire() {
+            if (dequeue(this)) {
+                fail(new PoolException("Time out wating for returning object into pool"));
+            }
+        }
+
+        public boolean cancel() {
+            if (!dequeue(this)) {
+                return false;
+            }
+            final PoolEvictor scheduled;
+            synchronized (this) {
+                cancelled = true;
+                done = true;
+                scheduled = evictor;
+                notifyAll();
+            }
+            if (scheduled != null) {
+                scheduled.unschedule(this);
+            }
+            return true;
+        }
+
+        public synchronized boolean isDone() {
+            return done;
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        public Object get() {
+            return get(0, true);
+        }
+
+        public Object get(final long milliseconds) {
+            return get(milliseconds, false);
+        }
+
+        private synchronized Object get(final long milliseconds, final boolean block) {
+            final long end = System.currentTimeMillis() + milliseconds;
+            while (!done) {
+                long wait = 0;
+                if (!block) {
+                    wait = end - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        return null;
+                    }
+                }
+                try {
+                    wait(wait);
+                } catch (InterruptedException e) {
+                    // give the client code of the current thread a chance to abort also
+                    Thread.currentThread().interrupt();
+                    throw new PoolException("Interrupted waiting for returning object into the pool", e);
+                }
+            }
+            if (cancelled) {
+                throw new PoolException("Request for pooled instance has been cancelled");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return proxy;
+        }
+    }
+
+    /**
+     * The reference of a borrowed instance to the proxy handed out for it.
+     */
+    private static final class Borrowed extends WeakReference {
+        private final Slot owner;
+        private Object instance;
+
+        private Borrowed(final Object proxy, final ReferenceQueue queue, final Object instance, final Slot owner) {
+            super(proxy, queue);
+            this.instance = instance;
+            this.owner = owner;
+        }
+    }
+
+    private final class PooledInvoker implements Invoker {
+        private static final long serialVersionUID = 1L;
+        private transient Borrowed borrowed;
+
+        public Object invoke(final Object proxy, final Method method, Object[] args) throws Throwable {
+            if (method.equals(returnInstanceToPool)) {
+                returnInstance(borrowed);
+                return null;
+            }
+            final Object instance;
+            synchronized (borrowed) {
+                instance = borrowed.instance;
+            }
+            if (instance == null) {
+                throw new IllegalStateException("Instance has already been returned to the pool");
+            }
+            if (method.equals(equals) && args[0] != null && proxyFactory.isProxyClass(args[0].getClass())) {
+                final Invoker invoker = proxyFactory.getInvoker(args[0]);
+                if (invoker instanceof PooledInvoker) {
+                    synchronized (((PooledInvoker)invoker).borrowed) {
+                        args = new Object[]{((PooledInvoker)invoker).borrowed.instance};
+                    }
+                }
+            }
+            try {
+                return method.invoke(instance, args);
+            } catch (final InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
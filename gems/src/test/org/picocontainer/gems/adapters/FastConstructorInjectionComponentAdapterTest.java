@@ -0,0 +1,68 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.gems.adapters;
+
+import junit.framework.TestCase;
+
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.CachingComponentAdapterFactory;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.testmodel.DependsOnTouchable;
+import org.picocontainer.testmodel.SimpleTouchable;
+import org.picocontainer.testmodel.Touchable;
+
+
+/**
+ * @version $Revision$
+ */
+public class FastConstructorInjectionComponentAdapterTest extends TestCase {
+
+    public void testComponentIsInstantiatedWithDependencies() {
+        MutablePicoContainer pico = new DefaultPicoContainer(new CachingComponentAdapterFactory(new FastConstructorInjectionComponentAdapterFactory()));
+        pico.registerComponentImplementation(Touchable.class, SimpleTouchable.class);
+        pico.registerComponentImplementation(DependsOnTouchable.class);
+        DependsOnTouchable dependsOnTouchable = (DependsOnTouchable) pico.getComponentInstance(DependsOnTouchable.class);
+        assertNotNull(dependsOnTouchable);
+        assertTrue(((SimpleTouchable) pico.getComponentInstance(Touchable.class)).wasTouched);
+    }
+
+    public static class Barfing {
+        public Barfing() {
+            throw new IllegalStateException("Barf!");
+        }
+    }
+
+    public void testRuntimeExceptionOfConstructorIsRethrown() {
+        FastConstructorInjectionComponentAdapter adapter = new FastConstructorInjectionComponentAdapter(Barfing.class, Barfing.class);
+        try {
+            adapter.getComponentInstance(new DefaultPicoContainer());
+            fail("Thrown " + IllegalStateException.class.getName() + " expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Barf!", e.getMessage());
+        }
+    }
+
+    private static class Private {
+        private Private() {
+        }
+    }
+
+    public void testPrivateConstructorFallsBackToReflection() {
+        FastConstructorInjectionComponentAdapter adapter = new FastConstructorInjectionComponentAdapter(Private.class, Private.class, null, true);
+        assertTrue(adapter.getComponentInstance(new DefaultPicoContainer()) instanceof Private);
+    }
+
+    public void testConstructorIsCalledByGeneratedClass() {
+        FastClassInvoker invoker = new FastClassInvoker(SimpleTouchable.class);
+        assertTrue(invoker.isGenerated());
+        assertTrue(invoker.getIndex(SimpleTouchable.class.getConstructors()[0]) >= 0);
+        assertEquals(-1, new FastClassInvoker(Private.class).getIndex(Private.class.getDeclaredConstructors()[0]));
+    }
+}
@@ -0,0 +1,53 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.gems.adapters;
+
+import junit.framework.TestCase;
+
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.Parameter;
+import org.picocontainer.defaults.CachingComponentAdapterFactory;
+import org.picocontainer.defaults.ConstantParameter;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.testmodel.PersonBean;
+import org.picocontainer.testmodel.PurseBean;
+
+
+/**
+ * @version $Revision$
+ */
+public class FastSetterInjectionComponentAdapterTest extends TestCase {
+
+    public void testSettersAreCalledWithDependencies() {
+        MutablePicoContainer pico = new DefaultPicoContainer(new CachingComponentAdapterFactory(new FastSetterInjectionComponentAdapterFactory()));
+        pico.registerComponentImplementation(PersonBean.class, PersonBean.class, new Parameter[]{new ConstantParameter("Pico Container")});
+        pico.registerComponentImplementation(PurseBean.class);
+        PurseBean purse = (PurseBean) pico.getComponentInstance(PurseBean.class);
+        assertSame(pico.getComponentInstance(PersonBean.class), purse.getOwner());
+        assertEquals("Pico Container", purse.getOwner().getName());
+    }
+
+    public static class BarfingBean {
+        public void setName(String name) {
+            throw new IllegalArgumentException(name);
+        }
+    }
+
+    public void testRuntimeExceptionOfSetterIsRethrown() {
+        FastSetterInjectionComponentAdapter adapter = new FastSetterInjectionComponentAdapter(
+                BarfingBean.class, BarfingBean.class, new Parameter[]{new ConstantParameter("Barf!")});
+        try {
+            adapter.getComponentInstance(new DefaultPicoContainer());
+            fail("Thrown " + IllegalArgumentException.class.getName() + " expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Barf!", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.gems.adapters;
+
+import junit.framework.TestCase;
+
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.testmodel.SimpleTouchable;
+import org.picocontainer.testmodel.Touchable;
+
+
+/**
+ * @version $Revision$
+ */
+public class PoolEvictorTest extends TestCase {
+
+    private PoolingComponentAdapter createPool() {
+        return new PoolingComponentAdapter(new ConstructorInjectionComponentAdapter(Touchable.class, SimpleTouchable.class));
+    }
+
+    public void testPoolsOfSameContainerShareEvictor() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        PoolingComponentAdapter first = createPool();
+        PoolingComponentAdapter second = createPool();
+        PoolEvictor evictor = PoolEvictor.register(pico, first, 60000);
+        try {
+            assertSame(evictor, PoolEvictor.register(pico, second, 60000));
+        } finally {
+            evictor.unregister(first);
+            evictor.unregister(second);
+        }
+    }
+
+    public void testPoolsOfDifferentContainersUseDifferentEvictors() {
+        PoolingComponentAdapter first = createPool();
+        PoolingComponentAdapter second = createPool();
+        PoolEvictor evictor = PoolEvictor.register(new DefaultPicoContainer(), first, 60000);
+        PoolEvictor other = PoolEvictor.register(new DefaultPicoContainer(), second, 60000);
+        try {
+            assertNotSame(evictor, other);
+        } finally {
+            evictor.unregister(first);
+            other.unregister(second);
+        }
+    }
+}
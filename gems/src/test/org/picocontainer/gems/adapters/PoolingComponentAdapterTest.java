@@ -275,6 +275,54 @@ public class PoolingComponentAdapterTest extends AbstractComponentAdapterTestCas
                 RecordingLifecycle.Recorder.class, RecordingLifecycle.Two.class)));
     }
 
+    public void testMinimumIdleInstancesAreCreatedAtStart() {
+        PoolingComponentAdapter componentAdapter = new PoolingComponentAdapter(new ConstructorInjectionComponentAdapter(
+                Identifiable.class, InstanceCounter.class), new PoolingComponentAdapter.DefaultContext() {
+            public int getMinIdle() {
+                return 2;
+            }
+        });
+        componentAdapter.start(null);
+        assertEquals(2, componentAdapter.size());
+        componentAdapter.getComponentInstance(null);
+        componentAdapter.getComponentInstance(null);
+        assertEquals(2, InstanceCounter.counter);
+    }
+
+    public void testContainerStartsPoolWithoutBorrowingAnInstance() {
+        for (int i = 0; i < 2; i++) {
+            final boolean threadAffine = i > 0;
+            final MutablePicoContainer pico = new DefaultPicoContainer();
+            final PoolingComponentAdapter componentAdapter = new PoolingComponentAdapter(
+                    new ConstructorInjectionComponentAdapter(Identifiable.class, InstanceCounter.class),
+                    new PoolingComponentAdapter.DefaultContext() {
+                        public int getMaxSize() {
+                            return 2;
+                        }
+
+                        public int getMinIdle() {
+                            return 2;
+                        }
+
+                        public int getMaxIdleTimeInMilliseconds() {
+                            return threadAffine ? 60000 : 0;
+                        }
+
+                        public boolean isThreadAffine() {
+                            return threadAffine;
+                        }
+                    });
+            pico.registerComponent(componentAdapter);
+            pico.start();
+            assertEquals(2, componentAdapter.size());
+            final Identifiable borrowed0 = (Identifiable)pico.getComponentInstance(Identifiable.class);
+            final Identifiable borrowed1 = (Identifiable)pico.getComponentInstance(Identifiable.class);
+            assertFalse(borrowed0.getId() == borrowed1.getId());
+            pico.stop();
+            pico.dispose();
+        }
+    }
+
     public void testDEF_lifecycleManagerSupport() {
         if ((getComponentAdapterNature() & RESOLVING) > 0) {
             final Class type = getComponentAdapterType();
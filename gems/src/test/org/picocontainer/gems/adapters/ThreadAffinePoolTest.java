@@ -0,0 +1,674 @@
+/*****************************************************************************
+ * Copyright (C) PicoContainer Organization. All rights reserved.            *
+ * ------------------------------------------------------------------------- *
+ * The software in this package is published under the terms of the BSD      *
+ * style license a copy of which has been included with this distribution in *
+ * the LICENSE.txt file.                                                     *
+ *                                                                           *
+ * Original code by                                                          *
+ *****************************************************************************/
+package org.picocontainer.gems.adapters;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import junit.framework.TestCase;
+
+import org.picocontainer.MutablePicoContainer;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.DefaultPicoContainer;
+import org.picocontainer.gems.adapters.PoolingComponentAdapterTest.Identifiable;
+import org.picocontainer.testmodel.RecordingLifecycle;
+
+import com.thoughtworks.proxy.kit.Resetter;
+import com.thoughtworks.proxy.toys.pool.Poolable;
+
+
+/**
+ * Test the {@link PoolingComponentAdapter} with the thread-affine engine.
+ *
+ * @version $Revision$
+ */
+public class ThreadAffinePoolTest extends TestCase {
+
+    public static class Counted implements Identifiable, Serializable {
+        private static int counter = 0;
+        private final int id;
+
+        public Counted() {
+            id = counter++;
+        }
+
+        public int getId() {
+            return id;
+        }
+    }
+
+    public static class ThreadAffineContext extends PoolingComponentAdapter.DefaultContext {
+        private final int maxSize;
+        private final int maxWait;
+
+        public ThreadAffineContext(int maxSize, int maxWait) {
+            this.maxSize = maxSize;
+            this.maxWait = maxWait;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public int getMaxWaitInMilliseconds() {
+            return maxWait;
+        }
+
+        public boolean isThreadAffine() {
+            return true;
+        }
+    }
+
+    protected void setUp() throws Exception {
+        Counted.counter = 0;
+    }
+
+    private PoolingComponentAdapter createPool(PoolingComponentAdapter.Context context) {
+        return new PoolingComponentAdapter(new ConstructorInjectionComponentAdapter(Identifiable.class, Counted.class), context);
+    }
+
+    public void testReturnedInstanceIsBorrowedAgainByTheSameThread() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(4, PoolingComponentAdapter.FAIL_ON_WAIT));
+        Identifiable first = (Identifiable)adapter.getComponentInstance(null);
+        Identifiable second = (Identifiable)adapter.getComponentInstance(null);
+        assertEquals(0, first.getId());
+        assertEquals(1, second.getId());
+        ((Poolable)second).returnInstanceToPool();
+        assertEquals(1, ((Identifiable)adapter.getComponentInstance(null)).getId());
+        assertEquals(2, adapter.size());
+    }
+
+    public void testInstanceReturnedByAnotherThreadIsBorrowed() throws InterruptedException {
+        final PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.FAIL_ON_WAIT));
+        Thread thread = new Thread() {
+            public void run() {
+                ((Poolable)adapter.getComponentInstance(null)).returnInstanceToPool();
+            }
+        };
+        thread.start();
+        thread.join();
+        assertEquals(0, ((Identifiable)adapter.getComponentInstance(null)).getId());
+        assertEquals(1, adapter.size());
+    }
+
+    public void testInstanceTakenBackByItsThreadIsNotStolenButReturnedLater() throws InterruptedException {
+        final PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(2, PoolingComponentAdapter.FAIL_ON_WAIT));
+        final Object monitor = new Object();
+        final boolean[] phase = new boolean[2];
+        Thread thread = new Thread() {
+            public void run() {
+                ((Poolable)adapter.getComponentInstance(null)).returnInstanceToPool();
+                Poolable taken = (Poolable)adapter.getComponentInstance(null);
+                synchronized (monitor) {
+                    phase[0] = true;
+                    monitor.notifyAll();
+                    while (!phase[1]) {
+                        try {
+                            monitor.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+                taken.returnInstanceToPool();
+            }
+        };
+        thread.start();
+        synchronized (monitor) {
+            while (!phase[0]) {
+                monitor.wait();
+            }
+        }
+        assertEquals(1, ((Identifiable)adapter.getComponentInstance(null)).getId());
+        synchronized (monitor) {
+            phase[1] = true;
+            monitor.notifyAll();
+        }
+        thread.join();
+        assertEquals(0, ((Identifiable)adapter.getComponentInstance(null)).getId());
+        assertEquals(2, adapter.size());
+    }
+
+    public void testFailsWhenExhausted() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(2, PoolingComponentAdapter.FAIL_ON_WAIT));
+        adapter.getComponentInstance(null);
+        adapter.getComponentInstance(null);
+        try {
+            adapter.getComponentInstance(null);
+            fail("Thrown " + PoolException.class.getName() + " expected");
+        } catch (PoolException e) {
+            assertTrue(e.getMessage().indexOf("exhausted") >= 0);
+        }
+        assertEquals(2, adapter.size());
+    }
+
+    public void testTimeoutWhenExhausted() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, 250));
+        Object borrowed = adapter.getComponentInstance(null);
+        assertNotNull(borrowed);
+        long time = System.currentTimeMillis();
+        try {
+            adapter.getComponentInstance(null);
+            fail("Thrown " + PoolException.class.getName() + " expected");
+        } catch (PoolException e) {
+            assertTrue(e.getMessage().indexOf("Time out") >= 0);
+            assertTrue(System.currentTimeMillis() - time >= 250);
+        }
+    }
+
+    public void testWaitingThreadsAreServedInOrderOfArrival() throws InterruptedException {
+        final PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.BLOCK_ON_WAIT));
+        final Poolable borrowed = (Poolable)adapter.getComponentInstance(null);
+        final StringBuffer order = new StringBuffer();
+        Thread[] threads = new Thread[3];
+        for (int i = 0; i < threads.length; i++) {
+            final String name = String.valueOf(i);
+            threads[i] = new Thread() {
+                public void run() {
+                    Poolable poolable = (Poolable)adapter.getComponentInstance(null);
+                    synchronized (order) {
+                        order.append(name);
+                    }
+                    poolable.returnInstanceToPool();
+                }
+            };
+            threads[i].start();
+            // give the thread time to wait for the instance
+            Thread.sleep(100);
+        }
+        borrowed.returnInstanceToPool();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertEquals("012", order.toString());
+        assertEquals(1, adapter.size());
+    }
+
+    public static interface Exclusive {
+        void use();
+    }
+
+    public static class ExclusiveImpl implements Exclusive {
+        private boolean inUse;
+
+        public void use() {
+            synchronized (this) {
+                if (inUse) {
+                    throw new IllegalStateException("Used concurrently");
+                }
+                inUse = true;
+            }
+            Thread.yield();
+            synchronized (this) {
+                inUse = false;
+            }
+        }
+    }
+
+    public void testInstanceIsNeverBorrowedTwiceConcurrently() throws InterruptedException {
+        final PoolingComponentAdapter adapter = new PoolingComponentAdapter(new ConstructorInjectionComponentAdapter(
+                Exclusive.class, ExclusiveImpl.class), new ThreadAffineContext(3, PoolingComponentAdapter.BLOCK_ON_WAIT));
+        final Throwable[] thrown = new Throwable[1];
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 2000; j++) {
+                            Exclusive exclusive = (Exclusive)adapter.getComponentInstance(null);
+                            exclusive.use();
+                            ((Poolable)exclusive).returnInstanceToPool();
+                        }
+                    } catch (Throwable t) {
+                        thrown[0] = t;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertNull(thrown[0]);
+        assertTrue(adapter.size() <= 3);
+    }
+
+    public void testInterruptedWaitFails() throws InterruptedException {
+        final PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.BLOCK_ON_WAIT));
+        final Poolable borrowed = (Poolable)adapter.getComponentInstance(null);
+        final Throwable[] thrown = new Throwable[1];
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    adapter.getComponentInstance(null);
+                } catch (Throwable t) {
+                    thrown[0] = t;
+                }
+            }
+        };
+        thread.start();
+        Thread.sleep(100);
+        thread.interrupt();
+        thread.join();
+        assertTrue(thrown[0] instanceof PoolException);
+        borrowed.returnInstanceToPool();
+        assertEquals(0, ((Identifiable)adapter.getComponentInstance(null)).getId());
+    }
+
+    public void testInstanceOfCollectedProxyReturnsIntoPool() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.FAIL_ON_WAIT) {
+            public boolean autostartGC() {
+                return true;
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            Identifiable borrowed = (Identifiable)adapter.getComponentInstance(null);
+            assertEquals(0, borrowed.getId());
+        }
+    }
+
+    public void testInstanceThatCannotBeResetIsReplaced() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.FAIL_ON_WAIT) {
+            public Resetter getResetter() {
+                return new Resetter() {
+                    public boolean reset(Object object) {
+                        return false;
+                    }
+                };
+            }
+        });
+        ((Poolable)adapter.getComponentInstance(null)).returnInstanceToPool();
+        assertEquals(0, adapter.size());
+        assertEquals(1, ((Identifiable)adapter.getComponentInstance(null)).getId());
+    }
+
+    public void testReturnedProxyCannotBeUsed() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.FAIL_ON_WAIT));
+        Identifiable borrowed = (Identifiable)adapter.getComponentInstance(null);
+        ((Poolable)borrowed).returnInstanceToPool();
+        ((Poolable)borrowed).returnInstanceToPool();
+        try {
+            borrowed.getId();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1, adapter.size());
+    }
+
+    public void testProxiesOfSameInstanceAreEqual() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.FAIL_ON_WAIT));
+        Object first = adapter.getComponentInstance(null);
+        assertTrue(first.equals(first));
+        ((Poolable)first).returnInstanceToPool();
+        Object second = adapter.getComponentInstance(null);
+        assertFalse(second.equals(first));
+        assertFalse(second.equals(null));
+    }
+
+    public void testLifecycleOfPooledInstances() {
+        StringBuffer buffer = new StringBuffer();
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentInstance(buffer);
+        pico.registerComponent(new PoolingComponentAdapter(new ConstructorInjectionComponentAdapter(
+                RecordingLifecycle.Recorder.class, RecordingLifecycle.One.class), new ThreadAffineContext(2, PoolingComponentAdapter.FAIL_ON_WAIT)));
+        pico.start();
+        pico.stop();
+        pico.dispose();
+        assertEquals("<OneOne>!One", buffer.toString());
+    }
+
+    public static class IdleContext extends ThreadAffineContext {
+        private final int minIdle;
+        private final int maxIdleTime;
+        private final int evictionInterval;
+
+        public IdleContext(int maxSize, int minIdle, int maxIdleTime, int evictionInterval) {
+            super(maxSize, PoolingComponentAdapter.FAIL_ON_WAIT);
+            this.minIdle = minIdle;
+            this.maxIdleTime = maxIdleTime;
+            this.evictionInterval = evictionInterval;
+        }
+
+        public int getMinIdle() {
+            return minIdle;
+        }
+
+        public int getMaxIdleTimeInMilliseconds() {
+            return maxIdleTime;
+        }
+
+        public int getEvictionIntervalInMilliseconds() {
+            return evictionInterval;
+        }
+    }
+
+    public void testMinimumIdleInstancesAreCreatedAtStart() {
+        PoolingComponentAdapter adapter = createPool(new IdleContext(4, 3, 0, 0));
+        assertTrue(adapter.hasLifecycle());
+        adapter.start(null);
+        assertEquals(3, adapter.size());
+        for (int i = 0; i < 3; i++) {
+            adapter.getComponentInstance(null);
+        }
+        assertEquals(3, Counted.counter);
+        adapter.stop(null);
+    }
+
+    public void testMinimumIdleInstancesAreCreatedAtStartOfContainer() {
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        PoolingComponentAdapter adapter = createPool(new IdleContext(4, 2, 0, 0));
+        pico.registerComponent(adapter);
+        pico.start();
+        assertTrue(adapter.size() >= 2);
+        pico.stop();
+    }
+
+    public void testIdleInstancesAreEvicted() throws InterruptedException {
+        PoolingComponentAdapter adapter = createPool(new IdleContext(4, 1, 50, 0));
+        Poolable[] borrowed = new Poolable[3];
+        for (int i = 0; i < borrowed.length; i++) {
+            borrowed[i] = (Poolable)adapter.getComponentInstance(null);
+        }
+        for (int i = 0; i < borrowed.length; i++) {
+            borrowed[i].returnInstanceToPool();
+        }
+        Thread.sleep(100);
+        adapter.evictIdleInstances();
+        assertEquals(1, adapter.size());
+        adapter.getComponentInstance(null);
+        assertEquals(3, Counted.counter);
+    }
+
+    public void testRecentlyReturnedInstancesAreNotEvicted() {
+        PoolingComponentAdapter adapter = createPool(new IdleContext(4, 0, 60000, 0));
+        Poolable first = (Poolable)adapter.getComponentInstance(null);
+        Poolable second = (Poolable)adapter.getComponentInstance(null);
+        first.returnInstanceToPool();
+        second.returnInstanceToPool();
+        adapter.evictIdleInstances();
+        assertEquals(2, adapter.size());
+    }
+
+    public void testEvictedInstancesAreStoppedAndDisposed() throws InterruptedException {
+        StringBuffer buffer = new StringBuffer();
+        MutablePicoContainer pico = new DefaultPicoContainer();
+        pico.registerComponentInstance(buffer);
+        PoolingComponentAdapter adapter = new PoolingComponentAdapter(new ConstructorInjectionComponentAdapter(
+                RecordingLifecycle.Recorder.class, RecordingLifecycle.One.class), new IdleContext(2, 1, 50, 60000));
+        adapter.start(pico);
+        assertEquals("<One", buffer.toString());
+        Poolable first = (Poolable)adapter.getComponentInstance(pico);
+        Poolable second = (Poolable)adapter.getComponentInstance(pico);
+        first.returnInstanceToPool();
+        second.returnInstanceToPool();
+        Thread.sleep(100);
+        adapter.evictIdleInstances();
+        assertEquals(1, adapter.size());
+        assertEquals("<One<OneOne>!One", buffer.toString());
+        adapter.stop(pico);
+        adapter.dispose(pico);
+        assertEquals("<One<OneOne>!OneOne>!One", buffer.toString());
+    }
+
+    public void testEvictorRunsWhileThePoolIsStarted() throws InterruptedException {
+        PoolingComponentAdapter adapter = createPool(new IdleContext(4, 0, 50, 20));
+        adapter.start(null);
+        Poolable first = (Poolable)adapter.getComponentInstance(null);
+        Poolable second = (Poolable)adapter.getComponentInstance(null);
+        first.returnInstanceToPool();
+        second.returnInstanceToPool();
+        for (int i = 0; i < 100 && adapter.size() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, adapter.size());
+        adapter.stop(null);
+    }
+
+    public void testEvictionRequiresThreadAffineEngine() {
+        try {
+            createPool(new IdleContext(4, 0, 50, 0) {
+                public boolean isThreadAffine() {
+                    return false;
+                }
+            });
+            fail("Thrown " + IllegalArgumentException.class.getName() + " expected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().indexOf("thread-affine") >= 0);
+        }
+    }
+
+    public void testMinimumIdleInstancesMustNotExceedMaximumSize() {
+        try {
+            createPool(new IdleContext(2, 3, 0, 0));
+            fail("Thrown " + IllegalArgumentException.class.getName() + " expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public static class RecordingCallback implements PendingInstance.Callback {
+        private final String name;
+        private final StringBuffer buffer;
+        private Object instance;
+        private RuntimeException exception;
+
+        public RecordingCallback(String name, StringBuffer buffer) {
+            this.name = name;
+            this.buffer = buffer;
+        }
+
+        public void borrowed(Object instance) {
+            this.instance = instance;
+            buffer.append(name);
+        }
+
+        public void failed(RuntimeException exception) {
+            this.exception = exception;
+            buffer.append('!').append(name);
+        }
+    }
+
+    public void testRequestIsCompletedImmediatelyIfInstanceIsAvailable() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.FAIL_ON_WAIT));
+        StringBuffer buffer = new StringBuffer();
+        RecordingCallback callback = new RecordingCallback("a", buffer);
+        PendingInstance pending = adapter.requestComponentInstance(null, callback);
+        assertTrue(pending.isDone());
+        assertFalse(pending.isCancelled());
+        assertEquals("a", buffer.toString());
+        assertSame(callback.instance, pending.get());
+        assertEquals(0, ((Identifiable)pending.get()).getId());
+        assertFalse(pending.cancel());
+    }
+
+    public void testRequestFailsIfExhaustedPoolDoesNotWait() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.FAIL_ON_WAIT));
+        adapter.getComponentInstance(null);
+        StringBuffer buffer = new StringBuffer();
+        RecordingCallback callback = new RecordingCallback("a", buffer);
+        PendingInstance pending = adapter.requestComponentInstance(null, callback);
+        assertTrue(pending.isDone());
+        assertEquals("!a", buffer.toString());
+        assertTrue(callback.exception instanceof PoolException);
+        try {
+            pending.get();
+            fail("Thrown " + PoolException.class.getName() + " expected");
+        } catch (PoolException e) {
+            assertTrue(e.getMessage().indexOf("exhausted") >= 0);
+        }
+    }
+
+    public void testRequestsAreCompletedInOrderOfArrivalByReturningInstances() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.BLOCK_ON_WAIT));
+        Poolable borrowed = (Poolable)adapter.getComponentInstance(null);
+        StringBuffer buffer = new StringBuffer();
+        PendingInstance first = adapter.requestComponentInstance(null, new RecordingCallback("1", buffer));
+        PendingInstance second = adapter.requestComponentInstance(null, new RecordingCallback("2", buffer));
+        assertFalse(first.isDone());
+        assertNull(first.get(50));
+        borrowed.returnInstanceToPool();
+        assertEquals("1", buffer.toString());
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        ((Poolable)first.get()).returnInstanceToPool();
+        assertEquals("12", buffer.toString());
+        assertEquals(0, ((Identifiable)second.get()).getId());
+        assertEquals(1, adapter.size());
+    }
+
+    public static class ThrowingCallback extends RecordingCallback {
+        public ThrowingCallback(String name, StringBuffer buffer) {
+            super(name, buffer);
+        }
+
+        public void borrowed(Object instance) {
+            super.borrowed(instance);
+            throw new IllegalStateException("borrowed");
+        }
+
+        public void failed(RuntimeException exception) {
+            super.failed(exception);
+            throw new IllegalStateException("failed");
+        }
+    }
+
+    public void testThrowingCallbackDoesNotBreakTheCompletingThread() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.BLOCK_ON_WAIT));
+        Poolable borrowed = (Poolable)adapter.getComponentInstance(null);
+        StringBuffer buffer = new StringBuffer();
+        PendingInstance first = adapter.requestComponentInstance(null, new ThrowingCallback("1", buffer));
+        PendingInstance second = adapter.requestComponentInstance(null, new RecordingCallback("2", buffer));
+        borrowed.returnInstanceToPool();
+        assertEquals("1", buffer.toString());
+        assertTrue(first.isDone());
+        ((Poolable)first.get()).returnInstanceToPool();
+        assertEquals("12", buffer.toString());
+        assertEquals(0, ((Identifiable)second.get()).getId());
+    }
+
+    public void testThrowingCallbackDoesNotBreakTheFailingRequest() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.FAIL_ON_WAIT));
+        adapter.getComponentInstance(null);
+        StringBuffer buffer = new StringBuffer();
+        PendingInstance pending = adapter.requestComponentInstance(null, new ThrowingCallback("a", buffer));
+        assertTrue(pending.isDone());
+        assertEquals("!a", buffer.toString());
+    }
+
+    public void testRequestIsServedWithBlockedThreadsInOrderOfArrival() throws InterruptedException {
+        final PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.BLOCK_ON_WAIT));
+        final Poolable borrowed = (Poolable)adapter.getComponentInstance(null);
+        final StringBuffer buffer = new StringBuffer();
+        Thread thread = new Thread() {
+            public void run() {
+                Poolable poolable = (Poolable)adapter.getComponentInstance(null);
+                synchronized (buffer) {
+                    buffer.append("t");
+                }
+                poolable.returnInstanceToPool();
+            }
+        };
+        thread.start();
+        Thread.sleep(100);
+        PendingInstance pending = adapter.requestComponentInstance(null, new RecordingCallback("r", buffer));
+        borrowed.returnInstanceToPool();
+        thread.join();
+        assertNotNull(pending.get(5000));
+        assertEquals("tr", buffer.toString());
+    }
+
+    public void testRequestTimesOut() throws InterruptedException {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, 100));
+        adapter.getComponentInstance(null);
+        StringBuffer buffer = new StringBuffer();
+        RecordingCallback callback = new RecordingCallback("a", buffer);
+        long time = System.currentTimeMillis();
+        PendingInstance pending = adapter.requestComponentInstance(null, callback);
+        assertFalse(pending.isDone());
+        try {
+            pending.get(5000);
+            fail("Thrown " + PoolException.class.getName() + " expected");
+        } catch (PoolException e) {
+            assertTrue(e.getMessage().indexOf("Time out") >= 0);
+            assertTrue(System.currentTimeMillis() - time >= 100);
+        }
+        // the callback is notified after the request is done
+        for (int i = 0; i < 100 && buffer.length() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals("!a", buffer.toString());
+    }
+
+    public void testCancelledRequestIsNotServed() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.BLOCK_ON_WAIT));
+        Poolable borrowed = (Poolable)adapter.getComponentInstance(null);
+        StringBuffer buffer = new StringBuffer();
+        PendingInstance pending = adapter.requestComponentInstance(null, new RecordingCallback("a", buffer));
+        assertTrue(pending.cancel());
+        assertFalse(pending.cancel());
+        assertTrue(pending.isDone());
+        assertTrue(pending.isCancelled());
+        try {
+            pending.get();
+            fail("Thrown " + PoolException.class.getName() + " expected");
+        } catch (PoolException e) {
+            // expected
+        }
+        borrowed.returnInstanceToPool();
+        assertEquals("", buffer.toString());
+        assertEquals(0, ((Identifiable)adapter.getComponentInstance(null)).getId());
+    }
+
+    public void testRequestIsCompletedWithNewInstanceIfReturningInstanceIsDropped() {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(1, PoolingComponentAdapter.BLOCK_ON_WAIT) {
+            public Resetter getResetter() {
+                return new Resetter() {
+                    public boolean reset(Object object) {
+                        return false;
+                    }
+                };
+            }
+        });
+        Poolable borrowed = (Poolable)adapter.getComponentInstance(null);
+        PendingInstance pending = adapter.requestComponentInstance(null, null);
+        assertFalse(pending.isDone());
+        borrowed.returnInstanceToPool();
+        assertEquals(1, ((Identifiable)pending.get()).getId());
+        assertEquals(1, adapter.size());
+    }
+
+    public void testRequestRequiresThreadAffineEngine() {
+        PoolingComponentAdapter adapter = createPool(new PoolingComponentAdapter.DefaultContext());
+        try {
+            adapter.requestComponentInstance(null, null);
+            fail("Thrown " + UnsupportedOperationException.class.getName() + " expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void testIsSerializable() throws Exception {
+        PoolingComponentAdapter adapter = createPool(new ThreadAffineContext(2, PoolingComponentAdapter.FAIL_ON_WAIT));
+        adapter.getComponentInstance(null);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(buffer);
+        out.writeObject(adapter);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        PoolingComponentAdapter deserialized = (PoolingComponentAdapter)in.readObject();
+        assertEquals(0, deserialized.size());
+        assertNotNull(deserialized.getComponentInstance(null));
+        assertEquals(1, deserialized.size());
+    }
+}
@@ -12,6 +12,10 @@ package org.picocontainer.gems.adapters;
 import junit.framework.Assert;
 import junit.framework.TestCase;
 
+import org.picocontainer.PicoContainer;
+import org.picocontainer.defaults.CachingComponentAdapter;
+import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.DefaultPicoContainer;
 import org.picocontainer.defaults.ObjectReference;
 
 import java.util.ArrayList;
@@ -91,4 +95,43 @@ public class ThreadLocalReferenceTest extends TestCase {
         Thread.sleep(50);
         assertEquals("Unexpected Exceptions: " + m_exceptionList, 0, m_exceptionList.size());
     }
+
+    /**
+     * Test CachingComponentAdapter instantiating once per thread with a ThreadLocalReference.
+     * 
+     * @throws InterruptedException
+     */
+    public final void testCachingComponentAdapterInstantiatesOncePerThread() throws InterruptedException {
+        final CachingComponentAdapter adapter = new CachingComponentAdapter(
+                new ConstructorInjectionComponentAdapter(List.class, ArrayList.class), new ThreadLocalReference(), true);
+        final PicoContainer pico = new DefaultPicoContainer();
+        final List instances = Collections.synchronizedList(new ArrayList());
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        final Object instance = adapter.getComponentInstance(pico);
+                        if (instance != adapter.getComponentInstance(pico)) {
+                            m_exceptionList.add(new IllegalStateException("Instance not cached"));
+                        }
+                        instances.add(instance);
+                    } catch (RuntimeException e) {
+                        m_exceptionList.add(e);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertEquals("Unexpected Exceptions: " + m_exceptionList, 0, m_exceptionList.size());
+        assertEquals(threads.length, instances.size());
+        for (int i = 0; i < instances.size(); i++) {
+            for (int j = i + 1; j < instances.size(); j++) {
+                assertNotSame(instances.get(i), instances.get(j));
+            }
+        }
+    }
 }